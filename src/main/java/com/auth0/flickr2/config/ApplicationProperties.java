@@ -1,5 +1,8 @@
 package com.auth0.flickr2.config;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -9,4 +12,550 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
-public class ApplicationProperties {}
+public class ApplicationProperties {
+
+    private final BlobStore blobStore = new BlobStore();
+
+    private final PhotoDerivatives photoDerivatives = new PhotoDerivatives();
+
+    private final PhotoUploads photoUploads = new PhotoUploads();
+
+    private final PhotoSearch photoSearch = new PhotoSearch();
+
+    private final PopularTags popularTags = new PopularTags();
+
+    private final UserInfo userInfo = new UserInfo();
+
+    private final JwtCache jwtCache = new JwtCache();
+
+    private final Jwks jwks = new Jwks();
+
+    private final UserSync userSync = new UserSync();
+
+    public BlobStore getBlobStore() {
+        return blobStore;
+    }
+
+    public PhotoDerivatives getPhotoDerivatives() {
+        return photoDerivatives;
+    }
+
+    public PhotoUploads getPhotoUploads() {
+        return photoUploads;
+    }
+
+    public PhotoSearch getPhotoSearch() {
+        return photoSearch;
+    }
+
+    public PopularTags getPopularTags() {
+        return popularTags;
+    }
+
+    public UserInfo getUserInfo() {
+        return userInfo;
+    }
+
+    public JwtCache getJwtCache() {
+        return jwtCache;
+    }
+
+    public Jwks getJwks() {
+        return jwks;
+    }
+
+    public UserSync getUserSync() {
+        return userSync;
+    }
+
+    /**
+     * Storage of the photo images, see {@link com.auth0.flickr2.repository.LocalBlobStore}.
+     */
+    public static class BlobStore {
+
+        /**
+         * Directory the blobs are stored in.
+         */
+        private String directory = "blob-store";
+
+        /**
+         * Number of photos whose image is moved from the database to the blob store per transaction.
+         */
+        private int backfillBatchSize = 20;
+
+        /**
+         * Hours a blob is kept after it was last stored before it can be swept as an orphan, longer than any upload.
+         */
+        private long orphanGracePeriodHours = 24;
+
+        /**
+         * Number of blobs whose references are checked per query when sweeping the orphans.
+         */
+        private int sweepBatchSize = 500;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getBackfillBatchSize() {
+            return backfillBatchSize;
+        }
+
+        public void setBackfillBatchSize(int backfillBatchSize) {
+            this.backfillBatchSize = backfillBatchSize;
+        }
+
+        public long getOrphanGracePeriodHours() {
+            return orphanGracePeriodHours;
+        }
+
+        public void setOrphanGracePeriodHours(long orphanGracePeriodHours) {
+            this.orphanGracePeriodHours = orphanGracePeriodHours;
+        }
+
+        public int getSweepBatchSize() {
+            return sweepBatchSize;
+        }
+
+        public void setSweepBatchSize(int sweepBatchSize) {
+            this.sweepBatchSize = sweepBatchSize;
+        }
+    }
+
+    /**
+     * Resized copies of the uploaded photos, see {@link com.auth0.flickr2.service.PhotoDerivativeService}.
+     */
+    public static class PhotoDerivatives {
+
+        /**
+         * Long edge, in pixels, of the generated derivatives.
+         */
+        private List<Integer> sizes = new ArrayList<>(Arrays.asList(200, 800, 1600));
+
+        private int corePoolSize = 2;
+
+        private int maxPoolSize = 2;
+
+        private int queueCapacity = 500;
+
+        /**
+         * Maximum time, in seconds, a request waits for a missing derivative before the original is served.
+         */
+        private long timeoutSeconds = 30;
+
+        /**
+         * Maximum number of pixels of an image derivatives are generated from, read from its header before it is decoded.
+         */
+        private long maxPixels = 40_000_000;
+
+        public List<Integer> getSizes() {
+            return sizes;
+        }
+
+        public void setSizes(List<Integer> sizes) {
+            this.sizes = sizes;
+        }
+
+        public int getCorePoolSize() {
+            return corePoolSize;
+        }
+
+        public void setCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public long getTimeoutSeconds() {
+            return timeoutSeconds;
+        }
+
+        public void setTimeoutSeconds(long timeoutSeconds) {
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        public long getMaxPixels() {
+            return maxPixels;
+        }
+
+        public void setMaxPixels(long maxPixels) {
+            this.maxPixels = maxPixels;
+        }
+    }
+
+    /**
+     * Resumable chunked uploads of the photos, see {@link com.auth0.flickr2.service.PhotoUploadService}.
+     */
+    public static class PhotoUploads {
+
+        /**
+         * Directory the chunks of the uploads in progress are appended to.
+         */
+        private String directory = "photo-uploads";
+
+        /**
+         * Maximum size, in bytes, of a chunk.
+         */
+        private long maxChunkSize = 8L * 1024 * 1024;
+
+        /**
+         * Maximum size, in bytes, of an uploaded image.
+         */
+        private long maxSize = 50L * 1024 * 1024;
+
+        /**
+         * Time, in minutes, after which an upload without any new chunk is abandoned and removed.
+         */
+        private long expirationMinutes = 24 * 60;
+
+        /**
+         * Maximum number of uploads a user has in progress at once, each with a file of up to the maximum size.
+         */
+        private int maxUploadsPerUser = 10;
+
+        /**
+         * Maximum number of images of a bulk upload.
+         */
+        private int bulkMaxFiles = 500;
+
+        /**
+         * Number of threads storing the images of the bulk uploads and extracting their metadata, {@code 0} for one
+         * per available processor.
+         */
+        private int bulkThreads = 0;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getMaxChunkSize() {
+            return maxChunkSize;
+        }
+
+        public void setMaxChunkSize(long maxChunkSize) {
+            this.maxChunkSize = maxChunkSize;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public long getExpirationMinutes() {
+            return expirationMinutes;
+        }
+
+        public void setExpirationMinutes(long expirationMinutes) {
+            this.expirationMinutes = expirationMinutes;
+        }
+
+        public int getMaxUploadsPerUser() {
+            return maxUploadsPerUser;
+        }
+
+        public void setMaxUploadsPerUser(int maxUploadsPerUser) {
+            this.maxUploadsPerUser = maxUploadsPerUser;
+        }
+
+        public int getBulkMaxFiles() {
+            return bulkMaxFiles;
+        }
+
+        public void setBulkMaxFiles(int bulkMaxFiles) {
+            this.bulkMaxFiles = bulkMaxFiles;
+        }
+
+        public int getBulkThreads() {
+            return bulkThreads;
+        }
+
+        public void setBulkThreads(int bulkThreads) {
+            this.bulkThreads = bulkThreads;
+        }
+    }
+
+    /**
+     * Full-text search of the photos, see {@link com.auth0.flickr2.service.PhotoSearchService}.
+     */
+    public static class PhotoSearch {
+
+        /**
+         * Directory the index is stored in; the index is kept in memory when empty.
+         */
+        private String directory = "photo-search";
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * Most used tags, see {@link com.auth0.flickr2.service.TagPopularityService}.
+     */
+    public static class PopularTags {
+
+        /**
+         * Time, in seconds, the most used tags are cached for.
+         */
+        private long cacheTimeToLiveSeconds = 10;
+
+        /**
+         * Maximum number of most used tags returned at once.
+         */
+        private int maxSize = 100;
+
+        public long getCacheTimeToLiveSeconds() {
+            return cacheTimeToLiveSeconds;
+        }
+
+        public void setCacheTimeToLiveSeconds(long cacheTimeToLiveSeconds) {
+            this.cacheTimeToLiveSeconds = cacheTimeToLiveSeconds;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * Users retrieved from the userinfo endpoint of the OAuth provider,
+     * see {@link com.auth0.flickr2.security.oauth2.CustomClaimConverter}.
+     */
+    public static class UserInfo {
+
+        /**
+         * Time, in seconds, a user is cached: the longest a stale user is used while the OAuth provider is unavailable.
+         */
+        private long cacheTimeToLiveSeconds = 3600;
+
+        /**
+         * Maximum number of users cached.
+         */
+        private long cacheMaxEntries = 10000;
+
+        /**
+         * Age, in seconds, after which a cached user is retrieved again in the background, so profile changes are picked up.
+         */
+        private long refreshAfterSeconds = 300;
+
+        private long connectTimeoutMillis = 1000;
+
+        private long readTimeoutMillis = 2000;
+
+        /**
+         * Number of consecutive failed calls to the userinfo endpoint after which it is not called anymore.
+         */
+        private int circuitBreakerFailureThreshold = 5;
+
+        /**
+         * Time, in seconds, before the userinfo endpoint is called again once the failure threshold is reached.
+         */
+        private long circuitBreakerOpenSeconds = 30;
+
+        public long getCacheTimeToLiveSeconds() {
+            return cacheTimeToLiveSeconds;
+        }
+
+        public void setCacheTimeToLiveSeconds(long cacheTimeToLiveSeconds) {
+            this.cacheTimeToLiveSeconds = cacheTimeToLiveSeconds;
+        }
+
+        public long getCacheMaxEntries() {
+            return cacheMaxEntries;
+        }
+
+        public void setCacheMaxEntries(long cacheMaxEntries) {
+            this.cacheMaxEntries = cacheMaxEntries;
+        }
+
+        public long getRefreshAfterSeconds() {
+            return refreshAfterSeconds;
+        }
+
+        public void setRefreshAfterSeconds(long refreshAfterSeconds) {
+            this.refreshAfterSeconds = refreshAfterSeconds;
+        }
+
+        public long getConnectTimeoutMillis() {
+            return connectTimeoutMillis;
+        }
+
+        public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+        }
+
+        public long getReadTimeoutMillis() {
+            return readTimeoutMillis;
+        }
+
+        public void setReadTimeoutMillis(long readTimeoutMillis) {
+            this.readTimeoutMillis = readTimeoutMillis;
+        }
+
+        public int getCircuitBreakerFailureThreshold() {
+            return circuitBreakerFailureThreshold;
+        }
+
+        public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+            this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+        }
+
+        public long getCircuitBreakerOpenSeconds() {
+            return circuitBreakerOpenSeconds;
+        }
+
+        public void setCircuitBreakerOpenSeconds(long circuitBreakerOpenSeconds) {
+            this.circuitBreakerOpenSeconds = circuitBreakerOpenSeconds;
+        }
+    }
+
+    /**
+     * Decoded bearer tokens, see {@link com.auth0.flickr2.security.oauth2.CachingJwtDecoder}.
+     */
+    public static class JwtCache {
+
+        /**
+         * Maximum number of tokens cached.
+         */
+        private long maxEntries = 10000;
+
+        /**
+         * Maximum time, in seconds, a token is cached; it is never used past its expiration date.
+         */
+        private long timeToLiveSeconds = 3600;
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+    }
+
+    /**
+     * JSON Web Key set of the OAuth provider, see {@link com.auth0.flickr2.security.oauth2.ManagedJwkSource}.
+     */
+    public static class Jwks {
+
+        /**
+         * Time, in seconds, between two background refreshes of the key set.
+         */
+        private long refreshIntervalSeconds = 300;
+
+        /**
+         * Minimum time, in seconds, between two fetches of the key set for a token signed with an unknown key.
+         */
+        private long minRefetchIntervalSeconds = 30;
+
+        private long connectTimeoutMillis = 1000;
+
+        private long readTimeoutMillis = 2000;
+
+        public long getRefreshIntervalSeconds() {
+            return refreshIntervalSeconds;
+        }
+
+        public void setRefreshIntervalSeconds(long refreshIntervalSeconds) {
+            this.refreshIntervalSeconds = refreshIntervalSeconds;
+        }
+
+        public long getMinRefetchIntervalSeconds() {
+            return minRefetchIntervalSeconds;
+        }
+
+        public void setMinRefetchIntervalSeconds(long minRefetchIntervalSeconds) {
+            this.minRefetchIntervalSeconds = minRefetchIntervalSeconds;
+        }
+
+        public long getConnectTimeoutMillis() {
+            return connectTimeoutMillis;
+        }
+
+        public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+        }
+
+        public long getReadTimeoutMillis() {
+            return readTimeoutMillis;
+        }
+
+        public void setReadTimeoutMillis(long readTimeoutMillis) {
+            this.readTimeoutMillis = readTimeoutMillis;
+        }
+    }
+
+    /**
+     * Synchronization of the users of the OAuth provider with the local database, see
+     * {@link com.auth0.flickr2.service.UserService#getUserFromAuthentication}.
+     */
+    public static class UserSync {
+
+        /**
+         * Time, in seconds, after which a user is synchronized again even though its claims did not change.
+         */
+        private long intervalSeconds = 300;
+
+        /**
+         * Maximum number of users whose last synchronization is remembered.
+         */
+        private int maxEntries = 10000;
+
+        public long getIntervalSeconds() {
+            return intervalSeconds;
+        }
+
+        public void setIntervalSeconds(long intervalSeconds) {
+            this.intervalSeconds = intervalSeconds;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+}
@@ -39,6 +39,45 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * Bounded executor generating the photo derivatives, so that image decoding never competes with the request threads.
+     *
+     * @param applicationProperties the application properties.
+     * @return the photo derivatives executor.
+     */
+    @Bean(name = "photoDerivativeExecutor")
+    public ThreadPoolTaskExecutor photoDerivativeExecutor(ApplicationProperties applicationProperties) {
+        log.debug("Creating Photo Derivative Task Executor");
+        ApplicationProperties.PhotoDerivatives properties = applicationProperties.getPhotoDerivatives();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix(taskExecutionProperties.getThreadNamePrefix() + "photo-derivative-");
+        return executor;
+    }
+
+    /**
+     * Executor storing the images of the bulk uploads and extracting their metadata, one thread per processor by
+     * default. Each bulk upload keeps at most twice as many images in flight as there are threads.
+     *
+     * @param applicationProperties the application properties.
+     * @return the photo bulk upload executor.
+     */
+    @Bean(name = "photoBulkUploadExecutor")
+    public ThreadPoolTaskExecutor photoBulkUploadExecutor(ApplicationProperties applicationProperties) {
+        log.debug("Creating Photo Bulk Upload Task Executor");
+        int threads = applicationProperties.getPhotoUploads().getBulkThreads();
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix(taskExecutionProperties.getThreadNamePrefix() + "photo-bulk-upload-");
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
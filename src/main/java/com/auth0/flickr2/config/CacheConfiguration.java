@@ -22,9 +22,15 @@ public class CacheConfiguration {
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
     private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final javax.cache.configuration.Configuration<Object, Object> userInfoCacheConfiguration;
+    private final javax.cache.configuration.Configuration<Object, Object> jwtCacheConfiguration;
+    private final javax.cache.configuration.Configuration<Object, Object> popularTagsCacheConfiguration;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         JHipsterProperties.Cache.Ehcache ehcache = jHipsterProperties.getCache().getEhcache();
+        ApplicationProperties.UserInfo userInfo = applicationProperties.getUserInfo();
+        ApplicationProperties.JwtCache jwtCache = applicationProperties.getJwtCache();
+        ApplicationProperties.PopularTags popularTags = applicationProperties.getPopularTags();
 
         jcacheConfiguration =
             Eh107Configuration.fromEhcacheCacheConfiguration(
@@ -33,6 +39,27 @@ public class CacheConfiguration {
                     .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ehcache.getTimeToLiveSeconds())))
                     .build()
             );
+        userInfoCacheConfiguration =
+            Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(userInfo.getCacheMaxEntries()))
+                    .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(userInfo.getCacheTimeToLiveSeconds())))
+                    .build()
+            );
+        jwtCacheConfiguration =
+            Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(jwtCache.getMaxEntries()))
+                    .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(jwtCache.getTimeToLiveSeconds())))
+                    .build()
+            );
+        popularTagsCacheConfiguration =
+            Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(popularTags.getMaxSize()))
+                    .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(popularTags.getCacheTimeToLiveSeconds())))
+                    .build()
+            );
     }
 
     @Bean
@@ -53,16 +80,27 @@ public class CacheConfiguration {
             createCache(cm, com.auth0.flickr2.domain.Photo.class.getName() + ".tags");
             createCache(cm, com.auth0.flickr2.domain.Tag.class.getName());
             createCache(cm, com.auth0.flickr2.domain.Tag.class.getName() + ".photos");
+            createCache(cm, com.auth0.flickr2.security.oauth2.CustomClaimConverter.USER_INFO_CACHE, userInfoCacheConfiguration);
+            createCache(cm, com.auth0.flickr2.security.oauth2.CachingJwtDecoder.JWT_CACHE, jwtCacheConfiguration);
+            createCache(cm, com.auth0.flickr2.service.TagPopularityService.POPULAR_TAGS_CACHE, popularTagsCacheConfiguration);
             // jhipster-needle-ehcache-add-entry
         };
     }
 
     private void createCache(javax.cache.CacheManager cm, String cacheName) {
+        createCache(cm, cacheName, jcacheConfiguration);
+    }
+
+    private void createCache(
+        javax.cache.CacheManager cm,
+        String cacheName,
+        javax.cache.configuration.Configuration<Object, Object> configuration
+    ) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache != null) {
             cache.clear();
         } else {
-            cm.createCache(cacheName, jcacheConfiguration);
+            cm.createCache(cacheName, configuration);
         }
     }
 
@@ -12,6 +12,11 @@ import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepo
 @Configuration
 public class OAuth2Configuration {
 
+    /**
+     * Access tokens expiring within this duration are refreshed.
+     */
+    public static final Duration ACCESS_TOKEN_EXPIRES_SKEW = Duration.ofMinutes(1);
+
     @Bean
     public OAuth2AuthorizedClientManager authorizedClientManager(
         ClientRegistrationRepository clientRegistrationRepository,
@@ -26,7 +31,7 @@ public class OAuth2Configuration {
             OAuth2AuthorizedClientProviderBuilder
                 .builder()
                 .authorizationCode()
-                .refreshToken(builder -> builder.clockSkew(Duration.ofMinutes(1)))
+                .refreshToken(builder -> builder.clockSkew(ACCESS_TOKEN_EXPIRES_SKEW))
                 .clientCredentials()
                 .password()
                 .build()
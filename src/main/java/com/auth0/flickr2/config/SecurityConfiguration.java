@@ -3,15 +3,25 @@ package com.auth0.flickr2.config;
 import com.auth0.flickr2.security.*;
 import com.auth0.flickr2.security.SecurityUtils;
 import com.auth0.flickr2.security.oauth2.AudienceValidator;
+import com.auth0.flickr2.security.oauth2.CachingJwtDecoder;
 import com.auth0.flickr2.security.oauth2.CustomClaimConverter;
 import com.auth0.flickr2.security.oauth2.JwtGrantedAuthorityConverter;
+import com.auth0.flickr2.security.oauth2.ManagedJwkSource;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import java.time.Duration;
 import java.util.*;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -20,6 +30,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
@@ -144,18 +155,50 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     }
 
     @Bean
-    JwtDecoder jwtDecoder(ClientRegistrationRepository clientRegistrationRepository, RestTemplateBuilder restTemplateBuilder) {
-        NimbusJwtDecoder jwtDecoder = JwtDecoders.fromOidcIssuerLocation(issuerUri);
+    JwtDecoder jwtDecoder(
+        ClientRegistrationRepository clientRegistrationRepository,
+        CacheManager cacheManager,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry,
+        TaskScheduler taskScheduler
+    ) {
+        ClientRegistration registration = clientRegistrationRepository.findByRegistrationId("oidc");
+        ApplicationProperties.Jwks jwks = applicationProperties.getJwks();
+        ManagedJwkSource jwkSource = new ManagedJwkSource(
+            URI.create(registration.getProviderDetails().getJwkSetUri()),
+            Duration.ofMillis(jwks.getConnectTimeoutMillis()),
+            Duration.ofMillis(jwks.getReadTimeoutMillis()),
+            Duration.ofSeconds(jwks.getRefreshIntervalSeconds()),
+            Duration.ofSeconds(jwks.getMinRefetchIntervalSeconds()),
+            meterRegistry
+        );
+        jwkSource.start(taskScheduler);
+
+        Set<JWSAlgorithm> algorithms = new HashSet<>(JWSAlgorithm.Family.RSA);
+        algorithms.addAll(JWSAlgorithm.Family.EC);
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithms, jwkSource));
+        // the claims are validated by the OAuth2TokenValidator below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {});
+        NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
 
         OAuth2TokenValidator<Jwt> audienceValidator = new AudienceValidator(jHipsterProperties.getSecurity().getOauth2().getAudience());
         OAuth2TokenValidator<Jwt> withIssuer = JwtValidators.createDefaultWithIssuer(issuerUri);
         OAuth2TokenValidator<Jwt> withAudience = new DelegatingOAuth2TokenValidator<>(withIssuer, audienceValidator);
 
         jwtDecoder.setJwtValidator(withAudience);
-        jwtDecoder.setClaimSetConverter(
-            new CustomClaimConverter(clientRegistrationRepository.findByRegistrationId("oidc"), restTemplateBuilder.build())
+        // the claims of the user are added on every request, after the verified token is taken from the cache
+        CustomClaimConverter claimSetConverter = new CustomClaimConverter(
+            registration,
+            Objects.requireNonNull(cacheManager.getCache(CustomClaimConverter.USER_INFO_CACHE)),
+            applicationProperties.getUserInfo()
         );
 
-        return jwtDecoder;
+        return new CachingJwtDecoder(
+            jwtDecoder,
+            claimSetConverter,
+            Objects.requireNonNull(cacheManager.getCache(CachingJwtDecoder.JWT_CACHE)),
+            meterRegistry
+        );
     }
 }
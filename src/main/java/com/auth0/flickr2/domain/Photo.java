@@ -1,6 +1,7 @@
 package com.auth0.flickr2.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.HashSet;
@@ -36,10 +37,26 @@ public class Photo implements Serializable {
     @Column(name = "description")
     private String description;
 
-    @Lob
-    @Column(name = "image", nullable = false)
+    /**
+     * Only accepted on input: the image is kept in the {@link com.auth0.flickr2.repository.BlobStore}
+     * and served by {@code GET /api/photos/:id/content}.
+     */
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private byte[] image;
 
+    /**
+     * Hex-encoded SHA-256 digest of the image, its key in the {@link com.auth0.flickr2.repository.BlobStore}.
+     */
+    @Size(max = 64)
+    @Column(name = "image_sha256", length = 64)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String imageSha256;
+
+    @Column(name = "image_size")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long imageSize;
+
     @NotNull
     @Column(name = "image_content_type", nullable = false)
     private String imageContentType;
@@ -120,6 +137,32 @@ public class Photo implements Serializable {
         this.image = image;
     }
 
+    public String getImageSha256() {
+        return this.imageSha256;
+    }
+
+    public Photo imageSha256(String imageSha256) {
+        this.setImageSha256(imageSha256);
+        return this;
+    }
+
+    public void setImageSha256(String imageSha256) {
+        this.imageSha256 = imageSha256;
+    }
+
+    public Long getImageSize() {
+        return this.imageSize;
+    }
+
+    public Photo imageSize(Long imageSize) {
+        this.setImageSize(imageSize);
+        return this;
+    }
+
+    public void setImageSize(Long imageSize) {
+        this.imageSize = imageSize;
+    }
+
     public String getImageContentType() {
         return this.imageContentType;
     }
@@ -249,7 +292,8 @@ public class Photo implements Serializable {
             "id=" + getId() +
             ", title='" + getTitle() + "'" +
             ", description='" + getDescription() + "'" +
-            ", image='" + getImage() + "'" +
+            ", imageSha256='" + getImageSha256() + "'" +
+            ", imageSize=" + getImageSize() +
             ", imageContentType='" + getImageContentType() + "'" +
             ", height=" + getHeight() +
             ", width=" + getWidth() +
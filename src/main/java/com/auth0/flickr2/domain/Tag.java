@@ -1,8 +1,10 @@
 package com.auth0.flickr2.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.io.Serializable;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -30,6 +32,14 @@ public class Tag implements Serializable {
     @Column(name = "name", nullable = false)
     private String name;
 
+    /**
+     * The name in lower case, indexed for the case-insensitive lookups on every database, expression indexes not being
+     * supported by all of them.
+     */
+    @JsonIgnore
+    @Column(name = "name_lower", nullable = false)
+    private String nameLower;
+
     @ManyToMany(mappedBy = "tags")
     @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JsonIgnoreProperties(value = { "album", "tags" }, allowSetters = true)
@@ -61,6 +71,8 @@ public class Tag implements Serializable {
 
     public void setName(String name) {
         this.name = name;
+        // Lowercase the name before saving it in database, for the case-insensitive lookups
+        this.nameLower = name == null ? null : name.toLowerCase(Locale.ROOT);
     }
 
     public Set<Photo> getPhotos() {
@@ -2,7 +2,10 @@ package com.auth0.flickr2.repository;
 
 import com.auth0.flickr2.domain.Album;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -13,4 +16,10 @@ import org.springframework.stereotype.Repository;
 public interface AlbumRepository extends JpaRepository<Album, Long> {
     @Query("select album from Album album where album.user.login = ?#{principal.preferredUsername}")
     List<Album> findByUserIsCurrentUser();
+
+    @Query("select album from Album album order by album.id desc")
+    Slice<Album> findAllNewestFirst(Pageable pageable);
+
+    @Query("select album from Album album where album.id < :id order by album.id desc")
+    Slice<Album> findAllNewestFirstBefore(@Param("id") Long id, Pageable pageable);
 }
@@ -0,0 +1,115 @@
+package com.auth0.flickr2.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for binary content, such as the photo images.
+ * <p>
+ * Blobs are keyed by the hex-encoded SHA-256 digest of their content, so storing the same content twice
+ * stores it only once. Storing content already stored marks it as stored again, so it is not taken for an orphan
+ * by {@link #findDigestsStoredBefore}.
+ */
+public interface BlobStore {
+    /**
+     * Store the content read from the given stream, unless the same content is already stored, in which case it is
+     * marked as stored now.
+     *
+     * @param content the content to store, read until its end but not closed.
+     * @return the digest and size of the stored content.
+     * @throws IOException if the content couldn't be read or stored.
+     */
+    Blob put(InputStream content) throws IOException;
+
+    /**
+     * Open the content stored under the given digest.
+     *
+     * @param digest the hex-encoded SHA-256 digest of the content.
+     * @return the stream of the content, to be closed by the caller.
+     * @throws java.nio.file.NoSuchFileException if no content is stored under the digest.
+     * @throws IOException if the content couldn't be opened.
+     */
+    InputStream open(String digest) throws IOException;
+
+    /**
+     * Get the local file the content stored under the given digest is kept in, so it can be served
+     * without being copied through the heap.
+     *
+     * @param digest the hex-encoded SHA-256 digest of the content.
+     * @return the file of the content, or empty if it is not stored or not kept in a local file.
+     */
+    default Optional<Path> findLocalFile(String digest) {
+        return Optional.empty();
+    }
+
+    /**
+     * Check whether content is stored under the given digest.
+     *
+     * @param digest the hex-encoded SHA-256 digest of the content.
+     * @return {@code true} if the content is stored.
+     */
+    boolean exists(String digest);
+
+    /**
+     * Delete the content stored under the given digest, if any.
+     *
+     * @param digest the hex-encoded SHA-256 digest of the content.
+     * @throws IOException if the content couldn't be deleted.
+     */
+    void delete(String digest) throws IOException;
+
+    /**
+     * Delete the content stored under the given digest, unless it was stored again since the given instant, even
+     * concurrently with its deletion: content {@link #put} while it is deleted is kept.
+     *
+     * @param digest the hex-encoded SHA-256 digest of the content.
+     * @param instant the instant the content must have been last stored before.
+     * @return {@code true} if the content was deleted, {@code false} if it is not stored or was stored again.
+     * @throws IOException if the content couldn't be deleted.
+     */
+    boolean deleteIfStoredBefore(String digest, Instant instant) throws IOException;
+
+    /**
+     * List the digests of the contents last stored before the given instant.
+     *
+     * @param instant the instant the contents were last stored before.
+     * @return the stream of the digests, to be closed by the caller.
+     * @throws IOException if the contents couldn't be listed.
+     */
+    Stream<String> findDigestsStoredBefore(Instant instant) throws IOException;
+
+    /**
+     * The digest and size of a stored content.
+     */
+    final class Blob implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String digest;
+
+        private final long size;
+
+        public Blob(String digest, long size) {
+            this.digest = digest;
+            this.size = size;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "Blob{" + "digest='" + digest + "'" + ", size=" + size + "}";
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.auth0.flickr2.repository;
+
+import com.auth0.flickr2.config.ApplicationProperties;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+/**
+ * {@link BlobStore} keeping the blobs as files of a local directory.
+ * <p>
+ * A blob is stored at {@code <directory>/ab/cd/abcd...}, the first two bytes of its digest sharding the files
+ * over 65536 sub-directories. Content is first written to a temporary file while being hashed, then atomically
+ * moved to its final location, so a blob is either absent or complete. The last modified time of the file is the
+ * last time the blob was stored.
+ * <p>
+ * A blob is deleted only if it was not stored again since a given instant by first moving its file away to a tombstone,
+ * so a concurrent {@link #put} either marks the file as stored before it is moved, and the tombstone is then restored,
+ * or finds no file and stores the content again.
+ */
+@Repository
+public class LocalBlobStore implements BlobStore {
+
+    private static final Pattern DIGEST_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Logger log = LoggerFactory.getLogger(LocalBlobStore.class);
+
+    private final Path root;
+
+    private final Path tmp;
+
+    public LocalBlobStore(ApplicationProperties applicationProperties) throws IOException {
+        this.root = Paths.get(applicationProperties.getBlobStore().getDirectory()).toAbsolutePath();
+        this.tmp = root.resolve("tmp");
+        Files.createDirectories(tmp);
+        log.debug("Storing blobs in {}", root);
+    }
+
+    @Override
+    public Blob put(InputStream content) throws IOException {
+        MessageDigest sha256 = newSha256();
+        Path temp = Files.createTempFile(tmp, "blob-", ".tmp");
+        try {
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), sha256)) {
+                size = content.transferTo(out);
+            }
+            String digest = toHex(sha256.digest());
+            Path target = resolve(digest);
+            if (touch(target)) {
+                log.debug("Blob {} already stored", digest);
+            } else {
+                Files.createDirectories(target.getParent());
+                move(temp, target);
+            }
+            return new Blob(digest, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String digest) throws IOException {
+        return Files.newInputStream(resolve(digest));
+    }
+
+    @Override
+    public Optional<Path> findLocalFile(String digest) {
+        Path file = resolve(digest);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String digest) {
+        return Files.exists(resolve(digest));
+    }
+
+    @Override
+    public void delete(String digest) throws IOException {
+        Files.deleteIfExists(resolve(digest));
+    }
+
+    @Override
+    public boolean deleteIfStoredBefore(String digest, Instant instant) throws IOException {
+        Path file = resolve(digest);
+        Path tombstone = tmp.resolve(digest + ".deleted");
+        try {
+            Files.move(file, tombstone, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (Files.getLastModifiedTime(tombstone).compareTo(FileTime.from(instant)) < 0) {
+            Files.delete(tombstone);
+            return true;
+        }
+        log.debug("Blob {} was stored again while being deleted, restoring it", digest);
+        try {
+            Files.move(tombstone, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException storedAgain) {
+            // stored again since it was moved, with the same content
+            Files.delete(tombstone);
+        }
+        return false;
+    }
+
+    @Override
+    public Stream<String> findDigestsStoredBefore(Instant instant) throws IOException {
+        FileTime time = FileTime.from(instant);
+        // the blobs are at depth 3, under their two shard directories
+        return Files
+            .find(
+                root,
+                3,
+                (file, attributes) ->
+                    attributes.isRegularFile() &&
+                    attributes.lastModifiedTime().compareTo(time) < 0 &&
+                    DIGEST_PATTERN.matcher(file.getFileName().toString()).matches()
+            )
+            .map(file -> file.getFileName().toString());
+    }
+
+    /**
+     * Resolve the file of the given digest.
+     *
+     * @param digest the hex-encoded SHA-256 digest of the content.
+     * @return the path of the file the content is stored in.
+     */
+    public Path resolve(String digest) {
+        if (digest == null || !DIGEST_PATTERN.matcher(digest).matches()) {
+            throw new IllegalArgumentException("Invalid blob digest: " + digest);
+        }
+        return root.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+    }
+
+    /**
+     * Mark the file of a blob as stored now.
+     *
+     * @return {@code true} if the file exists, {@code false} if it doesn't, or was just swept.
+     */
+    private static boolean touch(Path file) throws IOException {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(source, target);
+            } catch (FileAlreadyExistsException alreadyStored) {
+                // stored concurrently, with the same content
+            }
+        } catch (FileAlreadyExistsException alreadyStored) {
+            // stored concurrently, with the same content
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,342 @@
+package com.auth0.flickr2.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TimeZone;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository for the binary content of the Photo entity: its image and the resized derivatives of it.
+ * <p>
+ * The images are kept in the {@link BlobStore}, under the digest stored in the {@code photo} table, and so are the
+ * derivatives, under the digest stored in the {@code photo_derivative} table. Images not moved yet out of the legacy
+ * {@code photo.image} column are read as streams from the result set, so they are never materialized as a {@code byte[]}.
+ * <p>
+ * A derivative keeps the digest of the image it was generated from, and is only found while the photo still has that
+ * image: one generated from an image replaced meanwhile is never served.
+ */
+@Repository
+public class PhotoContentRepository {
+
+    private static final String SELECT_IMAGE_SQL =
+        "select image_content_type, image_size, image_sha256, uploaded from photo where id = ?";
+
+    private static final String SELECT_LEGACY_IMAGE_SQL =
+        "select image_content_type, octet_length(image), image from photo where id = ? and image is not null";
+
+    /**
+     * Condition of the derivatives, {@code d}, generated from the current image of their photo, {@code p}.
+     */
+    private static final String SAME_SOURCE_CONDITION =
+        "(d.source_sha256 = p.image_sha256 or (d.source_sha256 is null and p.image_sha256 is null))";
+
+    private static final String SELECT_DERIVATIVE_SQL =
+        "select d.content_type, d.image_size, d.image_sha256 from photo_derivative d join photo p on p.id = d.photo_id " +
+        "where d.photo_id = ? and d.long_edge = ? and " +
+        SAME_SOURCE_CONDITION;
+
+    private static final String INSERT_DERIVATIVE_SQL =
+        "insert into photo_derivative " +
+        "(photo_id, long_edge, content_type, width, height, image_sha256, image_size, source_sha256) " +
+        "select id, ?, ?, ?, ?, ?, ?, image_sha256 from photo where ";
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BlobStore blobStore;
+
+    public PhotoContentRepository(JdbcTemplate jdbcTemplate, BlobStore blobStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Stream the image of the "id" photo to the given handler.
+     *
+     * @param id the id of the photo.
+     * @param handler the handler consuming the image, while the result set is still open.
+     * @return {@code true} if the photo was found and handled, {@code false} otherwise.
+     * @throws IOException if the handler failed to consume the image.
+     */
+    public boolean streamImage(Long id, ImageContentHandler handler) throws IOException {
+        Optional<StoredImage> image = findImage(id);
+        if (image.isEmpty()) {
+            return false;
+        }
+        if (image.get().getDigest() == null) {
+            return stream(SELECT_LEGACY_IMAGE_SQL, handler, id);
+        }
+        try (InputStream content = blobStore.open(image.get().getDigest())) {
+            handler.handle(image.get().getContentType(), image.get().getSize(), content);
+        }
+        return true;
+    }
+
+    /**
+     * Get the content type, size, digest and upload date of the image of the "id" photo, without reading the image itself.
+     *
+     * @param id the id of the photo.
+     * @return the stored image, or empty if the photo is not found.
+     */
+    public Optional<StoredImage> findImage(Long id) {
+        List<StoredImage> images = jdbcTemplate.query(
+            SELECT_IMAGE_SQL,
+            (rs, rowNum) -> {
+                // timestamps are stored in UTC, see hibernate.jdbc.time_zone
+                Timestamp uploaded = rs.getTimestamp(4, Calendar.getInstance(UTC));
+                return new StoredImage(rs.getString(1), rs.getLong(2), rs.getString(3), uploaded == null ? null : uploaded.toInstant());
+            },
+            id
+        );
+        return images.stream().findFirst();
+    }
+
+    /**
+     * Get the ids of the photos whose image is still stored in the legacy {@code photo.image} column.
+     *
+     * @param limit the maximum number of ids to return.
+     * @return the ids, in ascending order.
+     */
+    public List<Long> findIdsWithImageInDatabase(int limit) {
+        return jdbcTemplate.queryForList(
+            "select id from photo where image_sha256 is null and image is not null order by id limit ?",
+            Long.class,
+            limit
+        );
+    }
+
+    /**
+     * Move the image of the "id" photo from the legacy {@code photo.image} column to the {@link BlobStore}.
+     *
+     * @param id the id of the photo.
+     * @return {@code true} if the image was moved, {@code false} if it already was.
+     * @throws IOException if the image couldn't be stored.
+     */
+    public boolean moveImageToBlobStore(Long id) throws IOException {
+        BlobStore.Blob[] blob = new BlobStore.Blob[1];
+        stream(SELECT_LEGACY_IMAGE_SQL, (contentType, contentLength, content) -> blob[0] = blobStore.put(content), id);
+        if (blob[0] == null) {
+            return false;
+        }
+        int updated = jdbcTemplate.update(
+            "update photo set image_sha256 = ?, image_size = ?, image = null where id = ? and image_sha256 is null",
+            blob[0].getDigest(),
+            blob[0].getSize(),
+            id
+        );
+        if (updated == 1) {
+            // the derivatives of the image stay valid: it is the same image
+            jdbcTemplate.update(
+                "update photo_derivative set source_sha256 = ? where photo_id = ? and source_sha256 is null",
+                blob[0].getDigest(),
+                id
+            );
+        }
+        return updated == 1;
+    }
+
+    /**
+     * Get the content type, size and digest of the derivative of the "id" photo with the given long edge.
+     *
+     * @param id the id of the photo.
+     * @param longEdge the long edge, in pixels, of the derivative.
+     * @return the stored derivative, without upload date, or empty if it is not stored.
+     */
+    public Optional<StoredImage> findDerivative(Long id, int longEdge) {
+        List<StoredImage> derivatives = jdbcTemplate.query(
+            SELECT_DERIVATIVE_SQL,
+            (rs, rowNum) -> new StoredImage(rs.getString(1), rs.getLong(2), rs.getString(3), null),
+            id,
+            longEdge
+        );
+        return derivatives.stream().findFirst();
+    }
+
+    /**
+     * Get the long edges of the derivatives already stored for the current image of the "id" photo.
+     *
+     * @param id the id of the photo.
+     * @return the long edges, in pixels, of the stored derivatives.
+     */
+    public List<Integer> findDerivativeSizes(Long id) {
+        return jdbcTemplate.queryForList(
+            "select d.long_edge from photo_derivative d join photo p on p.id = d.photo_id where d.photo_id = ? and " +
+            SAME_SOURCE_CONDITION,
+            Integer.class,
+            id
+        );
+    }
+
+    /**
+     * Store a derivative of the "id" photo, if the photo still has the image it was generated from, replacing the one
+     * with the same long edge generated from a previous image. Nothing is stored if the image was replaced meanwhile,
+     * or if the derivative was stored by a concurrent request.
+     *
+     * @param id the id of the photo.
+     * @param sourceDigest the digest of the image the derivative was generated from, {@code null} if it is stored in
+     * the legacy {@code photo.image} column.
+     * @param longEdge the long edge, in pixels, the derivative was generated for.
+     * @param contentType the content type of the derivative.
+     * @param width the width of the derivative.
+     * @param height the height of the derivative.
+     * @param blob the encoded derivative, already put in the {@link BlobStore}.
+     * @return {@code true} if the derivative was stored.
+     */
+    public boolean saveDerivative(
+        Long id,
+        String sourceDigest,
+        int longEdge,
+        String contentType,
+        int width,
+        int height,
+        BlobStore.Blob blob
+    ) {
+        // the photo still has the source image: the condition on the photo row, and its arguments
+        String sourcePhoto = sourceDigest == null ? "id = ? and image_sha256 is null" : "id = ? and image_sha256 = ?";
+        List<Object> sourcePhotoArgs = sourceDigest == null ? List.of(id) : List.of(id, sourceDigest);
+
+        List<Object> deleteArgs = new ArrayList<>(List.of(id, longEdge));
+        if (sourceDigest != null) {
+            deleteArgs.add(sourceDigest);
+        }
+        deleteArgs.addAll(sourcePhotoArgs);
+        jdbcTemplate.update(
+            "delete from photo_derivative where photo_id = ? and long_edge = ? and " +
+            (sourceDigest == null ? "source_sha256 is not null" : "(source_sha256 is null or source_sha256 <> ?)") +
+            " and exists (select 1 from photo where " +
+            sourcePhoto +
+            ")",
+            deleteArgs.toArray()
+        );
+        List<Object> insertArgs = new ArrayList<>(List.of(longEdge, contentType, width, height, blob.getDigest(), blob.getSize()));
+        insertArgs.addAll(sourcePhotoArgs);
+        try {
+            return jdbcTemplate.update(INSERT_DERIVATIVE_SQL + sourcePhoto, insertArgs.toArray()) == 1;
+        } catch (DuplicateKeyException e) {
+            // already generated by a concurrent request
+            return false;
+        }
+    }
+
+    /**
+     * Get the digests, among the given ones, referenced by the image of a photo or by a derivative.
+     *
+     * @param digests the digests to look for.
+     * @return the digests referenced by a photo or a derivative.
+     */
+    public Set<String> findReferencedDigests(Collection<String> digests) {
+        if (digests.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(digests.size(), "?"));
+        List<Object> args = new ArrayList<>(digests);
+        args.addAll(digests);
+        return new HashSet<>(
+            jdbcTemplate.queryForList(
+                "select image_sha256 from photo where image_sha256 in (" +
+                placeholders +
+                ") union select image_sha256 from photo_derivative where image_sha256 in (" +
+                placeholders +
+                ")",
+                String.class,
+                args.toArray()
+            )
+        );
+    }
+
+    /**
+     * Delete all the derivatives of the "id" photo, when its image changed.
+     *
+     * @param id the id of the photo.
+     */
+    public void deleteDerivatives(Long id) {
+        jdbcTemplate.update("delete from photo_derivative where photo_id = ?", id);
+    }
+
+    private boolean stream(String sql, ImageContentHandler handler, Object... args) throws IOException {
+        try {
+            Boolean found = jdbcTemplate.query(
+                sql,
+                rs -> {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    String contentType = rs.getString(1);
+                    long contentLength = rs.getLong(2);
+                    try (InputStream content = rs.getBinaryStream(3)) {
+                        handler.handle(contentType, contentLength, content);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return true;
+                },
+                args
+            );
+            return Boolean.TRUE.equals(found);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The content type, size, {@link BlobStore} digest and upload date of a photo image or derivative.
+     */
+    public static final class StoredImage {
+
+        private final String contentType;
+        private final long size;
+        private final String digest;
+        private final Instant uploaded;
+
+        private StoredImage(String contentType, long size, String digest, Instant uploaded) {
+            this.contentType = contentType;
+            this.size = size;
+            this.digest = digest;
+            this.uploaded = uploaded;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the digest of the image, or {@code null} if it is still stored in the legacy {@code photo.image} column.
+         */
+        public String getDigest() {
+            return digest;
+        }
+
+        /**
+         * @return the upload date of the photo, {@code null} for a derivative.
+         */
+        public Instant getUploaded() {
+            return uploaded;
+        }
+    }
+
+    /**
+     * Callback consuming the binary content of a photo.
+     */
+    @FunctionalInterface
+    public interface ImageContentHandler {
+        void handle(String contentType, long contentLength, InputStream content) throws IOException;
+    }
+}
@@ -1,10 +1,23 @@
 package com.auth0.flickr2.repository;
 
 import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.service.dto.AlbumPhotoCountDTO;
+import com.auth0.flickr2.service.dto.PhotoSummaryDTO;
+import com.auth0.flickr2.service.dto.PhotoTextDTO;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,15 +27,154 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface PhotoRepository extends JpaRepository<Photo, Long> {
-    @Query(
-        value = "select distinct photo from Photo photo left join fetch photo.tags",
-        countQuery = "select count(distinct photo) from Photo photo"
-    )
-    Page<Photo> findAllWithEagerRelationships(Pageable pageable);
+    /**
+     * Select clause building {@link PhotoSummaryDTO}s, so that no LOB column is loaded.
+     */
+    String PHOTO_SUMMARY_SELECT =
+        "select new com.auth0.flickr2.service.dto.PhotoSummaryDTO(" +
+        "photo.id, photo.title, photo.imageContentType, photo.imageSha256, photo.height, photo.width, photo.taken, photo.uploaded, album.id, album.title" +
+        ") from Photo photo left join photo.album album";
+
+    /**
+     * Keyset pagination order: newest photos first, the photos without upload date last.
+     */
+    String NEWEST_FIRST = " order by photo.uploaded desc nulls last, photo.id desc";
+
+    /**
+     * Keyset pagination condition selecting the photos with upload date after the one uploaded at {@code :uploaded} with
+     * id {@code :id}; the photos without upload date are selected by {@link #WITHOUT_UPLOADED_BEFORE_CONDITION} once these
+     * are exhausted. The redundant {@code photo.uploaded <= :uploaded} bound lets the database seek to the cursor in the
+     * {@code (uploaded desc nulls last, id desc)} index instead of filtering its rows from the start.
+     */
+    String UPLOADED_BEFORE_CONDITION =
+        "(photo.uploaded <= :uploaded and (photo.uploaded < :uploaded or (photo.uploaded = :uploaded and photo.id < :id)))";
+
+    String UPLOADED_BEFORE = " where " + UPLOADED_BEFORE_CONDITION;
+
+    /**
+     * Keyset pagination condition selecting the photos after the one without upload date with id {@code :id}.
+     */
+    String WITHOUT_UPLOADED_BEFORE_CONDITION = "(photo.uploaded is null and photo.id < :id)";
+
+    String WITHOUT_UPLOADED_BEFORE = " where " + WITHOUT_UPLOADED_BEFORE_CONDITION;
+
+    /**
+     * Condition selecting the photos of the album with id {@code :albumId}, on the {@code album_id} column only.
+     */
+    String IN_ALBUM = " where photo.album.id = :albumId";
+
+    /**
+     * Get a page of photos with their tags.
+     * <p>
+     * Paginating a fetch join on a collection can't be done by the database, so the page of photo ids is selected
+     * first, then the photos of the page are fetched with their tags: both queries only read the rows of the page.
+     *
+     * @param pageable the pagination information.
+     * @return the page of photos.
+     */
+    default Page<Photo> findAllWithEagerRelationships(Pageable pageable) {
+        Page<Long> ids = findAllIds(pageable);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, ids.getTotalElements());
+        }
+        Map<Long, Photo> photos = findAllWithEagerRelationshipsByIdIn(ids.getContent())
+            .stream()
+            .collect(Collectors.toMap(Photo::getId, Function.identity()));
+        List<Photo> content = ids.getContent().stream().map(photos::get).filter(Objects::nonNull).collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
+    }
+
+    @Query(value = "select photo.id from Photo photo", countQuery = "select count(photo) from Photo photo")
+    Page<Long> findAllIds(Pageable pageable);
+
+    @Query("select distinct photo from Photo photo left join fetch photo.tags where photo.id in :ids")
+    List<Photo> findAllWithEagerRelationshipsByIdIn(@Param("ids") Collection<Long> ids);
 
     @Query("select distinct photo from Photo photo left join fetch photo.tags")
     List<Photo> findAllWithEagerRelationships();
 
     @Query("select photo from Photo photo left join fetch photo.tags where photo.id =:id")
     Optional<Photo> findOneWithEagerRelationships(@Param("id") Long id);
+
+    @Query(value = PHOTO_SUMMARY_SELECT, countQuery = "select count(photo) from Photo photo")
+    Page<PhotoSummaryDTO> findAllSummaries(Pageable pageable);
+
+    @Query("select photo from Photo photo" + NEWEST_FIRST)
+    Slice<Photo> findAllNewestFirst(Pageable pageable);
+
+    @Query("select photo from Photo photo" + UPLOADED_BEFORE + NEWEST_FIRST)
+    Slice<Photo> findAllUploadedBefore(@Param("uploaded") Instant uploaded, @Param("id") Long id, Pageable pageable);
+
+    @Query("select photo from Photo photo" + WITHOUT_UPLOADED_BEFORE + NEWEST_FIRST)
+    Slice<Photo> findAllWithoutUploadedBefore(@Param("id") Long id, Pageable pageable);
+
+    @Query(PHOTO_SUMMARY_SELECT + NEWEST_FIRST)
+    Slice<PhotoSummaryDTO> findAllSummariesNewestFirst(Pageable pageable);
+
+    @Query(PHOTO_SUMMARY_SELECT + UPLOADED_BEFORE + NEWEST_FIRST)
+    Slice<PhotoSummaryDTO> findAllSummariesUploadedBefore(@Param("uploaded") Instant uploaded, @Param("id") Long id, Pageable pageable);
+
+    @Query(PHOTO_SUMMARY_SELECT + WITHOUT_UPLOADED_BEFORE + NEWEST_FIRST)
+    Slice<PhotoSummaryDTO> findAllSummariesWithoutUploadedBefore(@Param("id") Long id, Pageable pageable);
+
+    @Query(PHOTO_SUMMARY_SELECT + IN_ALBUM + NEWEST_FIRST)
+    Slice<PhotoSummaryDTO> findAllSummariesInAlbumNewestFirst(@Param("albumId") Long albumId, Pageable pageable);
+
+    @Query(PHOTO_SUMMARY_SELECT + IN_ALBUM + " and " + UPLOADED_BEFORE_CONDITION + NEWEST_FIRST)
+    Slice<PhotoSummaryDTO> findAllSummariesInAlbumUploadedBefore(
+        @Param("albumId") Long albumId,
+        @Param("uploaded") Instant uploaded,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+
+    @Query(PHOTO_SUMMARY_SELECT + IN_ALBUM + " and " + WITHOUT_UPLOADED_BEFORE_CONDITION + NEWEST_FIRST)
+    Slice<PhotoSummaryDTO> findAllSummariesInAlbumWithoutUploadedBefore(
+        @Param("albumId") Long albumId,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+
+    /**
+     * Count the photos of albums, from the index on {@code album_id}.
+     *
+     * @param albumIds the ids of the albums.
+     * @return the number of photos of each album having photos.
+     */
+    @Query(
+        "select new com.auth0.flickr2.service.dto.AlbumPhotoCountDTO(photo.album.id, count(photo)) from Photo photo" +
+        " where photo.album.id in :albumIds group by photo.album.id"
+    )
+    List<AlbumPhotoCountDTO> countPhotosByAlbumIdIn(@Param("albumIds") Collection<Long> albumIds);
+
+    @Query(PHOTO_SUMMARY_SELECT + " where photo.id in :ids")
+    List<PhotoSummaryDTO> findAllSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Stream the ids of all the photos with the id of each of their tags, read from {@code rel_photo__tag} only.
+     *
+     * @return the {@code [photoId, tagId]} pairs.
+     */
+    @Query("select photo.id, tag.id from Photo photo join photo.tags tag")
+    Stream<Object[]> streamAllPhotoAndTagIds();
+
+    /**
+     * Select clause building {@link PhotoTextDTO}s, the text indexed for full-text search.
+     */
+    String PHOTO_TEXT_SELECT =
+        "select new com.auth0.flickr2.service.dto.PhotoTextDTO(" +
+        "photo.id, photo.title, photo.description, album.title, album.description" +
+        ") from Photo photo left join photo.album album";
+
+    @Query(PHOTO_TEXT_SELECT + " where photo.id in :ids")
+    List<PhotoTextDTO> findAllTextsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(PHOTO_TEXT_SELECT)
+    Stream<PhotoTextDTO> streamAllTexts();
+
+    @Query("select photo.id from Photo photo where photo.id in :ids")
+    List<Long> findAllIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select photo.id from Photo photo where photo.album.id = :albumId")
+    List<Long> findAllIdsByAlbumId(@Param("albumId") Long albumId);
 }
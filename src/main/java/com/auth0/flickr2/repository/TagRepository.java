@@ -1,7 +1,12 @@
 package com.auth0.flickr2.repository;
 
 import com.auth0.flickr2.domain.Tag;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +14,39 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface TagRepository extends JpaRepository<Tag, Long> {}
+public interface TagRepository extends JpaRepository<Tag, Long> {
+    @Query("select tag from Tag tag order by tag.name, tag.id")
+    Slice<Tag> findAllSortedByName(Pageable pageable);
+
+    /**
+     * Get a slice of tags after the one named {@code name} with id {@code id}. The redundant {@code tag.name >= :name}
+     * bound lets the database seek to the cursor in the {@code (name, id)} index.
+     *
+     * @param name the name of the last tag of the previous slice.
+     * @param id the id of the last tag of the previous slice.
+     * @param pageable the pagination information.
+     * @return the slice of tags, sorted by name then id.
+     */
+    @Query(
+        "select tag from Tag tag where tag.name >= :name and (tag.name > :name or (tag.name = :name and tag.id > :id))" +
+        " order by tag.name, tag.id"
+    )
+    Slice<Tag> findAllSortedByNameAfter(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Get the tags with the given names, ignoring case.
+     *
+     * @param names the names, in lower case, see {@link java.util.Locale#ROOT}.
+     * @return the tags.
+     */
+    @Query("select tag from Tag tag where tag.nameLower in :names")
+    List<Tag> findAllByLowerCaseNameIn(@Param("names") Collection<String> names);
+
+    /**
+     * Count the photos of each tag.
+     *
+     * @return the {@code [tagId, photoCount]} pairs of the tags having photos.
+     */
+    @Query("select tag.id, count(photo.id) from Photo photo join photo.tags tag group by tag.id")
+    List<Object[]> countPhotosByTag();
+}
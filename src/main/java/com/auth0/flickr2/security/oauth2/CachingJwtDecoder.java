@@ -0,0 +1,138 @@
+package com.auth0.flickr2.security.oauth2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.cache.Cache;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * {@link JwtDecoder} caching the tokens decoded by its delegate until they expire, so a client sending the same bearer
+ * token on every request has it parsed, verified and validated once.
+ * <p>
+ * Tokens are cached in the {@link #JWT_CACHE} cache, bounded in size, keyed by their SHA-256 digest: the tokens
+ * themselves are never kept. Only valid tokens with an expiration date are cached.
+ * <p>
+ * Only the claims of the token are cached: the claim set converter, such as the {@link CustomClaimConverter} adding the
+ * claims of the user, is applied on every request. The claims it adds are kept up to date by its own cache, and a token
+ * converted without them, when the user couldn't be retrieved in time, doesn't stay without them until it expires.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    public static final String JWT_CACHE = "oAuth2Jwt";
+
+    private final JwtDecoder delegate;
+
+    private final Converter<Map<String, Object>, Map<String, Object>> claimSetConverter;
+
+    private final Cache jwts;
+
+    private final Clock clock;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Timer decodeTimer;
+
+    public CachingJwtDecoder(
+        JwtDecoder delegate,
+        Converter<Map<String, Object>, Map<String, Object>> claimSetConverter,
+        Cache jwts,
+        MeterRegistry meterRegistry
+    ) {
+        this(delegate, claimSetConverter, jwts, meterRegistry, Clock.systemUTC());
+    }
+
+    public CachingJwtDecoder(
+        JwtDecoder delegate,
+        Converter<Map<String, Object>, Map<String, Object>> claimSetConverter,
+        Cache jwts,
+        MeterRegistry meterRegistry,
+        Clock clock
+    ) {
+        this.delegate = delegate;
+        this.claimSetConverter = claimSetConverter;
+        this.jwts = jwts;
+        this.clock = clock;
+        this.hits =
+            Counter.builder("security.jwt.cache.requests").tag("result", "hit").description("Bearer tokens found in the cache").register(meterRegistry);
+        this.misses =
+            Counter
+                .builder("security.jwt.cache.requests")
+                .tag("result", "miss")
+                .description("Bearer tokens decoded because they were not in the cache")
+                .register(meterRegistry);
+        this.decodeTimer =
+            Timer
+                .builder("security.jwt.decode")
+                .description("Time spent parsing, verifying the signature of and validating a bearer token")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        return convert(verify(token));
+    }
+
+    /**
+     * Get the token verified and validated by the delegate, from the cache if it was already.
+     */
+    private Jwt verify(String token) {
+        String key = digest(token);
+        Jwt cached = jwts.get(key, Jwt.class);
+        if (cached != null) {
+            if (isUnexpired(cached)) {
+                hits.increment();
+                return cached;
+            }
+            jwts.evict(key);
+        }
+        misses.increment();
+        long start = System.nanoTime();
+        Jwt jwt;
+        try {
+            jwt = delegate.decode(token);
+        } finally {
+            decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (isUnexpired(jwt)) {
+            jwts.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    private Jwt convert(Jwt jwt) {
+        Map<String, Object> claims = claimSetConverter.convert(jwt.getClaims());
+        return Jwt
+            .withTokenValue(jwt.getTokenValue())
+            .headers(headers -> headers.putAll(jwt.getHeaders()))
+            .claims(converted -> converted.putAll(claims))
+            .build();
+    }
+
+    private boolean isUnexpired(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        return expiresAt != null && clock.instant().isBefore(expiresAt);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -1,46 +1,107 @@
 package com.auth0.flickr2.security.oauth2;
 
+import com.auth0.flickr2.config.ApplicationProperties;
 import com.auth0.flickr2.security.SecurityUtils;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
 import org.springframework.core.convert.converter.Converter;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
 import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
  * Claim converter to add custom claims by retrieving the user from the userinfo endpoint.
+ * <p>
+ * Users are cached by subject in the {@link #USER_INFO_CACHE} cache, bounded in size and time. Once older than the
+ * refresh interval, a cached user is still used while it is retrieved again in the background, so profile changes
+ * are picked up without ever making a request wait for the OAuth provider.
+ * <p>
+ * The userinfo endpoint is called with a non-blocking HTTP client, with connect and read timeouts, behind a
+ * {@link CircuitBreaker}. Concurrent requests of the same user share a single call. A request of a user missing from
+ * the cache waits at most for the timeouts: if the user can't be retrieved in time, only the claims of the JWT are used.
  */
 public class CustomClaimConverter implements Converter<Map<String, Object>, Map<String, Object>> {
 
+    public static final String USER_INFO_CACHE = "oAuth2UserInfo";
+
+    private final Logger log = LoggerFactory.getLogger(CustomClaimConverter.class);
+
     private final BearerTokenResolver bearerTokenResolver = new DefaultBearerTokenResolver();
 
     private final MappedJwtClaimSetConverter delegate = MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
 
-    private final RestTemplate restTemplate;
+    private final ObjectMapper mapper = new ObjectMapper();
 
     private final ClientRegistration registration;
 
-    private final Map<String, ObjectNode> users = new HashMap<>();
+    private final Cache users;
+
+    private final HttpClient httpClient;
+
+    private final Duration readTimeout;
+
+    private final Duration missTimeout;
+
+    private final Duration refreshAfter;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Clock clock;
+
+    private final ConcurrentMap<String, CompletableFuture<ObjectNode>> inFlight = new ConcurrentHashMap<>();
 
-    public CustomClaimConverter(ClientRegistration registration, RestTemplate restTemplate) {
+    public CustomClaimConverter(ClientRegistration registration, Cache users, ApplicationProperties.UserInfo properties) {
+        this(registration, users, properties, Clock.systemUTC());
+    }
+
+    public CustomClaimConverter(ClientRegistration registration, Cache users, ApplicationProperties.UserInfo properties, Clock clock) {
+        Duration connectTimeout = Duration.ofMillis(properties.getConnectTimeoutMillis());
         this.registration = registration;
-        this.restTemplate = restTemplate;
+        this.users = users;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(connectTimeout).proxy(ProxySelector.getDefault()).build();
+        this.readTimeout = Duration.ofMillis(properties.getReadTimeoutMillis());
+        this.missTimeout = connectTimeout.plus(readTimeout);
+        this.refreshAfter = Duration.ofSeconds(properties.getRefreshAfterSeconds());
+        this.circuitBreaker =
+            new CircuitBreaker(
+                properties.getCircuitBreakerFailureThreshold(),
+                Duration.ofSeconds(properties.getCircuitBreakerOpenSeconds()),
+                clock
+            );
+        this.clock = clock;
     }
 
     public Map<String, Object> convert(Map<String, Object> claims) {
@@ -53,22 +114,9 @@ public class CustomClaimConverter implements Converter<Map<String, Object>, Map<
             String token = bearerTokenResolver.resolve(
                 ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest()
             );
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", buildBearer(token));
 
             // Retrieve user infos from OAuth provider if not already loaded
-            ObjectNode user = users.computeIfAbsent(
-                claims.get("sub").toString(),
-                s -> {
-                    ResponseEntity<ObjectNode> userInfo = restTemplate.exchange(
-                        registration.getProviderDetails().getUserInfoEndpoint().getUri(),
-                        HttpMethod.GET,
-                        new HttpEntity<String>(headers),
-                        ObjectNode.class
-                    );
-                    return userInfo.getBody();
-                }
-            );
+            ObjectNode user = getUser(claims.get("sub").toString(), token);
 
             // Add custom claims
             if (user != null) {
@@ -109,7 +157,109 @@ public class CustomClaimConverter implements Converter<Map<String, Object>, Map<
         return convertedClaims;
     }
 
+    /**
+     * Get the user from the cache, refreshing it in the background if it is old, or from the userinfo endpoint.
+     *
+     * @return the user, or {@code null} if it is not cached and couldn't be retrieved in time.
+     */
+    private ObjectNode getUser(String sub, String token) {
+        CachedUser cached = users.get(sub, CachedUser.class);
+        if (cached != null) {
+            if (clock.instant().isAfter(cached.retrieved.plus(refreshAfter))) {
+                log.debug("Refreshing user {} in the background", sub);
+                retrieveUser(sub, token);
+            }
+            return cached.user;
+        }
+        try {
+            return retrieveUser(sub, token).get(missTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("User {} could not be retrieved from the userinfo endpoint, using the JWT claims only: {}", sub, e.toString());
+        }
+        return null;
+    }
+
+    /**
+     * Call the userinfo endpoint, caching the user once retrieved. Concurrent calls for the same user share the same future.
+     */
+    private CompletableFuture<ObjectNode> retrieveUser(String sub, String token) {
+        CompletableFuture<ObjectNode> future = new CompletableFuture<>();
+        CompletableFuture<ObjectNode> existing = inFlight.putIfAbsent(sub, future);
+        if (existing != null) {
+            return existing;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            inFlight.remove(sub, future);
+            future.completeExceptionally(new IllegalStateException("Userinfo endpoint circuit breaker is open"));
+            return future;
+        }
+        HttpRequest request = HttpRequest
+            .newBuilder(URI.create(registration.getProviderDetails().getUserInfoEndpoint().getUri()))
+            .timeout(readTimeout)
+            .header(HttpHeaders.AUTHORIZATION, buildBearer(token))
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+            .GET()
+            .build();
+        httpClient
+            .sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> {
+                if (response.statusCode() >= 500) {
+                    throw new IllegalStateException("Userinfo endpoint responded with status " + response.statusCode());
+                }
+                if (response.statusCode() != 200) {
+                    throw new IllegalArgumentException("Userinfo endpoint rejected the token with status " + response.statusCode());
+                }
+                JsonNode user;
+                try {
+                    user = mapper.readTree(response.body());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (!(user instanceof ObjectNode)) {
+                    throw new IllegalStateException("Userinfo endpoint responded with no user");
+                }
+                return (ObjectNode) user;
+            })
+            .whenComplete((user, error) -> {
+                inFlight.remove(sub, future);
+                // the outcome is recorded once the response is parsed: the endpoint is up if it returned a user, or
+                // rejected the token, and is failing if the call or the parsing of its response failed
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (error == null || cause instanceof IllegalArgumentException) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+                if (error == null) {
+                    users.put(sub, new CachedUser(user, clock.instant()));
+                    future.complete(user);
+                } else {
+                    future.completeExceptionally(error);
+                }
+            });
+        return future;
+    }
+
     private String buildBearer(String token) {
         return "Bearer " + token;
     }
+
+    /**
+     * A user retrieved from the userinfo endpoint, with the date it was retrieved at.
+     */
+    private static final class CachedUser implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ObjectNode user;
+
+        private final Instant retrieved;
+
+        private CachedUser(ObjectNode user, Instant retrieved) {
+            this.user = user;
+            this.retrieved = retrieved;
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package com.auth0.flickr2.security.oauth2;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * {@link JWKSource} keeping the JSON Web Key set of the OAuth provider in memory, so no request waits for it.
+ * <p>
+ * The key set is fetched when the source is {@link #start(TaskScheduler) started}, then refreshed in the background
+ * at a fixed interval; the previous keys are kept if a refresh fails. A token signed with a key of unknown id, as happens
+ * right after the keys are rotated, makes the key set be fetched again, at most once per minimum refetch interval.
+ */
+public class ManagedJwkSource implements JWKSource<SecurityContext> {
+
+    private final Logger log = LoggerFactory.getLogger(ManagedJwkSource.class);
+
+    private final URI jwkSetUri;
+
+    private final HttpClient httpClient;
+
+    private final Duration readTimeout;
+
+    private final Duration refreshInterval;
+
+    private final Duration minRefetchInterval;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter limitedRefetches;
+
+    private final Object fetchLock = new Object();
+
+    private volatile JWKSet jwkSet = new JWKSet();
+
+    // guarded by fetchLock
+    private Instant lastFetch;
+
+    public ManagedJwkSource(
+        URI jwkSetUri,
+        Duration connectTimeout,
+        Duration readTimeout,
+        Duration refreshInterval,
+        Duration minRefetchInterval,
+        MeterRegistry meterRegistry
+    ) {
+        this.jwkSetUri = jwkSetUri;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(connectTimeout).proxy(ProxySelector.getDefault()).build();
+        this.readTimeout = readTimeout;
+        this.refreshInterval = refreshInterval;
+        this.minRefetchInterval = minRefetchInterval;
+        this.meterRegistry = meterRegistry;
+        this.limitedRefetches =
+            Counter
+                .builder("security.jwks.refetch.limited")
+                .description("JWK set fetches for an unknown key id skipped because the set was just fetched")
+                .register(meterRegistry);
+        Gauge.builder("security.jwks.keys", this, source -> source.jwkSet.getKeys().size()).description("Number of keys in the JWK set").register(meterRegistry);
+    }
+
+    /**
+     * Fetch the key set, and schedule its refresh.
+     *
+     * @param taskScheduler the scheduler running the refreshes.
+     */
+    public void start(TaskScheduler taskScheduler) {
+        refresh();
+        taskScheduler.scheduleWithFixedDelay(this::refresh, Instant.now().plus(refreshInterval), refreshInterval);
+    }
+
+    /**
+     * Fetch the key set again, keeping the current one if it can't be fetched.
+     */
+    public void refresh() {
+        synchronized (fetchLock) {
+            fetch("refresh");
+        }
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        JWKSet current = jwkSet;
+        List<JWK> keys = jwkSelector.select(current);
+        if (!keys.isEmpty()) {
+            return keys;
+        }
+        synchronized (fetchLock) {
+            if (jwkSet != current) {
+                // fetched by a concurrent request meanwhile
+                return jwkSelector.select(jwkSet);
+            }
+            if (lastFetch != null && Instant.now().isBefore(lastFetch.plus(minRefetchInterval))) {
+                log.debug("No matching key in the JWK set fetched at {}, not fetching it again yet", lastFetch);
+                limitedRefetches.increment();
+                return keys;
+            }
+            fetch("unknown-key");
+        }
+        return jwkSelector.select(jwkSet);
+    }
+
+    private void fetch(String reason) {
+        lastFetch = Instant.now();
+        HttpRequest request = HttpRequest
+            .newBuilder(jwkSetUri)
+            .timeout(readTimeout)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+            .GET()
+            .build();
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                log.warn("JWK set could not be fetched from {}: status {}", jwkSetUri, response.statusCode());
+                return;
+            }
+            jwkSet = JWKSet.parse(response.body());
+            outcome = "success";
+            log.debug("Fetched {} keys from {}", jwkSet.getKeys().size(), jwkSetUri);
+        } catch (IOException | ParseException e) {
+            log.warn("JWK set could not be fetched from {}: {}", jwkSetUri, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Timer
+                .builder("security.jwks.fetch")
+                .description("Time spent fetching the JWK set")
+                .tag("reason", reason)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
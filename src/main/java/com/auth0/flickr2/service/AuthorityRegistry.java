@@ -0,0 +1,136 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.domain.Authority;
+import com.auth0.flickr2.repository.AuthorityRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service keeping the names of the authorities in memory, so checking or listing them does not query the database.
+ * <p>
+ * The authorities are loaded once the application is ready, or on first use, and the set is replaced, never modified,
+ * when an authority is added. New authorities are saved in their own transaction: one saved meanwhile by another
+ * instance of the application is considered as existing. Authorities added or removed by other instances are picked up
+ * by {@link #reload()}, which runs periodically.
+ */
+@Service
+public class AuthorityRegistry {
+
+    private final Logger log = LoggerFactory.getLogger(AuthorityRegistry.class);
+
+    private final AuthorityRepository authorityRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Object lock = new Object();
+
+    private volatile SortedSet<String> authorities;
+
+    public AuthorityRegistry(AuthorityRepository authorityRepository, PlatformTransactionManager transactionManager) {
+        this.authorityRepository = authorityRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // the authorities are left unloaded, and are loaded on first use instead
+            log.warn("Authorities could not be loaded once the application was ready: {}", e.toString());
+        }
+    }
+
+    /**
+     * Load the authorities from the database again.
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void reload() {
+        synchronized (lock) {
+            SortedSet<String> loaded = new TreeSet<>();
+            authorityRepository.findAll().forEach(authority -> loaded.add(authority.getName()));
+            authorities = Collections.unmodifiableSortedSet(loaded);
+            log.debug("Loaded {} authorities", loaded.size());
+        }
+    }
+
+    /**
+     * Gets the names of all the authorities, in alphabetical order.
+     *
+     * @return the names of all the authorities.
+     */
+    public List<String> getAuthorities() {
+        return new ArrayList<>(authorities());
+    }
+
+    /**
+     * Check whether an authority exists.
+     *
+     * @param name the name of the authority.
+     * @return {@code true} if the authority exists.
+     */
+    public boolean contains(String name) {
+        return authorities().contains(name);
+    }
+
+    /**
+     * Save the authorities that do not exist yet.
+     *
+     * @param names the names of the authorities.
+     */
+    public void register(Collection<String> names) {
+        if (authorities().containsAll(names)) {
+            return;
+        }
+        synchronized (lock) {
+            SortedSet<String> updated = new TreeSet<>(authorities);
+            for (String name : names) {
+                if (updated.add(name)) {
+                    save(name);
+                }
+            }
+            authorities = Collections.unmodifiableSortedSet(updated);
+        }
+    }
+
+    private void save(String name) {
+        log.debug("Saving authority '{}' in local database", name);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Authority authority = new Authority();
+                authority.setName(name);
+                authorityRepository.saveAndFlush(authority);
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Authority '{}' was saved concurrently", name);
+        }
+    }
+
+    private SortedSet<String> authorities() {
+        SortedSet<String> current = authorities;
+        if (current == null) {
+            synchronized (lock) {
+                if (authorities == null) {
+                    reload();
+                }
+                current = authorities;
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,100 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.config.ApplicationProperties;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.repository.PhotoContentRepository;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service deleting the blobs no photo image nor derivative references anymore, such as the image of a deleted photo.
+ * <p>
+ * It runs every night. Only the blobs last stored before a grace period are swept, so the blob of an upload whose
+ * transaction is not committed yet is kept: storing a blob again marks it as stored, see {@link BlobStore#put}. The
+ * references to the other blobs are looked up in batches, in {@code photo.image_sha256} and
+ * {@code photo_derivative.image_sha256}. A blob stored again after its references were looked up, by an upload that
+ * may commit a reference to it, is still kept: it is deleted only if it was not stored since the grace period, see
+ * {@link BlobStore#deleteIfStoredBefore}.
+ */
+@Service
+public class BlobSweepService {
+
+    private final Logger log = LoggerFactory.getLogger(BlobSweepService.class);
+
+    private final BlobStore blobStore;
+
+    private final PhotoContentRepository photoContentRepository;
+
+    private final Duration gracePeriod;
+
+    private final int batchSize;
+
+    public BlobSweepService(
+        BlobStore blobStore,
+        PhotoContentRepository photoContentRepository,
+        ApplicationProperties applicationProperties
+    ) {
+        this.blobStore = blobStore;
+        this.photoContentRepository = photoContentRepository;
+        this.gracePeriod = Duration.ofHours(applicationProperties.getBlobStore().getOrphanGracePeriodHours());
+        this.batchSize = applicationProperties.getBlobStore().getSweepBatchSize();
+    }
+
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void onSchedule() {
+        try {
+            int deleted = sweepOrphans();
+            if (deleted > 0) {
+                log.info("Deleted {} orphan blobs from the blob store", deleted);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Orphan blobs could not be swept: {}", e.toString());
+        }
+    }
+
+    /**
+     * Delete the blobs last stored before the grace period and referenced by no photo image nor derivative.
+     *
+     * @return the number of blobs deleted.
+     * @throws IOException if the blobs couldn't be listed or deleted.
+     */
+    public int sweepOrphans() throws IOException {
+        int deleted = 0;
+        Instant storedBefore = Instant.now().minus(gracePeriod);
+        try (Stream<String> digests = blobStore.findDigestsStoredBefore(storedBefore)) {
+            Iterator<String> iterator = digests.iterator();
+            List<String> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    deleted += deleteOrphans(batch, storedBefore);
+                    batch.clear();
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private int deleteOrphans(List<String> digests, Instant storedBefore) throws IOException {
+        Set<String> referenced = photoContentRepository.findReferencedDigests(digests);
+        int deleted = 0;
+        for (String digest : digests) {
+            // kept if stored again since the references were looked up, by an upload that may reference it once committed
+            if (!referenced.contains(digest) && blobStore.deleteIfStoredBefore(digest, storedBefore)) {
+                log.debug("Deleted orphan blob {}", digest);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+}
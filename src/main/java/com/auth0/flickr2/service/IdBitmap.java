@@ -0,0 +1,328 @@
+package com.auth0.flickr2.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed set of ids, in the manner of a Roaring bitmap.
+ * <p>
+ * The ids are split in chunks of 65536 consecutive values, sharing their high bits. Each chunk only stores the low 16
+ * bits of its ids: as a sorted array while it holds few ids, or as a bitmap once it holds more than
+ * {@value #ARRAY_MAX_SIZE} of them, so both sparse and dense sets stay small. Intersections and unions work chunk by
+ * chunk, skipping the chunks missing from either side.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class IdBitmap {
+
+    /**
+     * Maximum number of ids of a chunk stored as an array: above, the 8 KB bitmap is smaller.
+     */
+    static final int ARRAY_MAX_SIZE = 4096;
+
+    private static final int CHUNK_BITS = 16;
+
+    private static final long LOW_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final TreeMap<Long, Chunk> chunks = new TreeMap<>();
+
+    /**
+     * Add an id.
+     *
+     * @param id the id.
+     */
+    public void add(long id) {
+        chunks.computeIfAbsent(id >>> CHUNK_BITS, high -> new Chunk()).add((int) (id & LOW_MASK));
+    }
+
+    /**
+     * Remove an id.
+     *
+     * @param id the id.
+     */
+    public void remove(long id) {
+        Long high = id >>> CHUNK_BITS;
+        Chunk chunk = chunks.get(high);
+        if (chunk != null) {
+            chunk.remove((int) (id & LOW_MASK));
+            if (chunk.isEmpty()) {
+                chunks.remove(high);
+            }
+        }
+    }
+
+    public boolean contains(long id) {
+        Chunk chunk = chunks.get(id >>> CHUNK_BITS);
+        return chunk != null && chunk.contains((int) (id & LOW_MASK));
+    }
+
+    public boolean isEmpty() {
+        return chunks.isEmpty();
+    }
+
+    /**
+     * @return the number of ids.
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (Chunk chunk : chunks.values()) {
+            cardinality += chunk.cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return a copy of this bitmap.
+     */
+    public IdBitmap copy() {
+        IdBitmap copy = new IdBitmap();
+        chunks.forEach((high, chunk) -> copy.chunks.put(high, chunk.copy()));
+        return copy;
+    }
+
+    /**
+     * Keep only the ids also in another bitmap.
+     *
+     * @param other the other bitmap.
+     */
+    public void and(IdBitmap other) {
+        chunks
+            .entrySet()
+            .removeIf(entry -> {
+                Chunk otherChunk = other.chunks.get(entry.getKey());
+                if (otherChunk == null) {
+                    return true;
+                }
+                entry.getValue().and(otherChunk);
+                return entry.getValue().isEmpty();
+            });
+    }
+
+    /**
+     * Add the ids of another bitmap.
+     *
+     * @param other the other bitmap.
+     */
+    public void or(IdBitmap other) {
+        other.chunks.forEach((high, otherChunk) -> {
+            Chunk chunk = chunks.get(high);
+            if (chunk == null) {
+                chunks.put(high, otherChunk.copy());
+            } else {
+                chunk.or(otherChunk);
+            }
+        });
+    }
+
+    /**
+     * Get a range of the ids, in descending order.
+     *
+     * @param offset the number of greatest ids to skip.
+     * @param limit the maximum number of ids.
+     * @return the ids.
+     */
+    public List<Long> descending(long offset, int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, ARRAY_MAX_SIZE));
+        long skipped = 0;
+        for (Map.Entry<Long, Chunk> entry : chunks.descendingMap().entrySet()) {
+            Chunk chunk = entry.getValue();
+            int cardinality = chunk.cardinality();
+            if (skipped + cardinality <= offset) {
+                skipped += cardinality;
+                continue;
+            }
+            long base = entry.getKey() << CHUNK_BITS;
+            for (int low = chunk.last(); low >= 0 && ids.size() < limit; low = chunk.previous(low - 1)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    ids.add(base | low);
+                }
+            }
+            if (ids.size() == limit) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return "IdBitmap{cardinality=" + cardinality() + ", chunks=" + chunks.size() + "}";
+    }
+
+    /**
+     * The low 16 bits of the ids of a chunk: a sorted array while {@link #bits} is {@code null}, a bitmap otherwise.
+     */
+    private static final class Chunk {
+
+        private char[] array;
+
+        private int size;
+
+        private BitSet bits;
+
+        private Chunk() {
+            this.array = new char[4];
+        }
+
+        private Chunk(char[] array, int size, BitSet bits) {
+            this.array = array;
+            this.size = size;
+            this.bits = bits;
+        }
+
+        private boolean isEmpty() {
+            return cardinality() == 0;
+        }
+
+        private int cardinality() {
+            return bits == null ? size : bits.cardinality();
+        }
+
+        private boolean contains(int low) {
+            return bits == null ? Arrays.binarySearch(array, 0, size, (char) low) >= 0 : bits.get(low);
+        }
+
+        private void add(int low) {
+            if (bits != null) {
+                bits.set(low);
+                return;
+            }
+            int index = Arrays.binarySearch(array, 0, size, (char) low);
+            if (index >= 0) {
+                return;
+            }
+            if (size == ARRAY_MAX_SIZE) {
+                bits = toBits();
+                bits.set(low);
+                array = null;
+                size = 0;
+                return;
+            }
+            index = -index - 1;
+            if (size == array.length) {
+                array = Arrays.copyOf(array, Math.min(Math.max(array.length * 2, 4), ARRAY_MAX_SIZE));
+            }
+            System.arraycopy(array, index, array, index + 1, size - index);
+            array[index] = (char) low;
+            size++;
+        }
+
+        private void remove(int low) {
+            if (bits != null) {
+                bits.clear(low);
+                compact();
+                return;
+            }
+            int index = Arrays.binarySearch(array, 0, size, (char) low);
+            if (index >= 0) {
+                System.arraycopy(array, index + 1, array, index, size - index - 1);
+                size--;
+            }
+        }
+
+        private void and(Chunk other) {
+            if (bits != null && other.bits != null) {
+                bits.and(other.bits);
+                compact();
+                return;
+            }
+            Chunk source = bits == null ? this : other;
+            Chunk filter = bits == null ? other : this;
+            char[] result = new char[source.size];
+            int count = 0;
+            for (int i = 0; i < source.size; i++) {
+                if (filter.contains(source.array[i])) {
+                    result[count++] = source.array[i];
+                }
+            }
+            array = result;
+            size = count;
+            bits = null;
+        }
+
+        private void or(Chunk other) {
+            if (bits == null && other.bits == null && size + other.size <= ARRAY_MAX_SIZE) {
+                char[] result = new char[size + other.size];
+                int count = 0;
+                int i = 0;
+                int j = 0;
+                while (i < size || j < other.size) {
+                    if (j == other.size || (i < size && array[i] < other.array[j])) {
+                        result[count++] = array[i++];
+                    } else if (i == size || other.array[j] < array[i]) {
+                        result[count++] = other.array[j++];
+                    } else {
+                        result[count++] = array[i++];
+                        j++;
+                    }
+                }
+                array = result;
+                size = count;
+                return;
+            }
+            if (bits == null) {
+                bits = toBits();
+                array = null;
+                size = 0;
+            }
+            if (other.bits != null) {
+                bits.or(other.bits);
+            } else {
+                for (int i = 0; i < other.size; i++) {
+                    bits.set(other.array[i]);
+                }
+            }
+        }
+
+        private int last() {
+            return bits == null ? array[size - 1] : bits.length() - 1;
+        }
+
+        private int previous(int low) {
+            if (low < 0) {
+                return -1;
+            }
+            if (bits != null) {
+                return bits.previousSetBit(low);
+            }
+            int index = Arrays.binarySearch(array, 0, size, (char) low);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index < 0 ? -1 : array[index];
+        }
+
+        private Chunk copy() {
+            return bits == null ? new Chunk(Arrays.copyOf(array, Math.max(size, 1)), size, null) : new Chunk(null, 0, (BitSet) bits.clone());
+        }
+
+        private BitSet toBits() {
+            BitSet result = new BitSet(1 << CHUNK_BITS);
+            for (int i = 0; i < size; i++) {
+                result.set(array[i]);
+            }
+            return result;
+        }
+
+        /**
+         * Go back to an array when the bitmap holds few enough ids.
+         */
+        private void compact() {
+            int cardinality = bits.cardinality();
+            if (cardinality <= ARRAY_MAX_SIZE) {
+                array = new char[Math.max(cardinality, 1)];
+                size = 0;
+                for (int low = bits.nextSetBit(0); low >= 0; low = bits.nextSetBit(low + 1)) {
+                    array[size++] = (char) low;
+                }
+                bits = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.auth0.flickr2.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * The content types the photo images are stored and served with.
+ * <p>
+ * The content type of an image is declared by the client uploading it. Only the raster image types are kept: any other
+ * type, such as {@code text/html} or {@code image/svg+xml}, could run scripts once served from the origin of the
+ * application, so its images are stored and served as {@code application/octet-stream}.
+ */
+public final class ImageContentTypes {
+
+    private static final Set<String> RASTER_IMAGE_TYPES = Set.of(
+        "image/apng",
+        "image/avif",
+        "image/bmp",
+        "image/gif",
+        "image/heic",
+        "image/heif",
+        "image/jpeg",
+        "image/jpg",
+        "image/pjpeg",
+        "image/png",
+        "image/tiff",
+        "image/webp",
+        "image/x-ms-bmp"
+    );
+
+    private static final Map<String, String> FILE_EXTENSIONS = Map.of(
+        "image/jpeg",
+        ".jpg",
+        "image/pjpeg",
+        ".jpg",
+        "image/x-ms-bmp",
+        ".bmp"
+    );
+
+    private ImageContentTypes() {}
+
+    /**
+     * Get the content type an image declared with the given one is stored and served with.
+     *
+     * @param contentType the declared content type, {@code null} if none.
+     * @return the raster image type, without its parameters, or {@code application/octet-stream} for any other type.
+     */
+    public static String safeContentType(String contentType) {
+        if (contentType == null) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            String type = (mediaType.getType() + "/" + mediaType.getSubtype()).toLowerCase(Locale.ROOT);
+            return RASTER_IMAGE_TYPES.contains(type) ? type : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+
+    /**
+     * Get the file name extension of a content type returned by {@link #safeContentType}.
+     *
+     * @param safeContentType the content type.
+     * @return the extension, with its dot, or an empty string for {@code application/octet-stream}.
+     */
+    public static String fileExtension(String safeContentType) {
+        if (!RASTER_IMAGE_TYPES.contains(safeContentType)) {
+            return "";
+        }
+        return FILE_EXTENSIONS.getOrDefault(safeContentType, "." + safeContentType.substring("image/".length()));
+    }
+}
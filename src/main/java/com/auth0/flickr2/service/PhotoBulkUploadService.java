@@ -0,0 +1,267 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.domain.Album;
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.repository.AlbumRepository;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.service.dto.PhotoBulkUploadResultDTO;
+import com.drew.imaging.ImageProcessingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service creating many photos at once from their images.
+ * <p>
+ * The images are stored in the {@link BlobStore} and their metadata extracted in parallel, on the
+ * {@code photoBulkUploadExecutor}. As they complete, the photos are saved by batches of
+ * {@code hibernate.jdbc.batch_size}, each in its own transaction, so their ids come from a single sequence fetch and
+ * they are inserted with a single JDBC batch. The outcome of each image is reported once known: its error as soon as it
+ * fails, its id once its batch is committed. A batch which couldn't be saved fails its photos, not the others; a batch
+ * which was committed creates its photos, even if a change made once it was committed failed.
+ */
+@Service
+public class PhotoBulkUploadService {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoBulkUploadService.class);
+
+    private final PhotoService photoService;
+
+    private final AlbumRepository albumRepository;
+
+    private final PhotoMetadataExtractor photoMetadataExtractor;
+
+    private final BlobStore blobStore;
+
+    private final Validator validator;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    public PhotoBulkUploadService(
+        PhotoService photoService,
+        AlbumRepository albumRepository,
+        PhotoMetadataExtractor photoMetadataExtractor,
+        BlobStore blobStore,
+        Validator validator,
+        @Qualifier("photoBulkUploadExecutor") ThreadPoolTaskExecutor executor,
+        PlatformTransactionManager transactionManager,
+        @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:25}") int batchSize
+    ) {
+        this.photoService = photoService;
+        this.albumRepository = albumRepository;
+        this.photoMetadataExtractor = photoMetadataExtractor;
+        this.blobStore = blobStore;
+        this.validator = validator;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Create a photo from each image.
+     *
+     * @param images the images, their file name being the title of their photo.
+     * @param albumId the id of the album of the photos, {@code null} for none.
+     * @param results the consumer of the outcome of each image, called from the current thread, in completion order.
+     * @throws InterruptedException if the current thread was interrupted while waiting for an image.
+     */
+    public void upload(List<Image> images, Long albumId, Consumer<PhotoBulkUploadResultDTO> results) throws InterruptedException {
+        log.debug("Request to upload {} photos in album : {}", images.size(), albumId);
+        CompletionService<Prepared> completionService = new ExecutorCompletionService<>(executor);
+        int inFlight = Math.max(executor.getMaxPoolSize(), 1) * 2;
+        int submitted = 0;
+        for (; submitted < images.size() && submitted < inFlight; submitted++) {
+            submit(completionService, images.get(submitted), submitted);
+        }
+        List<Prepared> batch = new ArrayList<>(batchSize);
+        for (int completed = 0; completed < images.size(); completed++) {
+            Prepared prepared;
+            try {
+                prepared = completionService.take().get();
+            } catch (ExecutionException e) {
+                // prepare reports its own failures
+                throw new IllegalStateException(e.getCause());
+            }
+            if (submitted < images.size()) {
+                submit(completionService, images.get(submitted), submitted);
+                submitted++;
+            }
+            if (prepared.failure != null) {
+                results.accept(prepared.failure);
+                continue;
+            }
+            batch.add(prepared);
+            if (batch.size() == batchSize) {
+                save(batch, albumId, results);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            save(batch, albumId, results);
+        }
+    }
+
+    private void submit(CompletionService<Prepared> completionService, Image image, int index) {
+        completionService.submit(() -> prepare(image, index));
+    }
+
+    /**
+     * Store an image and read its metadata, as {@code POST /api/photos} does.
+     */
+    private Prepared prepare(Image image, int index) {
+        Photo photo = new Photo()
+            .title(image.getFileName())
+            .imageContentType(image.getContentType() != null ? image.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        Set<ConstraintViolation<Photo>> violations = validator.validate(photo);
+        if (!violations.isEmpty()) {
+            String error = violations
+                .stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .collect(Collectors.joining(", "));
+            return new Prepared(index, image, null, failure(index, image, HttpStatus.BAD_REQUEST, error));
+        }
+        try {
+            BlobStore.Blob blob;
+            try (InputStream content = image.getContent().getInputStream()) {
+                blob = blobStore.put(content);
+            }
+            if (blob.getSize() == 0) {
+                return new Prepared(index, image, null, failure(index, image, HttpStatus.BAD_REQUEST, "An image is required"));
+            }
+            photo.setImageSha256(blob.getDigest());
+            photo.setImageSize(blob.getSize());
+            photo.setUploaded(Instant.now());
+            try (InputStream content = blobStore.open(blob.getDigest())) {
+                photoMetadataExtractor.setMetadata(photo, content);
+            } catch (ImageProcessingException ipe) {
+                log.error(ipe.getMessage());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Couldn't store the image {} of a bulk upload: {}", index, e.getMessage());
+            return new Prepared(index, image, null, failure(index, image, HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage()));
+        }
+        return new Prepared(index, image, photo, null);
+    }
+
+    private void save(List<Prepared> batch, Long albumId, Consumer<PhotoBulkUploadResultDTO> results) {
+        AtomicBoolean committed = new AtomicBoolean();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            committed.set(true);
+                        }
+                    }
+                );
+                Album album = albumId != null ? albumRepository.getById(albumId) : null;
+                photoService.createAll(batch.stream().map(prepared -> prepared.photo.album(album)).collect(Collectors.toList()));
+            });
+        } catch (RuntimeException e) {
+            if (!committed.get()) {
+                log.error("Couldn't save a batch of {} photos of a bulk upload: {}", batch.size(), e.getMessage());
+                for (Prepared prepared : batch) {
+                    results.accept(failure(prepared.index, prepared.image, HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage()));
+                }
+                return;
+            }
+            // the photos are saved, only a change made once the batch was committed failed
+            log.warn("Couldn't complete the commit of a batch of {} photos of a bulk upload: {}", batch.size(), e.toString());
+        }
+        for (Prepared prepared : batch) {
+            results.accept(
+                new PhotoBulkUploadResultDTO(
+                    prepared.index,
+                    prepared.image.getFileName(),
+                    HttpStatus.CREATED.value(),
+                    prepared.photo.getId(),
+                    null
+                )
+            );
+        }
+    }
+
+    private static PhotoBulkUploadResultDTO failure(int index, Image image, HttpStatus status, String error) {
+        return new PhotoBulkUploadResultDTO(index, image.getFileName(), status.value(), null, error);
+    }
+
+    /**
+     * An image of a bulk upload.
+     */
+    public static final class Image {
+
+        private final String fileName;
+
+        private final String contentType;
+
+        private final InputStreamSource content;
+
+        public Image(String fileName, String contentType, InputStreamSource content) {
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public InputStreamSource getContent() {
+            return content;
+        }
+    }
+
+    /**
+     * An image stored, with its photo ready to be saved, or its failure.
+     */
+    private static final class Prepared {
+
+        private final int index;
+
+        private final Image image;
+
+        private final Photo photo;
+
+        private final PhotoBulkUploadResultDTO failure;
+
+        private Prepared(int index, Image image, Photo photo, PhotoBulkUploadResultDTO failure) {
+            this.index = index;
+            this.image = image;
+            this.photo = photo;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.config.ApplicationProperties;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.repository.PhotoContentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service generating and serving the resized copies ("derivatives") of the photo images.
+ * <p>
+ * Derivatives are generated for a fixed set of long edge sizes, on the bounded {@code photoDerivativeExecutor}:
+ * eagerly once a photo is created, and lazily the first time a missing one is requested. They are kept in the
+ * {@link BlobStore}, like the images, with the digest of the image they were generated from: the derivatives of an
+ * image replaced while they were generated are not stored. Images larger than the configured number of pixels are not
+ * decoded.
+ */
+@Service
+public class PhotoDerivativeService {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoDerivativeService.class);
+
+    private final PhotoContentRepository photoContentRepository;
+
+    private final BlobStore blobStore;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final Set<Integer> sizes;
+
+    private final long timeoutSeconds;
+
+    private final long maxPixels;
+
+    /**
+     * Generations in progress, by photo id and digest of the image they are generated from.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    private final Timer queueTimer;
+
+    private final Timer generationTimer;
+
+    public PhotoDerivativeService(
+        PhotoContentRepository photoContentRepository,
+        BlobStore blobStore,
+        @Qualifier("photoDerivativeExecutor") ThreadPoolTaskExecutor executor,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.photoContentRepository = photoContentRepository;
+        this.blobStore = blobStore;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.sizes = new HashSet<>(applicationProperties.getPhotoDerivatives().getSizes());
+        this.timeoutSeconds = applicationProperties.getPhotoDerivatives().getTimeoutSeconds();
+        this.maxPixels = applicationProperties.getPhotoDerivatives().getMaxPixels();
+
+        Gauge
+            .builder("photo.derivatives.queue.size", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+            .description("Number of photos waiting for their derivatives to be generated")
+            .register(meterRegistry);
+        Gauge
+            .builder("photo.derivatives.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+            .description("Number of photos whose derivatives are being generated")
+            .register(meterRegistry);
+        this.queueTimer =
+            Timer
+                .builder("photo.derivatives.queue.wait")
+                .description("Time spent by a photo waiting for its derivatives to be generated")
+                .register(meterRegistry);
+        this.generationTimer =
+            Timer
+                .builder("photo.derivatives.generation")
+                .description("Time spent generating the derivatives of a photo")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Check whether derivatives are generated for the given long edge.
+     *
+     * @param size the long edge, in pixels.
+     * @return {@code true} if the size is one of the configured derivative sizes.
+     */
+    public boolean isSupportedSize(int size) {
+        return sizes.contains(size);
+    }
+
+    /**
+     * Enqueue the generation of the derivatives of the "id" photo, once the current transaction is committed.
+     *
+     * @param id the id of the photo.
+     */
+    public void scheduleDerivatives(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        generateDerivatives(id);
+                    }
+                }
+            );
+        } else {
+            generateDerivatives(id);
+        }
+    }
+
+    /**
+     * Make sure the derivative of the "id" photo is stored, generating it first if it is missing.
+     *
+     * @param id the id of the photo.
+     * @param size the long edge, in pixels, of the derivative.
+     * @return {@code true} if the derivative is stored, {@code false} if it couldn't be generated in time.
+     */
+    public boolean ensureDerivative(Long id, int size) {
+        if (photoContentRepository.findDerivativeSizes(id).contains(size)) {
+            return true;
+        }
+        log.debug("Derivative {} of Photo {} is missing, generating it", size, id);
+        try {
+            generateDerivatives(id).get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Derivatives of Photo {} could not be generated in time: {}", id, e.toString());
+            return false;
+        }
+        return photoContentRepository.findDerivativeSizes(id).contains(size);
+    }
+
+    /**
+     * Generate the missing derivatives of the current image of the "id" photo on the derivatives executor.
+     * Concurrent calls for the same image share the same generation.
+     *
+     * @param id the id of the photo.
+     * @return the future completed once the derivatives are stored.
+     */
+    public CompletableFuture<Void> generateDerivatives(Long id) {
+        Optional<PhotoContentRepository.StoredImage> image = photoContentRepository.findImage(id);
+        if (image.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String sourceDigest = image.get().getDigest();
+        String key = id + ":" + sourceDigest;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    generationTimer.record(() -> generate(id, sourceDigest));
+                    inFlight.remove(key, future);
+                    future.complete(null);
+                } catch (RuntimeException e) {
+                    log.error("Derivatives of Photo {} could not be generated", id, e);
+                    inFlight.remove(key, future);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Derivatives queue is full, Photo {} derivatives will be generated on first request", id);
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Generate the missing derivatives of the "id" photo from its image with the given digest, {@code null} for an image
+     * still stored in the legacy {@code photo.image} column.
+     */
+    private void generate(Long id, String sourceDigest) {
+        List<Integer> missingSizes = new ArrayList<>(sizes);
+        missingSizes.removeAll(photoContentRepository.findDerivativeSizes(id));
+        if (missingSizes.isEmpty()) {
+            return;
+        }
+        List<Derivative> derivatives;
+        try {
+            if (sourceDigest != null) {
+                try (InputStream content = blobStore.open(sourceDigest)) {
+                    derivatives = resize(id, content, missingSizes);
+                }
+            } else {
+                derivatives =
+                    readOnlyTransactionTemplate.execute(status -> {
+                        List<Derivative> resized = new ArrayList<>();
+                        try {
+                            photoContentRepository.streamImage(
+                                id,
+                                (contentType, contentLength, content) -> resized.addAll(resize(id, content, missingSizes))
+                            );
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return resized;
+                    });
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Photo " + id + " image could not be read", e);
+        }
+        int stored = 0;
+        for (Derivative derivative : derivatives) {
+            BlobStore.Blob blob;
+            try {
+                blob = blobStore.put(new ByteArrayInputStream(derivative.data));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Photo " + id + " derivative could not be stored", e);
+            }
+            // one transaction per derivative, so a concurrent insert of the same one doesn't abort the others
+            Boolean saved = transactionTemplate.execute(status ->
+                photoContentRepository.saveDerivative(
+                    id,
+                    sourceDigest,
+                    derivative.longEdge,
+                    derivative.contentType,
+                    derivative.width,
+                    derivative.height,
+                    blob
+                )
+            );
+            if (Boolean.TRUE.equals(saved)) {
+                stored++;
+            }
+        }
+        log.debug("Generated {} derivatives of Photo {}, {} stored", derivatives.size(), id, stored);
+    }
+
+    /**
+     * Decode the image, unless it has more than {@link #maxPixels} pixels, and resize it to each of the given sizes.
+     *
+     * @return the derivatives, none if the image can't be decoded or is too large.
+     */
+    private List<Derivative> resize(Long id, InputStream content, List<Integer> longEdges) throws IOException {
+        List<Derivative> derivatives = new ArrayList<>();
+        try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                log.debug("Photo {} image can't be decoded, no derivative generated", id);
+                return derivatives;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // the dimensions are read from the header, before the pixels are decoded
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Photo {} image has {} pixels, more than {}: no derivative generated", id, pixels, maxPixels);
+                    return derivatives;
+                }
+                BufferedImage image = reader.read(0);
+                for (int longEdge : longEdges) {
+                    derivatives.add(resize(image, longEdge));
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+        return derivatives;
+    }
+
+    /**
+     * Scale the image down so that its long edge is at most {@code size} pixels, halving it step by step for quality.
+     */
+    private static Derivative resize(BufferedImage image, int size) throws IOException {
+        double scale = Math.min(1d, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        boolean alpha = image.getColorModel().hasAlpha();
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (current.getWidth() != width || current.getHeight() != height);
+
+        String format = alpha ? "png" : "jpeg";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(current, format, out);
+        return new Derivative(size, "image/" + format, width, height, out.toByteArray());
+    }
+
+    private static final class Derivative {
+
+        private final int longEdge;
+        private final String contentType;
+        private final int width;
+        private final int height;
+        private final byte[] data;
+
+        private Derivative(int longEdge, String contentType, int width, int height, byte[] data) {
+            this.longEdge = longEdge;
+            this.contentType = contentType;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+    }
+}
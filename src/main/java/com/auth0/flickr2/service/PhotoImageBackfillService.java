@@ -0,0 +1,88 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.config.ApplicationProperties;
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.repository.PhotoContentRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service moving the photo images still stored in the legacy {@code photo.image} column to the
+ * {@link com.auth0.flickr2.repository.BlobStore}.
+ * <p>
+ * It runs in the background once the application is ready, in small transactions, so the photos stay
+ * available while they are moved: their image is served from the database until it is.
+ */
+@Service
+public class PhotoImageBackfillService {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoImageBackfillService.class);
+
+    private final PhotoContentRepository photoContentRepository;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    public PhotoImageBackfillService(
+        PhotoContentRepository photoContentRepository,
+        EntityManagerFactory entityManagerFactory,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.photoContentRepository = photoContentRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = applicationProperties.getBlobStore().getBackfillBatchSize();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        int moved = backfillImages();
+        if (moved > 0) {
+            log.info("Moved {} photo images from the database to the blob store", moved);
+        }
+    }
+
+    /**
+     * Move all the images still stored in the database to the blob store.
+     *
+     * @return the number of images moved.
+     */
+    public int backfillImages() {
+        int moved = 0;
+        List<Long> ids;
+        do {
+            ids = photoContentRepository.findIdsWithImageInDatabase(batchSize);
+            for (Long id : ids) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> moveImage(id)))) {
+                    // the cached entity still has no digest
+                    entityManagerFactory.getCache().evict(Photo.class, id);
+                    moved++;
+                }
+            }
+        } while (ids.size() == batchSize);
+        return moved;
+    }
+
+    private boolean moveImage(Long id) {
+        try {
+            return photoContentRepository.moveImageToBlobStore(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Photo " + id + " image could not be moved to the blob store", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.domain.Photo;
+import com.drew.imaging.FileType;
+import com.drew.imaging.FileTypeDetector;
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.ImageProcessingException;
+import com.drew.imaging.jpeg.JpegMetadataReader;
+import com.drew.imaging.jpeg.JpegSegmentMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.MetadataException;
+import com.drew.metadata.exif.ExifReader;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.drew.metadata.jpeg.JpegDirectory;
+import com.drew.metadata.jpeg.JpegReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service extracting the metadata of the photo images: the date they were taken and their dimensions.
+ * <p>
+ * For JPEG images, only the EXIF and frame header segments are parsed: reading stops at the start of the
+ * compressed image data, and the other segments are skipped without being buffered.
+ */
+@Service
+public class PhotoMetadataExtractor {
+
+    private static final List<JpegSegmentMetadataReader> JPEG_READERS = List.of(new JpegReader(), new ExifReader());
+
+    private final Logger log = LoggerFactory.getLogger(PhotoMetadataExtractor.class);
+
+    /**
+     * Extract the metadata of an image.
+     *
+     * @param content the stream of the image, positioned at its start; it is not closed.
+     * @return the metadata of the image.
+     * @throws ImageProcessingException if the format of the image is not supported.
+     * @throws IOException if the image couldn't be read.
+     */
+    public ImageMetadata extract(InputStream content) throws ImageProcessingException, IOException {
+        BufferedInputStream in = content instanceof BufferedInputStream ? (BufferedInputStream) content : new BufferedInputStream(content);
+        Metadata metadata = FileTypeDetector.detectFileType(in) == FileType.Jpeg
+            ? JpegMetadataReader.readMetadata(in, JPEG_READERS)
+            : ImageMetadataReader.readMetadata(in);
+
+        Instant taken = null;
+        ExifSubIFDDirectory exifDirectory = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+        if (exifDirectory != null) {
+            Date date = exifDirectory.getDateDigitized();
+            if (date != null) {
+                taken = date.toInstant();
+            }
+        }
+
+        Integer width = null;
+        Integer height = null;
+        JpegDirectory jpegDirectory = metadata.getFirstDirectoryOfType(JpegDirectory.class);
+        if (jpegDirectory != null) {
+            try {
+                width = jpegDirectory.getImageWidth();
+                height = jpegDirectory.getImageHeight();
+            } catch (MetadataException e) {
+                log.debug("JPEG image dimensions not available: {}", e.getMessage());
+            }
+        }
+        return new ImageMetadata(taken, width, height);
+    }
+
+    /**
+     * Set the date the photo was taken, its upload date and its dimensions from the metadata of its image.
+     * The date taken defaults to now when the image has none.
+     *
+     * @param photo the photo to update.
+     * @param content the stream of the image of the photo; it is not closed.
+     * @throws ImageProcessingException if the format of the image is not supported.
+     * @throws IOException if the image couldn't be read.
+     */
+    public void setMetadata(Photo photo, InputStream content) throws ImageProcessingException, IOException {
+        ImageMetadata metadata = extract(content);
+        if (metadata.getTaken() != null) {
+            photo.setTaken(metadata.getTaken());
+        }
+
+        if (photo.getTaken() == null) {
+            log.debug("Photo EXIF date digitized not available, setting taken on date to now...");
+            photo.setTaken(Instant.now());
+        }
+
+        photo.setUploaded(Instant.now());
+
+        if (metadata.getHeight() != null) {
+            photo.setHeight(metadata.getHeight());
+            photo.setWidth(metadata.getWidth());
+        }
+    }
+
+    /**
+     * The metadata of an image, each of them {@code null} when not available.
+     */
+    public static final class ImageMetadata {
+
+        private final Instant taken;
+
+        private final Integer width;
+
+        private final Integer height;
+
+        public ImageMetadata(Instant taken, Integer width, Integer height) {
+            this.taken = taken;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * @return the date the image was digitized, from its EXIF metadata.
+         */
+        public Instant getTaken() {
+            return taken;
+        }
+
+        public Integer getWidth() {
+            return width;
+        }
+
+        public Integer getHeight() {
+            return height;
+        }
+    }
+}
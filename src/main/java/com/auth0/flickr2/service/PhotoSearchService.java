@@ -0,0 +1,453 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.config.ApplicationProperties;
+import com.auth0.flickr2.repository.PhotoRepository;
+import com.auth0.flickr2.service.dto.PhotoSearchHitDTO;
+import com.auth0.flickr2.service.dto.PhotoSummaryDTO;
+import com.auth0.flickr2.service.dto.PhotoTextDTO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Service indexing the titles and descriptions of the photos, and of their albums, in an embedded Lucene index, and
+ * searching them.
+ * <p>
+ * The index is updated once the transactions changing a photo or an album are committed, reading the text of the photos
+ * back from the database, and is searchable right away; it is committed to disk every minute and on shutdown. It is
+ * built by {@link #reindexAll()} when empty, once the application is ready, and again by {@link #reindexIfPending()} if
+ * that or an update failed. Searches only read the index for the ids and the highlights of the matching photos, then
+ * select the metadata of the photos of the page. The matches are only counted up to {@link #MAX_COUNTED_HITS}, so the
+ * search of a frequent word can skip the documents that can't make the page, and pages can't go beyond
+ * {@link #MAX_RESULT_WINDOW} matches.
+ */
+@Service
+public class PhotoSearchService {
+
+    static final String ID = "id";
+
+    static final String TITLE = "title";
+
+    static final String DESCRIPTION = "description";
+
+    static final String ALBUM_TITLE = "albumTitle";
+
+    static final String ALBUM_DESCRIPTION = "albumDescription";
+
+    private static final String[] FIELDS = { TITLE, DESCRIPTION, ALBUM_TITLE, ALBUM_DESCRIPTION };
+
+    private static final Map<String, Float> BOOSTS = Map.of(TITLE, 4f, DESCRIPTION, 2f, ALBUM_TITLE, 1.5f, ALBUM_DESCRIPTION, 1f);
+
+    /**
+     * Number of matches counted exactly: when a search has more, its total is a lower bound.
+     */
+    public static final int MAX_COUNTED_HITS = 1000;
+
+    /**
+     * Number of matches pages can reach, as each search ranks all the matches up to the end of its page.
+     */
+    public static final int MAX_RESULT_WINDOW = 1000;
+
+    private static final int BATCH_SIZE = 500;
+
+    private final Logger log = LoggerFactory.getLogger(PhotoSearchService.class);
+
+    private final PhotoRepository photoRepository;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final TransactionTemplate afterCommitTransactionTemplate;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private final Directory directory;
+
+    private final IndexWriter indexWriter;
+
+    private final SearcherManager searcherManager;
+
+    // whether the index could not be built once the application was ready
+    private volatile boolean reindexPending;
+
+    public PhotoSearchService(
+        PhotoRepository photoRepository,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.photoRepository = photoRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        // the transactional resources of the committed transaction are still bound, see TransactionSynchronization#afterCommit
+        this.afterCommitTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.afterCommitTransactionTemplate.setReadOnly(true);
+        this.afterCommitTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        String path = applicationProperties.getPhotoSearch().getDirectory();
+        try {
+            this.directory = StringUtils.hasText(path) ? FSDirectory.open(Paths.get(path)) : new ByteBuffersDirectory();
+            this.indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+            this.searcherManager = new SearcherManager(indexWriter, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (indexWriter.getDocStats().numDocs == 0) {
+            try {
+                reindexAll();
+            } catch (RuntimeException e) {
+                // the photos indexed so far are searchable, the others are indexed by the next scheduled attempt
+                reindexPending = true;
+                log.warn("Photo search index could not be built once the application was ready: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Search the photos.
+     *
+     * @param text the text to search, in the Lucene query syntax; it is searched as is if it is not a valid query.
+     * @param pageable the pagination information, its sort is ignored: the best matches come first.
+     * @return the page of matching photos, with the exact number of matches up to {@link #MAX_COUNTED_HITS}, and a lower
+     * bound of it from there.
+     * @throws IllegalArgumentException if the page goes beyond {@link #MAX_RESULT_WINDOW} matches.
+     */
+    public Page<PhotoSearchHitDTO> search(String text, Pageable pageable) {
+        if (pageable.getOffset() + pageable.getPageSize() > MAX_RESULT_WINDOW) {
+            throw new IllegalArgumentException("Page goes beyond the first " + MAX_RESULT_WINDOW + " matches");
+        }
+        if (!StringUtils.hasText(text)) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+        Query query = parse(text);
+        Map<Long, Map<String, String>> highlightsById = new LinkedHashMap<>();
+        long total;
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int numHits = (int) (pageable.getOffset() + pageable.getPageSize());
+                TopScoreDocCollector collector = TopScoreDocCollector.create(numHits, MAX_COUNTED_HITS);
+                searcher.search(query, collector);
+                TopDocs topDocs = collector.topDocs((int) pageable.getOffset(), pageable.getPageSize());
+                // a lower bound once more than MAX_COUNTED_HITS matches were found
+                total = topDocs.totalHits.value;
+                Map<String, String[]> highlights = highlighter(searcher)
+                    .highlightFields(FIELDS, query, topDocs, new int[] { 1, 2, 1, 1 });
+                for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    Map<String, String> hitHighlights = new LinkedHashMap<>();
+                    for (String field : FIELDS) {
+                        String highlight = highlights.get(field)[i];
+                        // without a match, the highlighter gives the beginning of the field
+                        if (highlight != null && highlight.contains("<em>")) {
+                            hitHighlights.put(field, highlight);
+                        }
+                    }
+                    highlightsById.put(Long.valueOf(searcher.doc(scoreDoc.doc).get(ID)), hitHighlights);
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<PhotoSearchHitDTO> hits = new ArrayList<>();
+        if (!highlightsById.isEmpty()) {
+            Map<Long, PhotoSummaryDTO> photos = new HashMap<>();
+            readOnlyTransactionTemplate.executeWithoutResult(status ->
+                photoRepository.findAllSummariesByIdIn(highlightsById.keySet()).forEach(photo -> photos.put(photo.getId(), photo))
+            );
+            highlightsById.forEach((id, highlights) -> {
+                PhotoSummaryDTO photo = photos.get(id);
+                if (photo != null) {
+                    hits.add(new PhotoSearchHitDTO(photo, highlights));
+                }
+            });
+        }
+        return new PageImpl<>(hits, pageable, total);
+    }
+
+    /**
+     * Index a photo again, once the current transaction is committed.
+     *
+     * @param id the id of the photo.
+     */
+    public void indexPhoto(Long id) {
+        afterCommit(() -> index(List.of(id)));
+    }
+
+    /**
+     * Index photos again, once the current transaction is committed.
+     *
+     * @param ids the ids of the photos.
+     */
+    public void indexPhotos(Collection<Long> ids) {
+        List<Long> indexed = List.copyOf(ids);
+        afterCommit(() -> index(indexed));
+    }
+
+    /**
+     * Index the photos of an album again, once the current transaction is committed.
+     *
+     * @param albumId the id of the album.
+     */
+    public void indexAlbum(Long albumId) {
+        afterCommit(() -> index(afterCommitTransactionTemplate.execute(status -> photoRepository.findAllIdsByAlbumId(albumId))));
+    }
+
+    /**
+     * Remove a photo from the index, once the current transaction is committed.
+     *
+     * @param id the id of the photo.
+     */
+    public void removePhoto(Long id) {
+        afterCommit(() -> {
+            try {
+                indexWriter.deleteDocuments(new Term(ID, id.toString()));
+                searcherManager.maybeRefresh();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Start {@link #reindexAll()} in the background.
+     */
+    @Async
+    public void reindexAllAsync() {
+        reindexAll();
+    }
+
+    /**
+     * Index all the photos again, and remove the photos which do not exist anymore.
+     * <p>
+     * The photos are replaced one by one, so searches are served from the existing index meanwhile.
+     *
+     * @return the number of indexed photos.
+     */
+    public int reindexAll() {
+        log.info("Reindexing the photos");
+        IdBitmap indexedIds = new IdBitmap();
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<PhotoTextDTO> photos = photoRepository.streamAllTexts()) {
+                    photos.forEach(photo -> {
+                        update(photo);
+                        indexedIds.add(photo.getId());
+                    });
+                }
+            });
+            removeStaleDocuments(indexedIds);
+            searcherManager.maybeRefreshBlocking();
+            indexWriter.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Reindexed {} photos", indexedIds.cardinality());
+        return indexedIds.cardinality();
+    }
+
+    /**
+     * Build the index if it could not be built once the application was ready, or updated once a transaction was committed.
+     */
+    @Scheduled(cron = "30 * * * * ?")
+    public void reindexIfPending() {
+        if (reindexPending) {
+            // cleared first, so an update failing during the reindex is retried by the next one
+            reindexPending = false;
+            try {
+                reindexAll();
+            } catch (RuntimeException e) {
+                reindexPending = true;
+                log.warn("Photo search index could not be built: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Commit the changes of the index to disk.
+     */
+    @Scheduled(cron = "0 * * * * ?")
+    public void commit() {
+        if (indexWriter.hasUncommittedChanges()) {
+            try {
+                indexWriter.commit();
+            } catch (IOException e) {
+                log.warn("Could not commit the photo search index: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    private Query parse(String text) {
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(FIELDS, analyzer, BOOSTS);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            return parser.parse(text);
+        } catch (ParseException e) {
+            try {
+                return parser.parse(QueryParser.escape(text));
+            } catch (ParseException escaped) {
+                throw new IllegalArgumentException("Invalid search: " + text, escaped);
+            }
+        }
+    }
+
+    private UnifiedHighlighter highlighter(IndexSearcher searcher) {
+        UnifiedHighlighter highlighter = new UnifiedHighlighter(searcher, analyzer);
+        highlighter.setFormatter(new DefaultPassageFormatter("<em>", "</em>", "... ", true));
+        return highlighter;
+    }
+
+    private void index(Collection<Long> ids) {
+        try {
+            List<Long> remaining = new ArrayList<>(ids);
+            for (int from = 0; from < remaining.size(); from += BATCH_SIZE) {
+                List<Long> batch = remaining.subList(from, Math.min(from + BATCH_SIZE, remaining.size()));
+                List<PhotoTextDTO> photos = afterCommitTransactionTemplate.execute(status -> photoRepository.findAllTextsByIdIn(batch));
+                for (PhotoTextDTO photo : photos) {
+                    update(photo);
+                }
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void update(PhotoTextDTO photo) {
+        Document document = new Document();
+        document.add(new StringField(ID, photo.getId().toString(), Field.Store.YES));
+        document.add(new NumericDocValuesField(ID, photo.getId()));
+        addText(document, TITLE, photo.getTitle());
+        addText(document, DESCRIPTION, photo.getDescription());
+        addText(document, ALBUM_TITLE, photo.getAlbumTitle());
+        addText(document, ALBUM_DESCRIPTION, photo.getAlbumDescription());
+        try {
+            indexWriter.updateDocument(new Term(ID, photo.getId().toString()), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addText(Document document, String field, String text) {
+        if (text != null) {
+            document.add(new TextField(field, text, Field.Store.YES));
+        }
+    }
+
+    /**
+     * Remove the documents of the photos which were not indexed, unless they were created meanwhile.
+     */
+    private void removeStaleDocuments(IdBitmap indexedIds) throws IOException {
+        List<Long> staleIds = new ArrayList<>();
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                NumericDocValues ids = DocValues.getNumeric(leaf.reader(), ID);
+                for (int doc = ids.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = ids.nextDoc()) {
+                    if ((liveDocs == null || liveDocs.get(doc)) && !indexedIds.contains(ids.longValue())) {
+                        staleIds.add(ids.longValue());
+                    }
+                }
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        for (int from = 0; from < staleIds.size(); from += BATCH_SIZE) {
+            List<Long> batch = staleIds.subList(from, Math.min(from + BATCH_SIZE, staleIds.size()));
+            List<Long> created = readOnlyTransactionTemplate.execute(status -> photoRepository.findAllIdsByIdIn(batch));
+            for (Long id : batch) {
+                if (!created.contains(id)) {
+                    indexWriter.deleteDocuments(new Term(ID, id.toString()));
+                }
+            }
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        try {
+                            change.run();
+                        } catch (RuntimeException e) {
+                            // the transaction is committed whatever the index, which is built again by the next attempt
+                            reindexPending = true;
+                            log.warn("Photo search index could not be updated once the transaction was committed: {}", e.toString());
+                        }
+                    }
+                }
+            );
+        } else {
+            change.run();
+        }
+    }
+}
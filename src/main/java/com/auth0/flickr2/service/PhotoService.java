@@ -0,0 +1,131 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.domain.Tag;
+import com.auth0.flickr2.repository.PhotoContentRepository;
+import com.auth0.flickr2.repository.PhotoRepository;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service class for saving and deleting photos.
+ * <p>
+ * Besides the photo itself, it keeps what is derived from it up to date: the derivatives of its image, the
+ * {@link PhotoTagIndex}, the {@link PhotoSearchService} index and the {@link TagPopularityService} counters. Those are
+ * only changed once the transaction saving or deleting the photo is committed, so they must be requested within it.
+ * <p>
+ * The content type of the images is restricted to the raster image types, see {@link ImageContentTypes}.
+ */
+@Service
+@Transactional
+public class PhotoService {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoService.class);
+
+    private final PhotoRepository photoRepository;
+
+    private final PhotoContentRepository photoContentRepository;
+
+    private final PhotoDerivativeService photoDerivativeService;
+
+    private final PhotoTagIndex photoTagIndex;
+
+    private final PhotoSearchService photoSearchService;
+
+    private final TagPopularityService tagPopularityService;
+
+    public PhotoService(
+        PhotoRepository photoRepository,
+        PhotoContentRepository photoContentRepository,
+        PhotoDerivativeService photoDerivativeService,
+        PhotoTagIndex photoTagIndex,
+        PhotoSearchService photoSearchService,
+        TagPopularityService tagPopularityService
+    ) {
+        this.photoRepository = photoRepository;
+        this.photoContentRepository = photoContentRepository;
+        this.photoDerivativeService = photoDerivativeService;
+        this.photoTagIndex = photoTagIndex;
+        this.photoSearchService = photoSearchService;
+        this.tagPopularityService = tagPopularityService;
+    }
+
+    /**
+     * Save a new photo, whose image is already stored.
+     *
+     * @param photo the photo to create.
+     * @return the created photo.
+     */
+    public Photo create(Photo photo) {
+        log.debug("Request to create Photo : {}", photo);
+        photo.setImageContentType(ImageContentTypes.safeContentType(photo.getImageContentType()));
+        Photo result = photoRepository.save(photo);
+        indexCreated(result);
+        photoSearchService.indexPhoto(result.getId());
+        return result;
+    }
+
+    /**
+     * Save new photos, whose images are already stored, indexing their text at once.
+     *
+     * @param photos the photos to create.
+     * @return the created photos.
+     */
+    public List<Photo> createAll(List<Photo> photos) {
+        log.debug("Request to create {} Photos", photos.size());
+        photos.forEach(photo -> photo.setImageContentType(ImageContentTypes.safeContentType(photo.getImageContentType())));
+        List<Photo> result = photoRepository.saveAll(photos);
+        result.forEach(this::indexCreated);
+        photoSearchService.indexPhotos(result.stream().map(Photo::getId).collect(Collectors.toList()));
+        return result;
+    }
+
+    /**
+     * Save an existing photo, generating the derivatives of its image again if the image changed.
+     *
+     * @param photo the photo to update.
+     * @param previousTags the tags of the photo before the update.
+     * @param previousImageSha256 the digest of the image of the photo before the update.
+     * @return the updated photo.
+     */
+    public Photo update(Photo photo, Collection<Tag> previousTags, String previousImageSha256) {
+        log.debug("Request to update Photo : {}", photo);
+        photo.setImageContentType(ImageContentTypes.safeContentType(photo.getImageContentType()));
+        Photo result = photoRepository.save(photo);
+        if (!Objects.equals(result.getImageSha256(), previousImageSha256)) {
+            photoContentRepository.deleteDerivatives(result.getId());
+            photoDerivativeService.scheduleDerivatives(result.getId());
+        }
+        photoTagIndex.indexPhoto(result, previousTags);
+        photoSearchService.indexPhoto(result.getId());
+        tagPopularityService.updateCounts(previousTags, result.getTags());
+        return result;
+    }
+
+    /**
+     * Delete the "id" photo.
+     *
+     * @param id the id of the photo.
+     */
+    public void delete(Long id) {
+        log.debug("Request to delete Photo : {}", id);
+        Set<Tag> tags = photoRepository.findById(id).map(photo -> Set.copyOf(photo.getTags())).orElse(Set.of());
+        tagPopularityService.updateCounts(tags, Set.of());
+        photoRepository.deleteById(id);
+        photoTagIndex.removePhoto(id, tags);
+        photoSearchService.removePhoto(id);
+    }
+
+    private void indexCreated(Photo photo) {
+        photoDerivativeService.scheduleDerivatives(photo.getId());
+        photoTagIndex.indexPhoto(photo, Set.of());
+        tagPopularityService.updateCounts(Set.of(), photo.getTags());
+    }
+}
@@ -0,0 +1,240 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.domain.Tag;
+import com.auth0.flickr2.repository.PhotoRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service keeping an inverted index of the photos by tag in memory, so the photos having some tags are found without
+ * joining {@code rel_photo__tag}.
+ * <p>
+ * Each tag has the {@link IdBitmap} of the ids of its photos. The index is built once the application is ready, or on
+ * first use, and updated once the transactions changing the tags of a photo are committed. It is rebuilt periodically
+ * to pick up the changes made by other instances of the application: the changes committed during a rebuild are applied
+ * again to the rebuilt index.
+ */
+@Service
+public class PhotoTagIndex {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoTagIndex.class);
+
+    private final PhotoRepository photoRepository;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Object rebuildLock = new Object();
+
+    // guarded by lock
+    private Map<Long, IdBitmap> photosByTag;
+
+    // changes committed during a rebuild, guarded by lock
+    private List<Consumer<Map<Long, IdBitmap>>> pendingChanges;
+
+    public PhotoTagIndex(PhotoRepository photoRepository, PlatformTransactionManager transactionManager) {
+        this.photoRepository = photoRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // the index is left unbuilt, and is built on first use instead
+            log.warn("Photo tag index could not be built once the application was ready: {}", e.toString());
+        }
+    }
+
+    /**
+     * Build the index from the database again.
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            withWriteLock(() -> pendingChanges = new ArrayList<>());
+            Map<Long, IdBitmap> rebuilt = new HashMap<>();
+            try {
+                readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<Object[]> rows = photoRepository.streamAllPhotoAndTagIds()) {
+                        rows.forEach(row -> rebuilt.computeIfAbsent((Long) row[1], tagId -> new IdBitmap()).add((Long) row[0]));
+                    }
+                });
+            } catch (RuntimeException e) {
+                withWriteLock(() -> pendingChanges = null);
+                throw e;
+            }
+            withWriteLock(() -> {
+                pendingChanges.forEach(change -> change.accept(rebuilt));
+                pendingChanges = null;
+                photosByTag = rebuilt;
+            });
+            log.debug("Indexed the photos of {} tags", rebuilt.size());
+        }
+    }
+
+    /**
+     * Get the ids of the photos having any of the given tags.
+     *
+     * @param tagIds the ids of the tags.
+     * @return the ids of the photos, a copy the caller is free to modify.
+     */
+    public IdBitmap findPhotoIdsWithAnyTag(Collection<Long> tagIds) {
+        ensureBuilt();
+        IdBitmap photoIds = new IdBitmap();
+        lock.readLock().lock();
+        try {
+            for (Long tagId : tagIds) {
+                IdBitmap tagPhotoIds = photosByTag.get(tagId);
+                if (tagPhotoIds != null) {
+                    photoIds.or(tagPhotoIds);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return photoIds;
+    }
+
+    /**
+     * Index the tags of a saved photo, once the current transaction is committed.
+     *
+     * @param photo the photo, with all its tags.
+     * @param previousTags the tags of the photo before it was saved, none for a new photo.
+     */
+    public void indexPhoto(Photo photo, Collection<Tag> previousTags) {
+        Long photoId = photo.getId();
+        List<Long> previousTagIds = tagIds(previousTags);
+        List<Long> tagIds = tagIds(photo.getTags());
+        afterCommit(index -> {
+            removePhoto(index, photoId, previousTagIds);
+            for (Long tagId : tagIds) {
+                index.computeIfAbsent(tagId, id -> new IdBitmap()).add(photoId);
+            }
+        });
+    }
+
+    /**
+     * Remove a photo from the index, once the current transaction is committed.
+     *
+     * @param photoId the id of the photo.
+     * @param tags the tags of the photo.
+     */
+    public void removePhoto(Long photoId, Collection<Tag> tags) {
+        List<Long> tagIds = tagIds(tags);
+        afterCommit(index -> removePhoto(index, photoId, tagIds));
+    }
+
+    /**
+     * Remove a tag from the index, once the current transaction is committed.
+     *
+     * @param tagId the id of the tag.
+     */
+    public void removeTag(Long tagId) {
+        afterCommit(index -> index.remove(tagId));
+    }
+
+    /**
+     * Remove a photo from the bitmaps of its tags only, rather than from the bitmaps of all the tags.
+     */
+    private static void removePhoto(Map<Long, IdBitmap> index, Long photoId, List<Long> tagIds) {
+        for (Long tagId : tagIds) {
+            IdBitmap photoIds = index.get(tagId);
+            if (photoIds != null) {
+                photoIds.remove(photoId);
+                if (photoIds.isEmpty()) {
+                    index.remove(tagId);
+                }
+            }
+        }
+    }
+
+    private static List<Long> tagIds(Collection<Tag> tags) {
+        return tags.stream().map(Tag::getId).collect(Collectors.toList());
+    }
+
+    private void afterCommit(Consumer<Map<Long, IdBitmap>> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        try {
+                            apply(change);
+                        } catch (RuntimeException e) {
+                            // the transaction is committed whatever the index, which is rebuilt periodically
+                            log.warn("Photo tag index could not be updated once the transaction was committed: {}", e.toString());
+                        }
+                    }
+                }
+            );
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Map<Long, IdBitmap>> change) {
+        withWriteLock(() -> {
+            // before the index is first built, the change will be read from the database
+            if (photosByTag != null) {
+                change.accept(photosByTag);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        });
+    }
+
+    private void ensureBuilt() {
+        lock.readLock().lock();
+        try {
+            if (photosByTag != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        synchronized (rebuildLock) {
+            lock.readLock().lock();
+            try {
+                if (photosByTag != null) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            rebuild();
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.auth0.flickr2.service;
+
+/**
+ * Thrown when a chunk or the commit of a resumable photo upload is rejected.
+ */
+public class PhotoUploadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        /**
+         * The chunk is not the next one, or follows the last, short, one.
+         */
+        CHUNK_OUT_OF_ORDER,
+        /**
+         * The chunk is empty or larger than the chunk size of the upload.
+         */
+        CHUNK_SIZE_INVALID,
+        /**
+         * The image is larger than its announced size or than the maximum size.
+         */
+        UPLOAD_TOO_LARGE,
+        /**
+         * The upload is committed before all of its content is received.
+         */
+        UPLOAD_INCOMPLETE,
+        /**
+         * The upload is being committed by another request, or a chunk is sent to it while it is.
+         */
+        UPLOAD_COMMITTING,
+        /**
+         * The user already has the maximum number of uploads in progress.
+         */
+        TOO_MANY_UPLOADS,
+    }
+
+    private final Reason reason;
+
+    public PhotoUploadException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,449 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.config.ApplicationProperties;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.security.SecurityUtils;
+import com.auth0.flickr2.service.dto.PhotoUploadDTO;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Service managing the resumable uploads of photo images.
+ * <p>
+ * An upload is created with the chunk size its client will send, then its numbered chunks are appended,
+ * in order, to a temporary file: every chunk but the last one must be exactly of that size. A chunk already
+ * received is acknowledged again without being written, so a client can retry any chunk it got no response for.
+ * Each chunk is read to a file of its own, then appended under the lock of its upload, so a slow client only holds
+ * that lock for the time of a local copy.
+ * Once committed, the file is moved to the {@link BlobStore}, and the upload removed when the transaction creating its
+ * photo is committed: if it is rolled back, the upload is kept so its commit can be retried.
+ * <p>
+ * Uploads belong to the user who created them, who can have a limited number of them in progress at once. Those
+ * without a new chunk for the configured expiration time are removed, along with their file, by
+ * {@link #removeExpiredUploads()}.
+ * <p>
+ * Uploads are kept in the memory of the node they were created on, with their file in its local directory: all the
+ * requests of an upload must be routed to that node, with sticky sessions when the application runs on several nodes,
+ * and the uploads in progress are lost when it restarts. Their clients then have to start them over.
+ */
+@Service
+public class PhotoUploadService {
+
+    private static final String FILE_SUFFIX = ".part";
+
+    /**
+     * Prefix of the files the chunks are read to before being appended to their upload.
+     */
+    private static final String CHUNK_FILE_PREFIX = "chunk-";
+
+    private final Logger log = LoggerFactory.getLogger(PhotoUploadService.class);
+
+    private final BlobStore blobStore;
+
+    private final Path directory;
+
+    private final long maxChunkSize;
+
+    private final long maxSize;
+
+    private final Duration expiration;
+
+    private final int maxUploadsPerUser;
+
+    private final ConcurrentMap<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * Lock of the creation of the uploads, so the uploads of a user are counted and added at once.
+     */
+    private final Object creationLock = new Object();
+
+    public PhotoUploadService(BlobStore blobStore, ApplicationProperties applicationProperties) throws IOException {
+        ApplicationProperties.PhotoUploads properties = applicationProperties.getPhotoUploads();
+        this.blobStore = blobStore;
+        this.directory = Paths.get(properties.getDirectory()).toAbsolutePath();
+        this.maxChunkSize = properties.getMaxChunkSize();
+        this.maxSize = properties.getMaxSize();
+        this.expiration = Duration.ofMinutes(properties.getExpirationMinutes());
+        this.maxUploadsPerUser = properties.getMaxUploadsPerUser();
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Create an upload for the current user.
+     *
+     * @param request the file name, content type, size and chunk size of the upload; the chunk size defaults to the maximum.
+     * @return the created upload.
+     * @throws PhotoUploadException if the chunk size or the size exceed their maximum, or if the current user already has
+     * the maximum number of uploads in progress.
+     * @throws IOException if the file of the upload couldn't be created.
+     */
+    public PhotoUploadDTO createUpload(PhotoUploadDTO request) throws IOException {
+        long chunkSize = request.getChunkSize() == null ? maxChunkSize : request.getChunkSize();
+        if (chunkSize > maxChunkSize) {
+            throw new PhotoUploadException(PhotoUploadException.Reason.CHUNK_SIZE_INVALID, "Chunk size exceeds " + maxChunkSize + " bytes");
+        }
+        if (request.getSize() != null && request.getSize() > maxSize) {
+            throw new PhotoUploadException(PhotoUploadException.Reason.UPLOAD_TOO_LARGE, "Image size exceeds " + maxSize + " bytes");
+        }
+        String login = SecurityUtils.getCurrentUserLogin().orElse(null);
+        Upload upload;
+        synchronized (creationLock) {
+            long inProgress = uploads.values().stream().filter(existing -> Objects.equals(existing.login, login)).count();
+            if (inProgress >= maxUploadsPerUser) {
+                throw new PhotoUploadException(
+                    PhotoUploadException.Reason.TOO_MANY_UPLOADS,
+                    "Maximum of " + maxUploadsPerUser + " uploads in progress reached"
+                );
+            }
+            String id = UUID.randomUUID().toString();
+            Path file = Files.createFile(directory.resolve(id + FILE_SUFFIX));
+            upload = new Upload(id, login, request.getFileName(), request.getContentType(), request.getSize(), chunkSize, file);
+            uploads.put(id, upload);
+        }
+        log.debug("Created Photo upload {} of {} bytes chunks", upload.id, chunkSize);
+        return upload.toDto(expiration);
+    }
+
+    /**
+     * Get an upload of the current user.
+     *
+     * @param id the id of the upload.
+     * @return the upload, if found.
+     */
+    public Optional<PhotoUploadDTO> findUpload(String id) {
+        return find(id).map(upload -> upload.toDto(expiration));
+    }
+
+    /**
+     * Append a chunk to an upload of the current user. A chunk already received is not written again.
+     *
+     * @param id the id of the upload.
+     * @param index the index of the chunk, from {@code 0}.
+     * @param content the content of the chunk; it is not closed.
+     * @return the upload, if found.
+     * @throws PhotoUploadException if the chunk is out of order, of the wrong size, or makes the image too large;
+     * the chunk is then discarded.
+     * @throws IOException if the chunk couldn't be read or written; it is then discarded.
+     */
+    public Optional<PhotoUploadDTO> putChunk(String id, int index, InputStream content) throws IOException {
+        Optional<Upload> found = find(id);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Upload upload = found.get();
+        long limit;
+        synchronized (upload) {
+            if (upload.removed) {
+                return Optional.empty();
+            }
+            checkNotCommitting(upload);
+            upload.lastModified = Instant.now();
+            if (index < upload.chunks) {
+                log.debug("Chunk {} of Photo upload {} already received", index, id);
+                return Optional.of(upload.toDto(expiration));
+            }
+            checkNextChunk(upload, index);
+            limit = Math.min(upload.chunkSize, (upload.declaredSize != null ? upload.declaredSize : maxSize) - upload.size);
+        }
+
+        // the chunk is read without holding the lock of the upload, so a slow client doesn't block the other requests on it
+        Path chunk = Files.createTempFile(directory, CHUNK_FILE_PREFIX, FILE_SUFFIX);
+        try {
+            long written;
+            try (FileChannel channel = FileChannel.open(chunk, StandardOpenOption.WRITE)) {
+                written = append(channel, 0, content, limit);
+            }
+            if (written < 0) {
+                throw limit < upload.chunkSize
+                    ? new PhotoUploadException(PhotoUploadException.Reason.UPLOAD_TOO_LARGE, "Image exceeds its size")
+                    : new PhotoUploadException(PhotoUploadException.Reason.CHUNK_SIZE_INVALID, "Chunk exceeds " + limit + " bytes");
+            }
+            if (written == 0) {
+                throw new PhotoUploadException(PhotoUploadException.Reason.CHUNK_SIZE_INVALID, "Chunk is empty");
+            }
+            synchronized (upload) {
+                if (upload.removed) {
+                    return Optional.empty();
+                }
+                if (index < upload.chunks) {
+                    log.debug("Chunk {} of Photo upload {} received concurrently", index, id);
+                    return Optional.of(upload.toDto(expiration));
+                }
+                checkNotCommitting(upload);
+                // the upload didn't advance since the limit was computed, the chunk being still the next one
+                checkNextChunk(upload, index);
+                try (
+                    FileChannel source = FileChannel.open(chunk, StandardOpenOption.READ);
+                    FileChannel target = FileChannel.open(upload.file, StandardOpenOption.WRITE)
+                ) {
+                    try {
+                        long transferred = 0;
+                        while (transferred < written) {
+                            transferred += target.transferFrom(source, upload.size + transferred, written - transferred);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        target.truncate(upload.size);
+                        throw e;
+                    }
+                }
+                upload.chunks++;
+                upload.size += written;
+                upload.last = written < upload.chunkSize;
+                upload.lastModified = Instant.now();
+                log.debug("Received chunk {} of Photo upload {}, {} bytes", index, id, upload.size);
+                return Optional.of(upload.toDto(expiration));
+            }
+        } finally {
+            Files.deleteIfExists(chunk);
+        }
+    }
+
+    /**
+     * Check that a chunk not received yet is the next one of the upload, whose lock must be held.
+     */
+    private static void checkNextChunk(Upload upload, int index) {
+        if (index > upload.chunks || upload.last) {
+            throw new PhotoUploadException(
+                PhotoUploadException.Reason.CHUNK_OUT_OF_ORDER,
+                "Expected chunk " + (upload.last ? "none" : String.valueOf(upload.chunks)) + ", got " + index
+            );
+        }
+    }
+
+    /**
+     * Check that the upload, whose lock must be held, is not being committed.
+     */
+    private static void checkNotCommitting(Upload upload) {
+        if (upload.committing) {
+            throw new PhotoUploadException(PhotoUploadException.Reason.UPLOAD_COMMITTING, "Upload " + upload.id + " is being committed");
+        }
+    }
+
+    /**
+     * Write the content at the given position of the channel.
+     *
+     * @return the number of bytes written, or {@code -1} if the content exceeds the limit.
+     */
+    private static long append(FileChannel channel, long position, InputStream content, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long written = 0;
+        int read;
+        while ((read = content.read(buffer)) >= 0) {
+            if (written + read > limit) {
+                return -1;
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, position + written + bytes.position());
+            }
+            written += read;
+        }
+        return written;
+    }
+
+    /**
+     * Complete an upload of the current user: its content is moved to the blob store, and the upload removed once the
+     * current transaction is committed. If the transaction is rolled back, the upload is kept and can be committed again.
+     *
+     * @param id the id of the upload.
+     * @return the stored image, if the upload is found.
+     * @throws PhotoUploadException if the upload is empty, smaller than its announced size, or being committed.
+     * @throws IOException if the content couldn't be stored.
+     */
+    public Optional<BlobStore.Blob> commitUpload(String id) throws IOException {
+        Optional<Upload> found = find(id);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Upload upload = found.get();
+        BlobStore.Blob blob;
+        synchronized (upload) {
+            if (upload.removed) {
+                return Optional.empty();
+            }
+            checkNotCommitting(upload);
+            if (upload.size == 0 || (upload.declaredSize != null && upload.size != upload.declaredSize)) {
+                throw new PhotoUploadException(
+                    PhotoUploadException.Reason.UPLOAD_INCOMPLETE,
+                    "Received " + upload.size + " bytes of " + (upload.declaredSize != null ? upload.declaredSize : "a non-empty image")
+                );
+            }
+            try (InputStream content = Files.newInputStream(upload.file)) {
+                blob = blobStore.put(content);
+            }
+            upload.committing = true;
+            upload.lastModified = Instant.now();
+        }
+        removeAfterCommit(upload);
+        log.debug("Committed Photo upload {} as blob {}", id, blob.getDigest());
+        return Optional.of(blob);
+    }
+
+    /**
+     * Remove an upload being committed once the current transaction is committed, or let it be committed again if
+     * the transaction is rolled back.
+     */
+    private void removeAfterCommit(Upload upload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (upload) {
+                remove(upload);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (upload) {
+                        if (status == STATUS_COMMITTED) {
+                            remove(upload);
+                        } else {
+                            log.debug("Photo upload {} was not committed, keeping it", upload.id);
+                            upload.committing = false;
+                        }
+                    }
+                }
+            }
+        );
+    }
+
+    /**
+     * Abort an upload of the current user, deleting the chunks received.
+     *
+     * @param id the id of the upload.
+     * @return {@code true} if the upload was found.
+     */
+    public boolean abortUpload(String id) {
+        Optional<Upload> found = find(id);
+        if (found.isEmpty()) {
+            return false;
+        }
+        Upload upload = found.get();
+        synchronized (upload) {
+            if (upload.removed) {
+                return false;
+            }
+            remove(upload);
+        }
+        log.debug("Aborted Photo upload {}", id);
+        return true;
+    }
+
+    /**
+     * Remove the uploads without a new chunk for the expiration time, and the files left over by a previous run.
+     * <p>
+     * This is scheduled to get fired every 15 minutes.
+     *
+     * @return the number of uploads removed.
+     */
+    @Scheduled(cron = "0 */15 * * * ?")
+    public int removeExpiredUploads() {
+        Instant expiredBefore = Instant.now().minus(expiration);
+        int removed = 0;
+        for (Upload upload : uploads.values()) {
+            synchronized (upload) {
+                if (!upload.removed && !upload.lastModified.isAfter(expiredBefore)) {
+                    remove(upload);
+                    removed++;
+                }
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String id = file.getFileName().toString();
+                id = id.substring(0, id.length() - FILE_SUFFIX.length());
+                if (!uploads.containsKey(id) && !Files.getLastModifiedTime(file).toInstant().isAfter(expiredBefore)) {
+                    Files.deleteIfExists(file);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Expired Photo uploads could not be listed: {}", e.toString());
+        }
+        if (removed > 0) {
+            log.debug("Removed {} expired Photo uploads", removed);
+        }
+        return removed;
+    }
+
+    private Optional<Upload> find(String id) {
+        Upload upload = uploads.get(id);
+        if (upload == null || !Objects.equals(upload.login, SecurityUtils.getCurrentUserLogin().orElse(null))) {
+            return Optional.empty();
+        }
+        return Optional.of(upload);
+    }
+
+    private void remove(Upload upload) {
+        upload.removed = true;
+        uploads.remove(upload.id, upload);
+        try {
+            Files.deleteIfExists(upload.file);
+        } catch (IOException e) {
+            log.warn("Photo upload {} file could not be deleted: {}", upload.id, e.toString());
+        }
+    }
+
+    /**
+     * An upload in progress, guarded by its own lock.
+     */
+    private static final class Upload {
+
+        private final String id;
+        private final String login;
+        private final String fileName;
+        private final String contentType;
+        private final Long declaredSize;
+        private final long chunkSize;
+        private final Path file;
+        private int chunks;
+        private long size;
+        private boolean last;
+        private boolean committing;
+        private boolean removed;
+        private volatile Instant lastModified = Instant.now();
+
+        private Upload(String id, String login, String fileName, String contentType, Long declaredSize, long chunkSize, Path file) {
+            this.id = id;
+            this.login = login;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.declaredSize = declaredSize;
+            this.chunkSize = chunkSize;
+            this.file = file;
+        }
+
+        private PhotoUploadDTO toDto(Duration expiration) {
+            PhotoUploadDTO dto = new PhotoUploadDTO();
+            dto.setId(id);
+            dto.setFileName(fileName);
+            dto.setContentType(contentType);
+            dto.setSize(declaredSize);
+            dto.setChunkSize(chunkSize);
+            dto.setChunks(chunks);
+            dto.setOffset(size);
+            dto.setExpires(lastModified.plus(expiration));
+            return dto;
+        }
+    }
+}
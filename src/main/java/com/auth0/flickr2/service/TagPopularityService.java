@@ -0,0 +1,251 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.domain.Tag;
+import com.auth0.flickr2.repository.TagRepository;
+import com.auth0.flickr2.service.dto.TagPopularityDTO;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service counting the photos of each tag in memory, so the most used tags are found without grouping
+ * {@code rel_photo__tag}.
+ * <p>
+ * Each tag has a {@link LongAdder}, so concurrent uploads do not contend on the counters. The counters are read from the
+ * database once the application is ready, or on first use, and updated once the transactions changing the tags of a
+ * photo are committed. They are reconciled with the database periodically, which also picks up the changes made by other
+ * instances of the application: the changes committed while the counts are read are applied again to the new counters.
+ */
+@Service
+public class TagPopularityService {
+
+    public static final String POPULAR_TAGS_CACHE = "popularTags";
+
+    private final Logger log = LoggerFactory.getLogger(TagPopularityService.class);
+
+    private final TagRepository tagRepository;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final Object reconcileLock = new Object();
+
+    // held for reading to apply a change, so concurrent changes do not contend, and for writing to replace the counters
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile ConcurrentMap<Long, LongAdder> photoCounts;
+
+    // changes committed during a reconciliation, guarded by lock
+    private Queue<Consumer<ConcurrentMap<Long, LongAdder>>> pendingChanges;
+
+    public TagPopularityService(TagRepository tagRepository, PlatformTransactionManager transactionManager) {
+        this.tagRepository = tagRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            // the counters are left unread, and are read on first use instead
+            log.warn("Photo counts of the tags could not be read once the application was ready: {}", e.toString());
+        }
+    }
+
+    /**
+     * Read the counters from the database again.
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            withWriteLock(() -> pendingChanges = new ConcurrentLinkedQueue<>());
+            ConcurrentMap<Long, LongAdder> counts = new ConcurrentHashMap<>();
+            try {
+                readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                    for (Object[] row : tagRepository.countPhotosByTag()) {
+                        LongAdder count = new LongAdder();
+                        count.add((Long) row[1]);
+                        counts.put((Long) row[0], count);
+                    }
+                });
+            } catch (RuntimeException e) {
+                withWriteLock(() -> pendingChanges = null);
+                throw e;
+            }
+            withWriteLock(() -> {
+                pendingChanges.forEach(change -> change.accept(counts));
+                pendingChanges = null;
+                photoCounts = counts;
+            });
+            log.debug("Counted the photos of {} tags", counts.size());
+        }
+    }
+
+    /**
+     * Get the most used tags.
+     * <p>
+     * The result is cached for a few seconds, see {@code application.popular-tags.cache-time-to-live-seconds}.
+     *
+     * @param size the maximum number of tags.
+     * @return the tags having photos, by descending number of photos then by name.
+     */
+    @Cacheable(POPULAR_TAGS_CACHE)
+    public List<TagPopularityDTO> getPopularTags(int size) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (size > 0) {
+            // min-heap of the most used tags found so far
+            PriorityQueue<Map.Entry<Long, Long>> top = new PriorityQueue<>(size + 1, Map.Entry.comparingByValue());
+            for (Map.Entry<Long, LongAdder> entry : getPhotoCounts().entrySet()) {
+                long count = entry.getValue().sum();
+                if (count > 0 && (top.size() < size || count > top.peek().getValue())) {
+                    top.add(Map.entry(entry.getKey(), count));
+                    if (top.size() > size) {
+                        top.poll();
+                    }
+                }
+            }
+            top.forEach(entry -> counts.put(entry.getKey(), entry.getValue()));
+        }
+        Map<Long, Tag> tags = tagRepository.findAllById(counts.keySet()).stream().collect(Collectors.toMap(Tag::getId, Function.identity()));
+        return counts
+            .entrySet()
+            .stream()
+            .filter(entry -> tags.containsKey(entry.getKey()))
+            .map(entry -> new TagPopularityDTO(entry.getKey(), tags.get(entry.getKey()).getName(), entry.getValue()))
+            .sorted(
+                Comparator
+                    .comparingLong(TagPopularityDTO::getPhotoCount)
+                    .reversed()
+                    .thenComparing(TagPopularityDTO::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(TagPopularityDTO::getId)
+            )
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the number of photos of a tag, as counted in memory.
+     *
+     * @param tagId the id of the tag.
+     * @return the number of photos, {@code 0} for an unknown tag.
+     */
+    public long getPhotoCount(Long tagId) {
+        LongAdder count = getPhotoCounts().get(tagId);
+        return count == null ? 0 : Math.max(count.sum(), 0);
+    }
+
+    /**
+     * Count the tags added to and removed from a photo, once the current transaction is committed.
+     *
+     * @param previousTags the tags of the photo before the change, empty for a new photo.
+     * @param tags the tags of the photo after the change, empty for a deleted photo.
+     */
+    public void updateCounts(Collection<Tag> previousTags, Collection<Tag> tags) {
+        Set<Long> added = tags.stream().map(Tag::getId).collect(Collectors.toSet());
+        Set<Long> removed = previousTags.stream().map(Tag::getId).collect(Collectors.toSet());
+        Set<Long> unchanged = new HashSet<>(added);
+        unchanged.retainAll(removed);
+        added.removeAll(unchanged);
+        removed.removeAll(unchanged);
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        afterCommit(counts -> {
+            added.forEach(tagId -> counts.computeIfAbsent(tagId, id -> new LongAdder()).increment());
+            removed.forEach(tagId -> counts.computeIfAbsent(tagId, id -> new LongAdder()).decrement());
+        });
+    }
+
+    /**
+     * Forget the counter of a tag, once the current transaction is committed.
+     *
+     * @param tagId the id of the tag.
+     */
+    public void removeTag(Long tagId) {
+        afterCommit(counts -> counts.remove(tagId));
+    }
+
+    private void afterCommit(Consumer<ConcurrentMap<Long, LongAdder>> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        try {
+                            apply(change);
+                        } catch (RuntimeException e) {
+                            // the transaction is committed whatever the counters, which are reconciled periodically
+                            log.warn("Photo counts of the tags could not be updated once the transaction was committed: {}", e.toString());
+                        }
+                    }
+                }
+            );
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<ConcurrentMap<Long, LongAdder>> change) {
+        lock.readLock().lock();
+        try {
+            ConcurrentMap<Long, LongAdder> counts = photoCounts;
+            // before the counters are first read, the change will be read from the database
+            if (counts != null) {
+                change.accept(counts);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<Long, LongAdder> getPhotoCounts() {
+        ConcurrentMap<Long, LongAdder> counts = photoCounts;
+        if (counts != null) {
+            return counts;
+        }
+        synchronized (reconcileLock) {
+            if (photoCounts == null) {
+                reconcile();
+            }
+            return photoCounts;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.domain.Tag;
+import com.auth0.flickr2.repository.TagRepository;
+import com.auth0.flickr2.service.dto.TagPopularityDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service keeping the names of the tags sorted in memory, so the tags starting with a prefix are suggested without
+ * querying the database.
+ * <p>
+ * The tags are kept in a concurrent skip list, sorted by lower case name then id: the tags starting with a prefix are a
+ * range of it, ranked by their number of photos as counted by {@link TagPopularityService}. The index is built once the
+ * application is ready, or on first use, and updated once the transactions creating, renaming or deleting a tag are
+ * committed. It is rebuilt periodically to pick up the changes made by other instances of the application: the changes
+ * committed during a rebuild are applied again to the rebuilt index.
+ * <p>
+ * A suggestion ranks the tags of its range as long as it has at most {@link #MAX_SCANNED_TAGS} tags. The prefixes of more
+ * tags have candidates instead: their {@link #CANDIDATES} most used tags, found when the index is built and every minute
+ * since, and ranked again with their current number of photos when suggested.
+ */
+@Service
+public class TagSuggestionIndex {
+
+    private final Logger log = LoggerFactory.getLogger(TagSuggestionIndex.class);
+
+    /**
+     * Separates the lower case name from the id in the keys, sorting before any character of a name.
+     */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    /**
+     * Number of tags a prefix has at most to be suggested from its range; the prefixes of more tags have candidates.
+     */
+    private static final int HEAVY_PREFIX_TAGS = 256;
+
+    /**
+     * Number of tags of its range a suggestion ranks at most, in case its prefix got more tags since the candidates were found.
+     */
+    private static final int MAX_SCANNED_TAGS = 4 * HEAVY_PREFIX_TAGS;
+
+    /**
+     * Number of candidates of a prefix, twice the maximum number of suggestions so the tags deleted, renamed or outranked
+     * since they were found leave enough of them.
+     */
+    private static final int CANDIDATES = 100;
+
+    private final TagRepository tagRepository;
+
+    private final TagPopularityService tagPopularityService;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final Object rebuildLock = new Object();
+
+    private final Object updateLock = new Object();
+
+    private volatile Index index;
+
+    // changes committed during a rebuild, guarded by updateLock
+    private List<Consumer<Index>> pendingChanges;
+
+    public TagSuggestionIndex(
+        TagRepository tagRepository,
+        TagPopularityService tagPopularityService,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.tagRepository = tagRepository;
+        this.tagPopularityService = tagPopularityService;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // the index is left unbuilt, and is built on first use instead
+            log.warn("Tag suggestion index could not be built once the application was ready: {}", e.toString());
+        }
+    }
+
+    /**
+     * Build the index from the database again.
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (updateLock) {
+                pendingChanges = new ArrayList<>();
+            }
+            Index rebuilt = new Index();
+            try {
+                readOnlyTransactionTemplate.executeWithoutResult(status -> tagRepository.findAll().forEach(rebuilt::put));
+                rebuilt.candidatesByPrefix = findCandidates(rebuilt);
+            } catch (RuntimeException e) {
+                synchronized (updateLock) {
+                    pendingChanges = null;
+                }
+                throw e;
+            }
+            synchronized (updateLock) {
+                pendingChanges.forEach(change -> change.accept(rebuilt));
+                pendingChanges = null;
+                index = rebuilt;
+            }
+            log.debug("Indexed the names of {} tags", rebuilt.keysById.size());
+        }
+    }
+
+    /**
+     * Find the candidates of the prefixes of many tags again, with the current number of photos of the tags.
+     */
+    @Scheduled(cron = "30 * * * * ?")
+    public void refreshCandidates() {
+        Index current = index;
+        if (current != null) {
+            current.candidatesByPrefix = findCandidates(current);
+        }
+    }
+
+    /**
+     * Suggest the tags whose name starts with a prefix, ignoring case.
+     *
+     * @param prefix the prefix of the names.
+     * @param size the maximum number of tags, up to half of {@link #CANDIDATES}.
+     * @return the tags, by descending number of photos then by name.
+     */
+    public List<TagPopularityDTO> suggest(String prefix, int size) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        Index current = getIndex();
+        Comparator<TagPopularityDTO> ranking = Comparator
+            .comparingLong(TagPopularityDTO::getPhotoCount)
+            .reversed()
+            .thenComparing(TagPopularityDTO::getName)
+            .thenComparing(TagPopularityDTO::getId);
+        // heap of the best ranked tags found so far, the worst first
+        PriorityQueue<TagPopularityDTO> top = new PriorityQueue<>(size + 1, ranking.reversed());
+        Consumer<TagPopularityDTO> rank = tag -> {
+            top.add(tag);
+            if (top.size() > size) {
+                top.poll();
+            }
+        };
+        long[] candidates = current.candidatesByPrefix.get(from);
+        if (candidates != null) {
+            for (long id : candidates) {
+                String key = current.keysById.get(id);
+                String name = key != null ? current.tagsByKey.get(key) : null;
+                // skip the tags deleted, or renamed out of the prefix, since the candidates were found
+                if (name != null && key.startsWith(from)) {
+                    rank.accept(new TagPopularityDTO(id, name, tagPopularityService.getPhotoCount(id)));
+                }
+            }
+        } else {
+            current.tagsByKey
+                .subMap(from, true, from + Character.MAX_VALUE, false)
+                .entrySet()
+                .stream()
+                .limit(MAX_SCANNED_TAGS)
+                .forEach(entry -> {
+                    Long id = idOf(entry.getKey());
+                    rank.accept(new TagPopularityDTO(id, entry.getValue(), tagPopularityService.getPhotoCount(id)));
+                });
+        }
+        List<TagPopularityDTO> suggestions = new ArrayList<>(top);
+        suggestions.sort(ranking);
+        return suggestions;
+    }
+
+    /**
+     * Index the name of a saved tag, once the current transaction is committed.
+     *
+     * @param tag the tag.
+     */
+    public void indexTag(Tag tag) {
+        Tag indexed = new Tag().id(tag.getId()).name(tag.getName());
+        afterCommit(index -> index.put(indexed));
+    }
+
+    /**
+     * Remove a tag from the index, once the current transaction is committed.
+     *
+     * @param tagId the id of the tag.
+     */
+    public void removeTag(Long tagId) {
+        afterCommit(index -> index.remove(tagId));
+    }
+
+    private void afterCommit(Consumer<Index> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        try {
+                            apply(change);
+                        } catch (RuntimeException e) {
+                            // the transaction is committed whatever the index, which is rebuilt periodically
+                            log.warn("Tag suggestion index could not be updated once the transaction was committed: {}", e.toString());
+                        }
+                    }
+                }
+            );
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Index> change) {
+        synchronized (updateLock) {
+            // before the index is first built, the change will be read from the database
+            if (index != null) {
+                change.accept(index);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        }
+    }
+
+    /**
+     * Find the candidates of the prefixes of more than {@link #HEAVY_PREFIX_TAGS} tags.
+     */
+    private Map<String, long[]> findCandidates(Index index) {
+        List<String> keys = new ArrayList<>(index.tagsByKey.keySet());
+        Map<String, long[]> candidatesByPrefix = new HashMap<>();
+        findCandidates(keys, "", 0, keys.size(), candidatesByPrefix);
+        log.debug("Found the candidates of {} tag prefixes", candidatesByPrefix.size());
+        return candidatesByPrefix;
+    }
+
+    /**
+     * Find the candidates of a prefix and of its longer prefixes, the keys from {@code from} to {@code to} being the
+     * sorted keys of the tags starting with it.
+     */
+    private void findCandidates(List<String> keys, String prefix, int from, int to, Map<String, long[]> candidatesByPrefix) {
+        if (to - from <= HEAVY_PREFIX_TAGS) {
+            return;
+        }
+        if (!prefix.isEmpty()) {
+            candidatesByPrefix.put(prefix, mostUsedTags(keys.subList(from, to)));
+        }
+        int length = prefix.length();
+        int start = from;
+        while (start < to) {
+            char next = keys.get(start).charAt(length);
+            int end = start + 1;
+            while (end < to && keys.get(end).charAt(length) == next) {
+                end++;
+            }
+            // the names equal to the prefix have no longer prefix
+            if (next != KEY_SEPARATOR) {
+                findCandidates(keys, keys.get(start).substring(0, length + 1), start, end, candidatesByPrefix);
+            }
+            start = end;
+        }
+    }
+
+    private long[] mostUsedTags(List<String> keys) {
+        // min-heap of the most used tags found so far
+        PriorityQueue<Map.Entry<Long, Long>> top = new PriorityQueue<>(CANDIDATES + 1, Map.Entry.comparingByValue());
+        for (String key : keys) {
+            Long id = idOf(key);
+            top.add(Map.entry(id, tagPopularityService.getPhotoCount(id)));
+            if (top.size() > CANDIDATES) {
+                top.poll();
+            }
+        }
+        return top.stream().mapToLong(Map.Entry::getKey).toArray();
+    }
+
+    private static Long idOf(String key) {
+        return Long.valueOf(key.substring(key.lastIndexOf(KEY_SEPARATOR) + 1));
+    }
+
+    private Index getIndex() {
+        Index current = index;
+        if (current != null) {
+            return current;
+        }
+        synchronized (rebuildLock) {
+            if (index == null) {
+                rebuild();
+            }
+            return index;
+        }
+    }
+
+    /**
+     * The names of the tags by {@code lowerCaseName + KEY_SEPARATOR + id} key, and the keys by id. Updates are
+     * serialized by {@link #updateLock}, reads are lock-free. The candidates of the prefixes of many tags are replaced
+     * as a whole.
+     */
+    private static final class Index {
+
+        private final NavigableMap<String, String> tagsByKey = new ConcurrentSkipListMap<>();
+
+        private final Map<Long, String> keysById = new ConcurrentHashMap<>();
+
+        private volatile Map<String, long[]> candidatesByPrefix = Collections.emptyMap();
+
+        private void put(Tag tag) {
+            remove(tag.getId());
+            if (tag.getName() != null) {
+                String key = tag.getName().toLowerCase(Locale.ROOT) + KEY_SEPARATOR + tag.getId();
+                tagsByKey.put(key, tag.getName());
+                keysById.put(tag.getId(), key);
+            }
+        }
+
+        private void remove(Long tagId) {
+            String key = keysById.remove(tagId);
+            if (key != null) {
+                tagsByKey.remove(key);
+            }
+        }
+    }
+}
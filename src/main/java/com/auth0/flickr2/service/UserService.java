@@ -1,13 +1,14 @@
 package com.auth0.flickr2.service;
 
+import com.auth0.flickr2.config.ApplicationProperties;
 import com.auth0.flickr2.config.Constants;
 import com.auth0.flickr2.domain.Authority;
 import com.auth0.flickr2.domain.User;
-import com.auth0.flickr2.repository.AuthorityRepository;
 import com.auth0.flickr2.repository.UserRepository;
 import com.auth0.flickr2.security.SecurityUtils;
 import com.auth0.flickr2.service.dto.AdminUserDTO;
 import com.auth0.flickr2.service.dto.UserDTO;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -21,7 +22,10 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Service class for managing users.
@@ -34,14 +38,27 @@ public class UserService {
 
     private final UserRepository userRepository;
 
-    private final AuthorityRepository authorityRepository;
+    private final AuthorityRegistry authorityRegistry;
 
     private final CacheManager cacheManager;
 
-    public UserService(UserRepository userRepository, AuthorityRepository authorityRepository, CacheManager cacheManager) {
+    private final TransactionTemplate transactionTemplate;
+
+    private final UserSyncTracker userSyncTracker;
+
+    public UserService(
+        UserRepository userRepository,
+        AuthorityRegistry authorityRegistry,
+        CacheManager cacheManager,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
         this.userRepository = userRepository;
-        this.authorityRepository = authorityRepository;
+        this.authorityRegistry = authorityRegistry;
         this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        ApplicationProperties.UserSync userSync = applicationProperties.getUserSync();
+        this.userSyncTracker = new UserSyncTracker(Duration.ofSeconds(userSync.getIntervalSeconds()), userSync.getMaxEntries());
     }
 
     /**
@@ -89,23 +106,14 @@ public class UserService {
      * Gets a list of all the authorities.
      * @return a list of all the authorities.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<String> getAuthorities() {
-        return authorityRepository.findAll().stream().map(Authority::getName).collect(Collectors.toList());
+        return authorityRegistry.getAuthorities();
     }
 
     private User syncUserWithIdP(Map<String, Object> details, User user) {
         // save authorities in to sync user roles/groups between IdP and JHipster's local database
-        Collection<String> dbAuthorities = getAuthorities();
-        Collection<String> userAuthorities = user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toList());
-        for (String authority : userAuthorities) {
-            if (!dbAuthorities.contains(authority)) {
-                log.debug("Saving authority '{}' in local database", authority);
-                Authority authorityToSave = new Authority();
-                authorityToSave.setName(authority);
-                authorityRepository.save(authorityToSave);
-            }
-        }
+        authorityRegistry.register(user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toList()));
         // save account in to sync users between IdP and JHipster's local database
         Optional<User> existingUser = userRepository.findOneByLogin(user.getLogin());
         if (existingUser.isPresent()) {
@@ -132,12 +140,13 @@ public class UserService {
 
     /**
      * Returns the user from an OAuth 2.0 login or resource server with JWT.
-     * Synchronizes the user in the local repository.
+     * Synchronizes the user in the local repository, when its claims changed since it was last synchronized or
+     * {@code application.user-sync.interval-seconds} elapsed: otherwise the database is not accessed.
      *
      * @param authToken the authentication token.
      * @return the user from the authentication.
      */
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public AdminUserDTO getUserFromAuthentication(AbstractAuthenticationToken authToken) {
         Map<String, Object> attributes;
         if (authToken instanceof OAuth2AuthenticationToken) {
@@ -161,7 +170,27 @@ public class UserService {
                 .collect(Collectors.toSet())
         );
 
-        return new AdminUserDTO(syncUserWithIdP(attributes, user));
+        List<Object> fingerprint = fingerprint(attributes, user);
+        if (userSyncTracker.isSyncNeeded(user.getLogin(), fingerprint)) {
+            transactionTemplate.executeWithoutResult(status -> syncUserWithIdP(attributes, user));
+            userSyncTracker.synced(user.getLogin(), fingerprint);
+        }
+        return new AdminUserDTO(user);
+    }
+
+    private static List<Object> fingerprint(Map<String, Object> details, User user) {
+        return Arrays.asList(
+            user.getId(),
+            user.getLogin(),
+            user.getFirstName(),
+            user.getLastName(),
+            user.getEmail(),
+            user.getLangKey(),
+            user.getImageUrl(),
+            user.isActivated(),
+            user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toSet()),
+            details.get("updated_at")
+        );
     }
 
     private static User getUser(Map<String, Object> details) {
@@ -0,0 +1,75 @@
+package com.auth0.flickr2.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers when each user was last synchronized with the OAuth provider, and with which claims, so a user is only
+ * synchronized again once its claims change or the synchronization interval elapsed.
+ * <p>
+ * At most {@code maxEntries} users are remembered: when full, the tracker is emptied, which only costs one extra
+ * synchronization per user.
+ */
+public class UserSyncTracker {
+
+    private final Duration interval;
+
+    private final int maxEntries;
+
+    private final Clock clock;
+
+    private final ConcurrentMap<String, Sync> syncs = new ConcurrentHashMap<>();
+
+    public UserSyncTracker(Duration interval, int maxEntries) {
+        this(interval, maxEntries, Clock.systemUTC());
+    }
+
+    public UserSyncTracker(Duration interval, int maxEntries, Clock clock) {
+        this.interval = interval;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Check whether a user needs to be synchronized.
+     *
+     * @param login the login of the user.
+     * @param fingerprint the claims of the user, compared with {@link Object#equals(Object)}.
+     * @return {@code true} if the user was never synchronized, was synchronized with other claims, or too long ago.
+     */
+    public boolean isSyncNeeded(String login, Object fingerprint) {
+        Sync sync = syncs.get(login);
+        return (
+            sync == null || !Objects.equals(sync.fingerprint, fingerprint) || !clock.instant().isBefore(sync.synced.plus(interval))
+        );
+    }
+
+    /**
+     * Record that a user was synchronized.
+     *
+     * @param login the login of the user.
+     * @param fingerprint the claims the user was synchronized with.
+     */
+    public void synced(String login, Object fingerprint) {
+        if (syncs.size() >= maxEntries && !syncs.containsKey(login)) {
+            syncs.clear();
+        }
+        syncs.put(login, new Sync(fingerprint, clock.instant()));
+    }
+
+    private static final class Sync {
+
+        private final Object fingerprint;
+
+        private final Instant synced;
+
+        private Sync(Object fingerprint, Instant synced) {
+            this.fingerprint = fingerprint;
+            this.synced = synced;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.auth0.flickr2.service.dto;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A DTO representing the number of photos of an {@link com.auth0.flickr2.domain.Album}.
+ * <p>
+ * It is built directly by a JPQL constructor expression, grouping the photos by album.
+ */
+public class AlbumPhotoCountDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long albumId;
+
+    private Long photoCount;
+
+    public AlbumPhotoCountDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public AlbumPhotoCountDTO(Long albumId, Long photoCount) {
+        this.albumId = albumId;
+        this.photoCount = photoCount;
+    }
+
+    public Long getAlbumId() {
+        return albumId;
+    }
+
+    public void setAlbumId(Long albumId) {
+        this.albumId = albumId;
+    }
+
+    public Long getPhotoCount() {
+        return photoCount;
+    }
+
+    public void setPhotoCount(Long photoCount) {
+        this.photoCount = photoCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AlbumPhotoCountDTO)) {
+            return false;
+        }
+        AlbumPhotoCountDTO that = (AlbumPhotoCountDTO) o;
+        return Objects.equals(albumId, that.albumId) && Objects.equals(photoCount, that.photoCount);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(albumId, photoCount);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "AlbumPhotoCountDTO{" +
+            "albumId=" + getAlbumId() +
+            ", photoCount=" + getPhotoCount() +
+            "}";
+    }
+}
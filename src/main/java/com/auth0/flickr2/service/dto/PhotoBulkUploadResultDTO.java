@@ -0,0 +1,95 @@
+package com.auth0.flickr2.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO representing the outcome of one image of a bulk upload of photos.
+ */
+public class PhotoBulkUploadResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int index;
+
+    private String fileName;
+
+    private int status;
+
+    private Long id;
+
+    private String error;
+
+    public PhotoBulkUploadResultDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public PhotoBulkUploadResultDTO(int index, String fileName, int status, Long id, String error) {
+        this.index = index;
+        this.fileName = fileName;
+        this.status = status;
+        this.id = id;
+        this.error = error;
+    }
+
+    /**
+     * @return the position of the image in the upload, from {@code 0}.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * @return the HTTP status the single photo upload would have answered: {@code 201} once the photo is saved,
+     * {@code 400} for an invalid image, {@code 500} if the photo couldn't be stored.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    /**
+     * @return the id of the created photo, {@code null} on error.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PhotoBulkUploadResultDTO{" +
+            "index=" + getIndex() +
+            ", fileName='" + getFileName() + "'" +
+            ", status=" + getStatus() +
+            ", id=" + getId() +
+            ", error='" + getError() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,55 @@
+package com.auth0.flickr2.service.dto;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * A DTO representing a photo found by a full-text search: its metadata, and the passages of its text matching the
+ * search, with the matching words in {@code <em>} elements.
+ */
+public class PhotoSearchHitDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private PhotoSummaryDTO photo;
+
+    private Map<String, String> highlights;
+
+    public PhotoSearchHitDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public PhotoSearchHitDTO(PhotoSummaryDTO photo, Map<String, String> highlights) {
+        this.photo = photo;
+        this.highlights = highlights;
+    }
+
+    public PhotoSummaryDTO getPhoto() {
+        return photo;
+    }
+
+    public void setPhoto(PhotoSummaryDTO photo) {
+        this.photo = photo;
+    }
+
+    /**
+     * @return the matching passages, by field: {@code title}, {@code description}, {@code albumTitle} or
+     * {@code albumDescription}.
+     */
+    public Map<String, String> getHighlights() {
+        return highlights;
+    }
+
+    public void setHighlights(Map<String, String> highlights) {
+        this.highlights = highlights;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PhotoSearchHitDTO{" +
+            "photo=" + getPhoto() +
+            ", highlights=" + getHighlights() +
+            "}";
+    }
+}
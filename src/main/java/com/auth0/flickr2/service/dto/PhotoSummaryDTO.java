@@ -0,0 +1,209 @@
+package com.auth0.flickr2.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A DTO representing the metadata of a {@link com.auth0.flickr2.domain.Photo}, without its image nor its description.
+ * <p>
+ * It is built directly by JPQL constructor expressions, so no LOB column is ever selected.
+ */
+public class PhotoSummaryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String title;
+
+    private String imageContentType;
+
+    private String imageSha256;
+
+    private Integer height;
+
+    private Integer width;
+
+    private Instant taken;
+
+    private Instant uploaded;
+
+    private AlbumSummary album;
+
+    public PhotoSummaryDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public PhotoSummaryDTO(
+        Long id,
+        String title,
+        String imageContentType,
+        String imageSha256,
+        Integer height,
+        Integer width,
+        Instant taken,
+        Instant uploaded,
+        Long albumId,
+        String albumTitle
+    ) {
+        this.id = id;
+        this.title = title;
+        this.imageContentType = imageContentType;
+        this.imageSha256 = imageSha256;
+        this.height = height;
+        this.width = width;
+        this.taken = taken;
+        this.uploaded = uploaded;
+        if (albumId != null) {
+            this.album = new AlbumSummary(albumId, albumTitle);
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getImageContentType() {
+        return imageContentType;
+    }
+
+    public void setImageContentType(String imageContentType) {
+        this.imageContentType = imageContentType;
+    }
+
+    public String getImageSha256() {
+        return imageSha256;
+    }
+
+    public void setImageSha256(String imageSha256) {
+        this.imageSha256 = imageSha256;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Instant getTaken() {
+        return taken;
+    }
+
+    public void setTaken(Instant taken) {
+        this.taken = taken;
+    }
+
+    public Instant getUploaded() {
+        return uploaded;
+    }
+
+    public void setUploaded(Instant uploaded) {
+        this.uploaded = uploaded;
+    }
+
+    public AlbumSummary getAlbum() {
+        return album;
+    }
+
+    public void setAlbum(AlbumSummary album) {
+        this.album = album;
+    }
+
+    /**
+     * @return the relative URL the image of the photo is served from, content-addressed when its digest is known.
+     */
+    public String getImageUrl() {
+        return "api/photos/" + id + "/content" + (imageSha256 == null ? "" : "?v=" + imageSha256);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PhotoSummaryDTO)) {
+            return false;
+        }
+        return id != null && id.equals(((PhotoSummaryDTO) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PhotoSummaryDTO{" +
+            "id=" + getId() +
+            ", title='" + getTitle() + "'" +
+            ", imageContentType='" + getImageContentType() + "'" +
+            ", imageSha256='" + getImageSha256() + "'" +
+            ", height=" + getHeight() +
+            ", width=" + getWidth() +
+            ", taken='" + getTaken() + "'" +
+            ", uploaded='" + getUploaded() + "'" +
+            "}";
+    }
+
+    /**
+     * The id and title of the album of the photo.
+     */
+    public static class AlbumSummary implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long id;
+
+        private String title;
+
+        public AlbumSummary() {
+            // Empty constructor needed for Jackson.
+        }
+
+        public AlbumSummary(Long id, String title) {
+            this.id = id;
+            this.title = title;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.auth0.flickr2.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO representing the text of a {@link com.auth0.flickr2.domain.Photo} and of its album, as indexed for full-text
+ * search.
+ * <p>
+ * It is built directly by JPQL constructor expressions, so the image is never selected.
+ */
+public class PhotoTextDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final String title;
+
+    private final String description;
+
+    private final String albumTitle;
+
+    private final String albumDescription;
+
+    public PhotoTextDTO(Long id, String title, String description, String albumTitle, String albumDescription) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.albumTitle = albumTitle;
+        this.albumDescription = albumDescription;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getAlbumTitle() {
+        return albumTitle;
+    }
+
+    public String getAlbumDescription() {
+        return albumDescription;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PhotoTextDTO{" +
+            "id=" + getId() +
+            ", title='" + getTitle() + "'" +
+            ", albumTitle='" + getAlbumTitle() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,128 @@
+package com.auth0.flickr2.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+
+/**
+ * A DTO representing a resumable upload of a photo image, sent in numbered chunks of {@code chunkSize} bytes.
+ * <p>
+ * A client creates it with the name, content type and size of its file, and the chunk size it will send;
+ * the other attributes are the progress of the upload, for the client to resume it after a failure.
+ */
+public class PhotoUploadDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+
+    @Size(max = 255)
+    private String fileName;
+
+    @Size(max = 255)
+    private String contentType;
+
+    @Positive
+    private Long size;
+
+    @Positive
+    private Long chunkSize;
+
+    private int chunks;
+
+    private long offset;
+
+    private Instant expires;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return the announced size of the image, in bytes, if known.
+     */
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Long getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return the number of chunks received, i.e. the index of the next chunk to send.
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * @return the number of bytes received.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * @return the date the upload is removed at if no other chunk is received.
+     */
+    public Instant getExpires() {
+        return expires;
+    }
+
+    public void setExpires(Instant expires) {
+        this.expires = expires;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "PhotoUploadDTO{" +
+            "id='" + id + '\'' +
+            ", fileName='" + fileName + '\'' +
+            ", contentType='" + contentType + '\'' +
+            ", size=" + size +
+            ", chunkSize=" + chunkSize +
+            ", chunks=" + chunks +
+            ", offset=" + offset +
+            ", expires=" + expires +
+            "}";
+    }
+}
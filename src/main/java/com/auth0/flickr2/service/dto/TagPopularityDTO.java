@@ -0,0 +1,79 @@
+package com.auth0.flickr2.service.dto;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A DTO representing a {@link com.auth0.flickr2.domain.Tag} with its number of photos.
+ */
+public class TagPopularityDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String name;
+
+    private long photoCount;
+
+    public TagPopularityDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public TagPopularityDTO(Long id, String name, long photoCount) {
+        this.id = id;
+        this.name = name;
+        this.photoCount = photoCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public void setPhotoCount(long photoCount) {
+        this.photoCount = photoCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TagPopularityDTO)) {
+            return false;
+        }
+        TagPopularityDTO that = (TagPopularityDTO) o;
+        return photoCount == that.photoCount && Objects.equals(id, that.id) && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, photoCount);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TagPopularityDTO{" +
+            "id=" + getId() +
+            ", name='" + getName() + "'" +
+            ", photoCount=" + getPhotoCount() +
+            "}";
+    }
+}
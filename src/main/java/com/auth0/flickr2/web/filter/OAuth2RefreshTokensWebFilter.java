@@ -1,10 +1,18 @@
 package com.auth0.flickr2.web.filter;
 
+import com.auth0.flickr2.config.OAuth2Configuration;
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
@@ -16,27 +24,51 @@ import org.springframework.security.oauth2.client.web.DefaultOAuth2Authorization
 import org.springframework.security.oauth2.client.web.OAuth2AuthorizationRequestRedirectFilter;
 import org.springframework.security.oauth2.client.web.OAuth2AuthorizationRequestResolver;
 import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
 import org.springframework.security.web.DefaultRedirectStrategy;
 import org.springframework.security.web.RedirectStrategy;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 /**
  * Refresh oauth2 tokens.
+ * <p>
+ * Only API requests are filtered, and the authorized client is left alone until its access token is about to expire, so
+ * most requests neither authorize the client nor write the session. Concurrent requests of a session share the refresh.
  */
 @Component
 public class OAuth2RefreshTokensWebFilter extends OncePerRequestFilter {
 
+    private static final RequestMatcher API_REQUESTS = new OrRequestMatcher(
+        new AntPathRequestMatcher("/api/**"),
+        new AntPathRequestMatcher("/management/**")
+    );
+
     private final OAuth2AuthorizedClientManager clientManager;
     private final OAuth2AuthorizedClientRepository authorizedClientRepository;
     private final OAuth2AuthorizationRequestResolver authorizationRequestResolver;
     private final RedirectStrategy authorizationRedirectStrategy = new DefaultRedirectStrategy();
+    private final Clock clock;
+    private final ConcurrentMap<String, CompletableFuture<OAuth2AuthorizedClient>> refreshes = new ConcurrentHashMap<>();
 
+    @Autowired
     public OAuth2RefreshTokensWebFilter(
         OAuth2AuthorizedClientManager clientManager,
         OAuth2AuthorizedClientRepository authorizedClientRepository,
         ClientRegistrationRepository clientRegistrationRepository
+    ) {
+        this(clientManager, authorizedClientRepository, clientRegistrationRepository, Clock.systemUTC());
+    }
+
+    public OAuth2RefreshTokensWebFilter(
+        OAuth2AuthorizedClientManager clientManager,
+        OAuth2AuthorizedClientRepository authorizedClientRepository,
+        ClientRegistrationRepository clientRegistrationRepository,
+        Clock clock
     ) {
         this.clientManager = clientManager;
         this.authorizedClientRepository = authorizedClientRepository;
@@ -45,6 +77,12 @@ public class OAuth2RefreshTokensWebFilter extends OncePerRequestFilter {
                 clientRegistrationRepository,
                 OAuth2AuthorizationRequestRedirectFilter.DEFAULT_AUTHORIZATION_REQUEST_BASE_URI
             );
+        this.clock = clock;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !API_REQUESTS.matches(request);
     }
 
     @Override
@@ -52,14 +90,22 @@ public class OAuth2RefreshTokensWebFilter extends OncePerRequestFilter {
         throws IOException, ServletException {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if ((authentication instanceof OAuth2AuthenticationToken)) {
-            try {
-                OAuth2AuthorizedClient authorizedClient = authorizedClient((OAuth2AuthenticationToken) authentication);
-                this.authorizedClientRepository.saveAuthorizedClient(authorizedClient, authentication, request, response);
-            } catch (Exception e) {
-                OAuth2AuthorizationRequest authorizationRequest = this.authorizationRequestResolver.resolve(request);
-                if (authorizationRequest != null) {
-                    this.authorizationRedirectStrategy.sendRedirect(request, response, authorizationRequest.getAuthorizationRequestUri());
-                    return;
+            OAuth2AuthenticationToken oauth2Authentication = (OAuth2AuthenticationToken) authentication;
+            OAuth2AuthorizedClient current =
+                this.authorizedClientRepository.loadAuthorizedClient(
+                        oauth2Authentication.getAuthorizedClientRegistrationId(),
+                        authentication,
+                        request
+                    );
+            if (current == null || isExpiring(current.getAccessToken())) {
+                try {
+                    refresh(oauth2Authentication, current, request, response);
+                } catch (Exception e) {
+                    OAuth2AuthorizationRequest authorizationRequest = this.authorizationRequestResolver.resolve(request);
+                    if (authorizationRequest != null) {
+                        this.authorizationRedirectStrategy.sendRedirect(request, response, authorizationRequest.getAuthorizationRequestUri());
+                        return;
+                    }
                 }
             }
         }
@@ -67,6 +113,47 @@ public class OAuth2RefreshTokensWebFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Whether the access token is close enough to its expiration for the refresh token provider to renew it.
+     */
+    private boolean isExpiring(OAuth2AccessToken accessToken) {
+        Instant expiresAt = accessToken.getExpiresAt();
+        return expiresAt != null && !clock.instant().isBefore(expiresAt.minus(OAuth2Configuration.ACCESS_TOKEN_EXPIRES_SKEW));
+    }
+
+    /**
+     * Authorize the client and save it if it changed. Concurrent requests of the same session wait for the request
+     * refreshing it, which saves it for all of them, and fail if it fails.
+     */
+    private void refresh(
+        OAuth2AuthenticationToken oauth2Authentication,
+        OAuth2AuthorizedClient current,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) {
+        HttpSession session = request.getSession(false);
+        String key = session != null ? session.getId() : oauth2Authentication.getName();
+        CompletableFuture<OAuth2AuthorizedClient> future = new CompletableFuture<>();
+        CompletableFuture<OAuth2AuthorizedClient> existing = refreshes.putIfAbsent(key, future);
+        if (existing != null) {
+            // refreshed by a concurrent request of the same session, which saves the authorized client in the session
+            existing.join();
+            return;
+        }
+        try {
+            OAuth2AuthorizedClient authorizedClient = authorizedClient(oauth2Authentication);
+            if (authorizedClient != current) {
+                this.authorizedClientRepository.saveAuthorizedClient(authorizedClient, oauth2Authentication, request, response);
+            }
+            future.complete(authorizedClient);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshes.remove(key, future);
+        }
+    }
+
     private OAuth2AuthorizedClient authorizedClient(OAuth2AuthenticationToken oauth2Authentication) {
         String clientRegistrationId = oauth2Authentication.getAuthorizedClientRegistrationId();
         OAuth2AuthorizeRequest request = OAuth2AuthorizeRequest
@@ -2,7 +2,9 @@ package com.auth0.flickr2.web.rest;
 
 import com.auth0.flickr2.domain.Album;
 import com.auth0.flickr2.repository.AlbumRepository;
+import com.auth0.flickr2.service.PhotoSearchService;
 import com.auth0.flickr2.web.rest.errors.BadRequestAlertException;
+import com.auth0.flickr2.web.rest.util.KeysetPaginationUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -14,7 +16,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -42,8 +46,11 @@ public class AlbumResource {
 
     private final AlbumRepository albumRepository;
 
-    public AlbumResource(AlbumRepository albumRepository) {
+    private final PhotoSearchService photoSearchService;
+
+    public AlbumResource(AlbumRepository albumRepository, PhotoSearchService photoSearchService) {
         this.albumRepository = albumRepository;
+        this.photoSearchService = photoSearchService;
     }
 
     /**
@@ -92,6 +99,7 @@ public class AlbumResource {
         }
 
         Album result = albumRepository.save(album);
+        photoSearchService.indexAlbum(id);
         return ResponseEntity
             .ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, album.getId().toString()))
@@ -142,6 +150,7 @@ public class AlbumResource {
                 return existingAlbum;
             })
             .map(albumRepository::save);
+        photoSearchService.indexAlbum(id);
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -163,6 +172,42 @@ public class AlbumResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /albums?after=:cursor} : get the albums, newest first, after the given cursor.
+     * <p>
+     * The albums are paginated on their {@code id}, see {@link KeysetPaginationUtil}: they are not counted, and the
+     * {@code Link} header gives the next page.
+     *
+     * @param after the cursor of the page, empty for the first page.
+     * @param pageable the pagination information, only its size is used.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of albums in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is invalid.
+     */
+    @GetMapping(value = "/albums", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<Album>> getAlbumsAfter(@RequestParam String after, Pageable pageable) {
+        log.debug("REST request to get a slice of Albums after : {}", after);
+        Pageable slice = PageRequest.of(0, pageable.getPageSize());
+        Slice<Album> albums;
+        if (after.isEmpty()) {
+            albums = albumRepository.findAllNewestFirst(slice);
+        } else {
+            Long id;
+            try {
+                id = Long.valueOf(KeysetPaginationUtil.decodeCursor(after, 1).get(0));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+            }
+            albums = albumRepository.findAllNewestFirstBefore(id, slice);
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            albums,
+            album -> KeysetPaginationUtil.encodeCursor(album.getId())
+        );
+        return ResponseEntity.ok().headers(headers).body(albums.getContent());
+    }
+
     /**
      * {@code GET  /albums/:id} : get the "id" album.
      *
@@ -0,0 +1,265 @@
+package com.auth0.flickr2.web.rest;
+
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.repository.PhotoContentRepository;
+import com.auth0.flickr2.service.ImageContentTypes;
+import com.auth0.flickr2.service.PhotoDerivativeService;
+import com.auth0.flickr2.web.rest.errors.BadRequestAlertException;
+import com.auth0.flickr2.web.rest.util.FileTransferUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * REST controller serving the binary content of {@link com.auth0.flickr2.domain.Photo}.
+ * <p>
+ * No transaction is held while a derivative is generated or the content is sent: the images and derivatives are looked
+ * up in short read-only transactions, and only the images still stored in the database are streamed within one.
+ */
+@RestController
+@RequestMapping("/api")
+public class PhotoContentResource {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoContentResource.class);
+
+    private static final String ENTITY_NAME = "photo";
+
+    /**
+     * {@code Cache-Control} of the content-addressed URLs, whose content never changes.
+     */
+    static final String IMMUTABLE_CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+    /**
+     * {@code Cache-Control} of the other URLs, whose content must be revalidated with its {@code ETag}.
+     */
+    static final String REVALIDATE_CACHE_CONTROL = "private, no-cache";
+
+    private final PhotoContentRepository photoContentRepository;
+
+    private final PhotoDerivativeService photoDerivativeService;
+
+    private final BlobStore blobStore;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public PhotoContentResource(
+        PhotoContentRepository photoContentRepository,
+        PhotoDerivativeService photoDerivativeService,
+        BlobStore blobStore,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.photoContentRepository = photoContentRepository;
+        this.photoDerivativeService = photoDerivativeService;
+        this.blobStore = blobStore;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * {@code GET  /photos/:id/content} : get the image of the "id" photo.
+     * <p>
+     * The image is sent with its {@code Content-Type} and {@code Content-Length}: straight from its file with
+     * {@code sendfile} when the blob store keeps it in a local one, streamed to the response otherwise. Its
+     * {@code Content-Type} is only ever a raster image type, sent with {@code X-Content-Type-Options: nosniff} and an
+     * inline {@code Content-Disposition}, so no script can run from it.
+     * When a {@code size} is given, the derivative with that long edge is served instead, generated first if missing;
+     * the original is served if it can't be generated.
+     * <p>
+     * The response has a strong {@code ETag} derived from the digest of the image and a {@code Last-Modified} date,
+     * the upload date of the photo, so conditional requests get {@code 304 (Not Modified)}. A single byte range
+     * can be requested with {@code Range}. When {@code v} is the digest of the image the URL is content-addressed:
+     * the response can be cached forever.
+     *
+     * @param id the id of the photo to retrieve the image of.
+     * @param size the long edge, in pixels, of the derivative to retrieve.
+     * @param version the digest of the image, making the URL content-addressed.
+     * @param request the HTTP request.
+     * @param response the HTTP response the image is written to.
+     * @throws IOException if the image couldn't be written to the response.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the size is not a derivative size.
+     * @throws ResponseStatusException {@code 404 (Not Found)} if the photo is not found.
+     */
+    @GetMapping("/photos/{id}/content")
+    public void getPhotoContent(
+        @PathVariable Long id,
+        @RequestParam(required = false) Integer size,
+        @RequestParam(name = "v", required = false) String version,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        log.debug("REST request to get Photo content : {}, size : {}", id, size);
+        if (size != null && !photoDerivativeService.isSupportedSize(size)) {
+            throw new BadRequestAlertException("Unsupported size", ENTITY_NAME, "sizeinvalid");
+        }
+        PhotoContentRepository.StoredImage image = readOnlyTransactionTemplate
+            .execute(status -> photoContentRepository.findImage(id))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        boolean derivative = size != null && photoDerivativeService.ensureDerivative(id, size);
+
+        String digest = image.getDigest();
+        boolean contentAddressed = digest != null && digest.equals(version) && (size == null || derivative);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, contentAddressed ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+        String etag = digest == null ? null : "\"" + (derivative ? digest + "-" + size : digest) + "\"";
+        long lastModified = image.getUploaded() == null ? -1 : image.getUploaded().toEpochMilli();
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String fileName = derivative ? "photo-" + id + "-" + size : "photo-" + id;
+
+        PhotoContentRepository.ImageContentHandler handler = (contentType, contentLength, content) -> {
+            long[] range = writeHeaders(request, response, contentType, fileName, contentLength, etag, lastModified);
+            if (range != null) {
+                StreamUtils.copyRange(content, response.getOutputStream(), range[0], range[0] + range[1] - 1);
+            }
+        };
+        Optional<PhotoContentRepository.StoredImage> stored = derivative
+            ? readOnlyTransactionTemplate.execute(status -> photoContentRepository.findDerivative(id, size))
+            : Optional.empty();
+        if (stored.isEmpty() && digest != null) {
+            stored = Optional.of(image);
+        }
+        if (stored.isPresent()) {
+            sendBlob(request, response, stored.get(), fileName, handler, etag, lastModified);
+            return;
+        }
+        boolean found;
+        try {
+            found =
+                readOnlyTransactionTemplate.execute(status -> {
+                    try {
+                        return photoContentRepository.streamImage(id, handler);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!found) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Send an image or derivative kept in the blob store: straight from its file when it is a local one, streamed from the
+     * blob store to the handler otherwise.
+     */
+    private void sendBlob(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        PhotoContentRepository.StoredImage stored,
+        String fileName,
+        PhotoContentRepository.ImageContentHandler handler,
+        String etag,
+        long lastModified
+    ) throws IOException {
+        Optional<Path> file = blobStore.findLocalFile(stored.getDigest());
+        if (file.isPresent()) {
+            long[] range = writeHeaders(request, response, stored.getContentType(), fileName, stored.getSize(), etag, lastModified);
+            if (range != null) {
+                FileTransferUtil.sendFile(response, file.get(), range[0], range[1]);
+            }
+            return;
+        }
+        try (InputStream content = blobStore.open(stored.getDigest())) {
+            handler.handle(stored.getContentType(), stored.getSize(), content);
+        }
+    }
+
+    /**
+     * Set the status and headers of the response for the requested range of the content. The stored content type is
+     * checked again, for the images stored before it was restricted on upload.
+     *
+     * @return the position and length of the range to send, or {@code null} if the range is not satisfiable.
+     */
+    private static long[] writeHeaders(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        String contentType,
+        String fileName,
+        long contentLength,
+        String etag,
+        long lastModified
+    ) {
+        String safeContentType = ImageContentTypes.safeContentType(contentType);
+        response.setContentType(safeContentType);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.inline().filename(fileName + ImageContentTypes.fileExtension(safeContentType)).build().toString()
+        );
+        HttpRange range = requestedRange(request, etag, lastModified);
+        if (range == null) {
+            response.setContentLengthLong(contentLength);
+            return new long[] { 0, contentLength };
+        }
+        long start;
+        long end;
+        try {
+            start = range.getRangeStart(contentLength);
+            end = range.getRangeEnd(contentLength);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+            return null;
+        }
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + contentLength);
+        response.setContentLengthLong(end - start + 1);
+        return new long[] { start, end - start + 1 };
+    }
+
+    /**
+     * Get the single range of the {@code Range} header, unless the {@code If-Range} validator doesn't match
+     * the current content. Multiple ranges are not supported: the whole content is sent instead.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(request, ifRange, etag, lastModified)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String ifRange, String etag, long lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return lastModified >= 0 && request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,38 +1,73 @@
 package com.auth0.flickr2.web.rest;
 
+import com.auth0.flickr2.config.ApplicationProperties;
 import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.domain.Tag;
+import com.auth0.flickr2.repository.AlbumRepository;
+import com.auth0.flickr2.repository.BlobStore;
 import com.auth0.flickr2.repository.PhotoRepository;
+import com.auth0.flickr2.repository.TagRepository;
+import com.auth0.flickr2.security.AuthoritiesConstants;
+import com.auth0.flickr2.service.IdBitmap;
+import com.auth0.flickr2.service.PhotoBulkUploadService;
+import com.auth0.flickr2.service.PhotoMetadataExtractor;
+import com.auth0.flickr2.service.PhotoSearchService;
+import com.auth0.flickr2.service.PhotoService;
+import com.auth0.flickr2.service.PhotoTagIndex;
+import com.auth0.flickr2.service.dto.AlbumPhotoCountDTO;
+import com.auth0.flickr2.service.dto.PhotoBulkUploadResultDTO;
+import com.auth0.flickr2.service.dto.PhotoSearchHitDTO;
+import com.auth0.flickr2.service.dto.PhotoSummaryDTO;
 import com.auth0.flickr2.web.rest.errors.BadRequestAlertException;
-import com.drew.imaging.ImageMetadataReader;
+import com.auth0.flickr2.web.rest.util.KeysetPaginationUtil;
 import com.drew.imaging.ImageProcessingException;
-import com.drew.metadata.Metadata;
-import com.drew.metadata.MetadataException;
-import com.drew.metadata.exif.ExifSubIFDDirectory;
-import com.drew.metadata.jpeg.JpegDirectory;
-import java.io.BufferedInputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.DateTimeException;
 import java.time.Instant;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import javax.validation.Validator;
 import javax.validation.constraints.NotNull;
-import javax.xml.bind.DatatypeConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -50,13 +85,84 @@ public class PhotoResource {
 
     private static final String ENTITY_NAME = "photo";
 
+    /**
+     * Value of the {@code fields} request parameter selecting the {@link PhotoSummaryDTO} representation.
+     */
+    public static final String SUMMARY_FIELDS = "summary";
+
+    /**
+     * Request parameter with the names of the tags of the photos to find.
+     */
+    public static final String TAGS_PARAMETER = "tags";
+
+    /**
+     * Value of the {@code mode} request parameter finding the photos having all the tags.
+     */
+    public static final String ALL_TAGS_MODE = "all";
+
+    /**
+     * Value of the {@code mode} request parameter finding the photos having any of the tags.
+     */
+    public static final String ANY_TAG_MODE = "any";
+
+    /**
+     * Header telling whether the {@code X-Total-Count} header of a search is exact, {@code eq}, or a lower bound, {@code gte}.
+     */
+    public static final String TOTAL_COUNT_RELATION_HEADER = "X-Total-Count-Relation";
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final PhotoRepository photoRepository;
 
-    public PhotoResource(PhotoRepository photoRepository) {
+    private final AlbumRepository albumRepository;
+
+    private final TagRepository tagRepository;
+
+    private final PhotoTagIndex photoTagIndex;
+
+    private final PhotoSearchService photoSearchService;
+
+    private final PhotoService photoService;
+
+    private final PhotoBulkUploadService photoBulkUploadService;
+
+    private final BlobStore blobStore;
+
+    private final PhotoMetadataExtractor photoMetadataExtractor;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final int bulkMaxFiles;
+
+    public PhotoResource(
+        PhotoRepository photoRepository,
+        AlbumRepository albumRepository,
+        TagRepository tagRepository,
+        PhotoTagIndex photoTagIndex,
+        PhotoSearchService photoSearchService,
+        PhotoService photoService,
+        PhotoBulkUploadService photoBulkUploadService,
+        PhotoMetadataExtractor photoMetadataExtractor,
+        BlobStore blobStore,
+        Validator validator,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
         this.photoRepository = photoRepository;
+        this.albumRepository = albumRepository;
+        this.tagRepository = tagRepository;
+        this.photoTagIndex = photoTagIndex;
+        this.photoSearchService = photoSearchService;
+        this.photoService = photoService;
+        this.photoBulkUploadService = photoBulkUploadService;
+        this.photoMetadataExtractor = photoMetadataExtractor;
+        this.blobStore = blobStore;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.bulkMaxFiles = applicationProperties.getPhotoUploads().getBulkMaxFiles();
     }
 
     /**
@@ -72,49 +178,141 @@ public class PhotoResource {
         if (photo.getId() != null) {
             throw new BadRequestAlertException("A new photo cannot already have an ID", ENTITY_NAME, "idexists");
         }
+        storeImage(photo);
 
         try {
-            photo = setMetadata(photo);
+            photoMetadataExtractor.setMetadata(photo, new ByteArrayInputStream(photo.getImage()));
         } catch (ImageProcessingException ipe) {
             log.error(ipe.getMessage());
         }
 
-        Photo result = photoRepository.save(photo);
+        Photo result = photoService.create(photo);
         return ResponseEntity
             .created(new URI("/api/photos/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
             .body(result);
     }
 
-    private Photo setMetadata(Photo photo) throws ImageProcessingException, IOException, MetadataException {
-        String str = DatatypeConverter.printBase64Binary(photo.getImage());
-        byte[] data2 = DatatypeConverter.parseBase64Binary(str);
-        InputStream inputStream = new ByteArrayInputStream(data2);
-        BufferedInputStream bis = new BufferedInputStream(inputStream);
-        Metadata metadata = ImageMetadataReader.readMetadata(bis);
-        ExifSubIFDDirectory directory = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
-
-        if (directory != null) {
-            Date date = directory.getDateDigitized();
-            if (date != null) {
-                photo.setTaken(date.toInstant());
-            }
+    /**
+     * {@code POST  /photos} : Upload a new photo as {@code multipart/form-data}.
+     * <p>
+     * The image is streamed from the {@code file} part, which the servlet container keeps on disk, to the blob store,
+     * and its metadata is read from the stored file: it is never held on the heap.
+     *
+     * @param file the image of the photo.
+     * @param photo the photo to create, without its image; its title defaults to the file name.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new photo,
+     * or with status {@code 400 (Bad Request)} if the photo has already an ID, has no image or is not valid.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     * @throws IOException if the image couldn't be stored.
+     */
+    @PostMapping(value = "/photos", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Photo> uploadPhoto(
+        @RequestPart("file") MultipartFile file,
+        @RequestPart(value = "photo", required = false) Photo photo
+    ) throws URISyntaxException, IOException {
+        log.debug("REST request to upload Photo : {}, file : {}", photo, file.getOriginalFilename());
+        if (photo == null) {
+            photo = new Photo().title(file.getOriginalFilename());
         }
-
-        if (photo.getTaken() == null) {
-            log.debug("Photo EXIF date digitized not available, setting taken on date to now...");
-            photo.setTaken(Instant.now());
+        if (photo.getId() != null) {
+            throw new BadRequestAlertException("A new photo cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+        if (file.isEmpty()) {
+            throw new BadRequestAlertException("An image is required", ENTITY_NAME, "imagenull");
+        }
+        photo.setImageContentType(file.getContentType() != null ? file.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        Set<ConstraintViolation<Photo>> violations = validator.validate(photo);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
         }
 
+        BlobStore.Blob blob;
+        try (InputStream content = file.getInputStream()) {
+            blob = blobStore.put(content);
+        }
+        photo.setImageSha256(blob.getDigest());
+        photo.setImageSize(blob.getSize());
         photo.setUploaded(Instant.now());
+        try (InputStream content = blobStore.open(blob.getDigest())) {
+            photoMetadataExtractor.setMetadata(photo, content);
+        } catch (ImageProcessingException ipe) {
+            log.error(ipe.getMessage());
+        }
+
+        Photo result = photoService.create(photo);
+        return ResponseEntity
+            .created(new URI("/api/photos/" + result.getId()))
+            .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
+            .body(result);
+    }
 
-        JpegDirectory jpgDirectory = metadata.getFirstDirectoryOfType(JpegDirectory.class);
-        if (jpgDirectory != null) {
-            photo.setHeight(jpgDirectory.getImageHeight());
-            photo.setWidth(jpgDirectory.getImageWidth());
+    /**
+     * {@code POST  /photos/_bulk} : Upload many new photos as {@code multipart/form-data}, one per {@code files} part.
+     * <p>
+     * The images are stored and their metadata extracted in parallel, then the photos are saved by batches, see
+     * {@link PhotoBulkUploadService}. The response is streamed as newline-delimited JSON, one
+     * {@link PhotoBulkUploadResultDTO} per image, in completion order: the {@code index} of each result is the position
+     * of its image in the request.
+     *
+     * @param files the images of the photos, their file names being the titles of the photos.
+     * @param albumId the id of the album of the photos, if any.
+     * @param response the response the results are written to, with status {@code 200 (OK)},
+     * or with status {@code 400 (Bad Request)} if there are no images or too many of them,
+     * or with status {@code 404 (Not Found)} if the album doesn't exist.
+     * @throws IOException if the results couldn't be written.
+     * @throws InterruptedException if the request thread was interrupted.
+     */
+    @PostMapping(value = "/photos/_bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void uploadPhotos(
+        @RequestPart(value = "files", required = false) List<MultipartFile> files,
+        @RequestParam(required = false) Long albumId,
+        HttpServletResponse response
+    ) throws IOException, InterruptedException {
+        log.debug("REST request to upload Photos : {}, album : {}", files != null ? files.size() : 0, albumId);
+        if (files == null || files.isEmpty()) {
+            throw new BadRequestAlertException("An image is required", ENTITY_NAME, "imagenull");
+        }
+        if (files.size() > bulkMaxFiles) {
+            throw new BadRequestAlertException("Too many images, at most " + bulkMaxFiles + " are accepted", ENTITY_NAME, "imagestoomany");
         }
+        if (albumId != null && !albumRepository.existsById(albumId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        List<PhotoBulkUploadService.Image> images = files
+            .stream()
+            .map(file -> new PhotoBulkUploadService.Image(file.getOriginalFilename(), file.getContentType(), file))
+            .collect(Collectors.toList());
 
-        return photo;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        photoBulkUploadService.upload(
+            images,
+            albumId,
+            result -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        );
+    }
+
+    /**
+     * Store the uploaded image in the blob store, and keep its digest and size on the photo.
+     */
+    private void storeImage(Photo photo) throws IOException {
+        if (photo.getImage() == null) {
+            throw new BadRequestAlertException("An image is required", ENTITY_NAME, "imagenull");
+        }
+        BlobStore.Blob blob = blobStore.put(new ByteArrayInputStream(photo.getImage()));
+        photo.setImageSha256(blob.getDigest());
+        photo.setImageSize(blob.getSize());
     }
 
     /**
@@ -129,7 +327,7 @@ public class PhotoResource {
      */
     @PutMapping("/photos/{id}")
     public ResponseEntity<Photo> updatePhoto(@PathVariable(value = "id", required = false) final Long id, @Valid @RequestBody Photo photo)
-        throws URISyntaxException {
+        throws URISyntaxException, IOException {
         log.debug("REST request to update Photo : {}, {}", id, photo);
         if (photo.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
@@ -138,11 +336,24 @@ public class PhotoResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!photoRepository.existsById(id)) {
+        Optional<Photo> existingPhoto = photoRepository.findById(id);
+        if (existingPhoto.isEmpty()) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
 
-        Photo result = photoRepository.save(photo);
+        Set<Tag> previousTags = new HashSet<>(existingPhoto.get().getTags());
+
+        // the image is not part of the JSON representation, keep the stored one when none is sent
+        String existingDigest = existingPhoto.get().getImageSha256();
+        if (photo.getImage() == null) {
+            photo.setImageSha256(existingDigest);
+            photo.setImageSize(existingPhoto.get().getImageSize());
+            photo.setImageContentType(existingPhoto.get().getImageContentType());
+        } else {
+            storeImage(photo);
+        }
+
+        Photo result = photoService.update(photo, previousTags, existingDigest);
         return ResponseEntity
             .ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, photo.getId().toString()))
@@ -164,7 +375,7 @@ public class PhotoResource {
     public ResponseEntity<Photo> partialUpdatePhoto(
         @PathVariable(value = "id", required = false) final Long id,
         @NotNull @RequestBody Photo photo
-    ) throws URISyntaxException {
+    ) throws URISyntaxException, IOException {
         log.debug("REST request to partial update Photo partially : {}, {}", id, photo);
         if (photo.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
@@ -177,17 +388,24 @@ public class PhotoResource {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
 
+        if (photo.getImage() != null) {
+            storeImage(photo);
+        }
+
         Optional<Photo> result = photoRepository
             .findById(photo.getId())
             .map(existingPhoto -> {
+                Set<Tag> previousTags = new HashSet<>(existingPhoto.getTags());
+                String existingDigest = existingPhoto.getImageSha256();
                 if (photo.getTitle() != null) {
                     existingPhoto.setTitle(photo.getTitle());
                 }
                 if (photo.getDescription() != null) {
                     existingPhoto.setDescription(photo.getDescription());
                 }
-                if (photo.getImage() != null) {
-                    existingPhoto.setImage(photo.getImage());
+                if (photo.getImageSha256() != null) {
+                    existingPhoto.setImageSha256(photo.getImageSha256());
+                    existingPhoto.setImageSize(photo.getImageSize());
                 }
                 if (photo.getImageContentType() != null) {
                     existingPhoto.setImageContentType(photo.getImageContentType());
@@ -205,9 +423,8 @@ public class PhotoResource {
                     existingPhoto.setUploaded(photo.getUploaded());
                 }
 
-                return existingPhoto;
-            })
-            .map(photoRepository::save);
+                return photoService.update(existingPhoto, previousTags, existingDigest);
+            });
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -238,6 +455,282 @@ public class PhotoResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /photos?fields=summary} : get the metadata of all the photos.
+     * <p>
+     * Only the columns of {@link PhotoSummaryDTO} are selected, so neither the image nor the description are loaded.
+     *
+     * @param pageable the pagination information.
+     * @param fields the representation of the photos, only {@value #SUMMARY_FIELDS} is supported.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of photo summaries in body,
+     * or with status {@code 400 (Bad Request)} if the fields are not supported.
+     */
+    @GetMapping(value = "/photos", params = { "fields", "!" + KeysetPaginationUtil.AFTER_PARAMETER, "!" + TAGS_PARAMETER })
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<PhotoSummaryDTO>> getAllPhotoSummaries(Pageable pageable, @RequestParam String fields) {
+        log.debug("REST request to get a page of Photo summaries");
+        if (!SUMMARY_FIELDS.equals(fields)) {
+            throw new BadRequestAlertException("Unsupported fields", ENTITY_NAME, "fieldsinvalid");
+        }
+        Page<PhotoSummaryDTO> page = photoRepository.findAllSummaries(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /photos?after=:cursor} : get the photos, newest first, after the given cursor.
+     * <p>
+     * The photos are paginated on their {@code (uploaded, id)}, see {@link KeysetPaginationUtil}: they are not counted,
+     * and the {@code Link} header gives the next page. The photos without upload date come last.
+     *
+     * @param after the cursor of the page, empty for the first page.
+     * @param pageable the pagination information, only its size is used.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of photos in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is invalid.
+     */
+    @GetMapping(value = "/photos", params = { KeysetPaginationUtil.AFTER_PARAMETER, "!fields", "!" + TAGS_PARAMETER })
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<Photo>> getPhotosAfter(@RequestParam String after, Pageable pageable) {
+        log.debug("REST request to get a slice of Photos after : {}", after);
+        Pageable slice = PageRequest.of(0, pageable.getPageSize());
+        Slice<Photo> photos;
+        if (after.isEmpty()) {
+            photos = photoRepository.findAllNewestFirst(slice);
+        } else {
+            photos =
+                PhotoCursor
+                    .decode(after)
+                    .findAfter(slice, photoRepository::findAllUploadedBefore, photoRepository::findAllWithoutUploadedBefore);
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            photos,
+            photo -> KeysetPaginationUtil.encodeCursor(photo.getUploaded(), photo.getId())
+        );
+        return ResponseEntity.ok().headers(headers).body(photos.getContent());
+    }
+
+    /**
+     * {@code GET  /photos?fields=summary&after=:cursor} : get the metadata of the photos, newest first, after the given cursor.
+     *
+     * @param after the cursor of the page, empty for the first page.
+     * @param pageable the pagination information, only its size is used.
+     * @param fields the representation of the photos, only {@value #SUMMARY_FIELDS} is supported.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of photo summaries in body,
+     * or with status {@code 400 (Bad Request)} if the cursor or the fields are invalid.
+     * @see #getPhotosAfter(String, Pageable)
+     */
+    @GetMapping(value = "/photos", params = { KeysetPaginationUtil.AFTER_PARAMETER, "fields", "!" + TAGS_PARAMETER })
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<PhotoSummaryDTO>> getPhotoSummariesAfter(
+        @RequestParam String after,
+        Pageable pageable,
+        @RequestParam String fields
+    ) {
+        log.debug("REST request to get a slice of Photo summaries after : {}", after);
+        if (!SUMMARY_FIELDS.equals(fields)) {
+            throw new BadRequestAlertException("Unsupported fields", ENTITY_NAME, "fieldsinvalid");
+        }
+        Pageable slice = PageRequest.of(0, pageable.getPageSize());
+        Slice<PhotoSummaryDTO> photos;
+        if (after.isEmpty()) {
+            photos = photoRepository.findAllSummariesNewestFirst(slice);
+        } else {
+            photos =
+                PhotoCursor
+                    .decode(after)
+                    .findAfter(
+                        slice,
+                        photoRepository::findAllSummariesUploadedBefore,
+                        photoRepository::findAllSummariesWithoutUploadedBefore
+                    );
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            photos,
+            photo -> KeysetPaginationUtil.encodeCursor(photo.getUploaded(), photo.getId())
+        );
+        return ResponseEntity.ok().headers(headers).body(photos.getContent());
+    }
+
+    /**
+     * {@code GET  /photos?tags=:names&mode=all|any} : get the metadata of the photos having all, or any, of the given tags.
+     * <p>
+     * The photos are found in the {@link PhotoTagIndex}, most recently created first, then only the photos of the page
+     * are selected, by id. The {@code sort} request parameter is ignored.
+     *
+     * @param tags the names of the tags, case-insensitive.
+     * @param mode {@value #ALL_TAGS_MODE}, the default, or {@value #ANY_TAG_MODE}.
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of photo summaries in body,
+     * or with status {@code 400 (Bad Request)} if the mode is invalid.
+     */
+    @GetMapping(value = "/photos", params = TAGS_PARAMETER)
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<PhotoSummaryDTO>> getPhotoSummariesByTags(
+        @RequestParam(TAGS_PARAMETER) Set<String> tags,
+        @RequestParam(defaultValue = ALL_TAGS_MODE) String mode,
+        Pageable pageable
+    ) {
+        log.debug("REST request to get a page of Photo summaries by tags : {}, {}", tags, mode);
+        if (!ALL_TAGS_MODE.equals(mode) && !ANY_TAG_MODE.equals(mode)) {
+            throw new BadRequestAlertException("Unsupported mode", ENTITY_NAME, "modeinvalid");
+        }
+        Map<String, List<Long>> tagIdsByName = new HashMap<>();
+        tags.forEach(name -> tagIdsByName.put(name.toLowerCase(Locale.ROOT), new ArrayList<>()));
+        if (!tagIdsByName.isEmpty()) {
+            for (Tag tag : tagRepository.findAllByLowerCaseNameIn(tagIdsByName.keySet())) {
+                tagIdsByName.computeIfPresent(tag.getName().toLowerCase(Locale.ROOT), (name, ids) -> {
+                    ids.add(tag.getId());
+                    return ids;
+                });
+            }
+        }
+
+        // intersect the smallest sets first
+        List<IdBitmap> photoIdsByName = tagIdsByName
+            .values()
+            .stream()
+            .map(photoTagIndex::findPhotoIdsWithAnyTag)
+            .sorted(Comparator.comparingInt(IdBitmap::cardinality))
+            .collect(Collectors.toList());
+        IdBitmap photoIds = new IdBitmap();
+        if (!photoIdsByName.isEmpty()) {
+            photoIds = photoIdsByName.get(0);
+            for (IdBitmap others : photoIdsByName.subList(1, photoIdsByName.size())) {
+                if (ALL_TAGS_MODE.equals(mode)) {
+                    photoIds.and(others);
+                } else {
+                    photoIds.or(others);
+                }
+            }
+        }
+
+        List<Long> ids = photoIds.descending(pageable.getOffset(), pageable.getPageSize());
+        List<PhotoSummaryDTO> content = new ArrayList<>();
+        if (!ids.isEmpty()) {
+            Map<Long, PhotoSummaryDTO> photos = new HashMap<>();
+            photoRepository.findAllSummariesByIdIn(ids).forEach(photo -> photos.put(photo.getId(), photo));
+            ids.stream().map(photos::get).filter(Objects::nonNull).forEach(content::add);
+        }
+        Page<PhotoSummaryDTO> page = new PageImpl<>(content, pageable, photoIds.cardinality());
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code SEARCH  /_search/photos?q=:query} : search the titles and descriptions of the photos, and of their albums.
+     *
+     * The matches are counted up to {@link PhotoSearchService#MAX_COUNTED_HITS}: from there, the {@code X-Total-Count}
+     * header is a lower bound, and the {@value #TOTAL_COUNT_RELATION_HEADER} header is {@code gte} instead of {@code eq}.
+     *
+     * @param q the query, in the Lucene query syntax.
+     * @param pageable the pagination information, its sort is ignored: the best matches come first.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of matching photos in body,
+     * with their metadata and highlights, or with status {@code 400 (Bad Request)} if the query is invalid, or if the page
+     * goes beyond the first {@link PhotoSearchService#MAX_RESULT_WINDOW} matches.
+     */
+    @GetMapping("/_search/photos")
+    public ResponseEntity<List<PhotoSearchHitDTO>> searchPhotos(@RequestParam String q, Pageable pageable) {
+        log.debug("REST request to search for a page of Photos for query {}", q);
+        if (pageable.getOffset() + pageable.getPageSize() > PhotoSearchService.MAX_RESULT_WINDOW) {
+            throw new BadRequestAlertException(
+                "Page goes beyond the first " + PhotoSearchService.MAX_RESULT_WINDOW + " matches",
+                ENTITY_NAME,
+                "searchwindowexceeded"
+            );
+        }
+        Page<PhotoSearchHitDTO> page;
+        try {
+            page = photoSearchService.search(q, pageable);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid query", ENTITY_NAME, "queryinvalid");
+        }
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        headers.add(TOTAL_COUNT_RELATION_HEADER, page.getTotalElements() >= PhotoSearchService.MAX_COUNTED_HITS ? "gte" : "eq");
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code POST  /_search/photos/_reindex} : index all the photos again, in the background.
+     *
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)}.
+     */
+    @PostMapping("/_search/photos/_reindex")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Void> reindexPhotos() {
+        log.debug("REST request to reindex all Photos");
+        photoSearchService.reindexAllAsync();
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * {@code GET  /albums/:albumId/photos} : get the metadata of the photos of the "albumId" album, newest first.
+     * <p>
+     * The photos are selected on their {@code album_id} and paginated like {@link #getPhotosAfter(String, Pageable)}.
+     *
+     * @param albumId the id of the album.
+     * @param after the cursor of the page, empty or absent for the first page.
+     * @param pageable the pagination information, only its size is used.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of photo summaries in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is invalid,
+     * or with status {@code 404 (Not Found)} if the album is not found.
+     */
+    @GetMapping("/albums/{albumId}/photos")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<PhotoSummaryDTO>> getAlbumPhotoSummaries(
+        @PathVariable Long albumId,
+        @RequestParam(name = KeysetPaginationUtil.AFTER_PARAMETER, defaultValue = "") String after,
+        Pageable pageable
+    ) {
+        log.debug("REST request to get a slice of Photo summaries of Album {} after : {}", albumId, after);
+        if (!albumRepository.existsById(albumId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        Pageable slice = PageRequest.of(0, pageable.getPageSize());
+        Slice<PhotoSummaryDTO> photos;
+        if (after.isEmpty()) {
+            photos = photoRepository.findAllSummariesInAlbumNewestFirst(albumId, slice);
+        } else {
+            photos =
+                PhotoCursor
+                    .decode(after)
+                    .findAfter(
+                        slice,
+                        (uploaded, id, page) -> photoRepository.findAllSummariesInAlbumUploadedBefore(albumId, uploaded, id, page),
+                        (id, page) -> photoRepository.findAllSummariesInAlbumWithoutUploadedBefore(albumId, id, page)
+                    );
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            photos,
+            photo -> KeysetPaginationUtil.encodeCursor(photo.getUploaded(), photo.getId())
+        );
+        return ResponseEntity.ok().headers(headers).body(photos.getContent());
+    }
+
+    /**
+     * {@code GET  /albums/photo-counts?ids=:ids} : get the number of photos of albums.
+     *
+     * @param ids the ids of the albums.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the number of photos of each album in body,
+     * albums without photos included.
+     */
+    @GetMapping("/albums/photo-counts")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<AlbumPhotoCountDTO>> getAlbumPhotoCounts(@RequestParam Set<Long> ids) {
+        log.debug("REST request to get the number of Photos of Albums : {}", ids);
+        Map<Long, Long> counts = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (AlbumPhotoCountDTO count : photoRepository.countPhotosByAlbumIdIn(ids)) {
+                counts.put(count.getAlbumId(), count.getPhotoCount());
+            }
+        }
+        return ResponseEntity.ok(
+            ids.stream().map(id -> new AlbumPhotoCountDTO(id, counts.getOrDefault(id, 0L))).collect(Collectors.toList())
+        );
+    }
+
     /**
      * {@code GET  /photos/:id} : get the "id" photo.
      *
@@ -260,10 +753,68 @@ public class PhotoResource {
     @DeleteMapping("/photos/{id}")
     public ResponseEntity<Void> deletePhoto(@PathVariable Long id) {
         log.debug("REST request to delete Photo : {}", id);
-        photoRepository.deleteById(id);
+        photoService.delete(id);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
             .build();
     }
+
+    /**
+     * Keyset pagination cursor of the photos: the upload date, if any, and id of the last photo of the previous page.
+     * <p>
+     * The photos with an upload date and the photos without one are selected by distinct queries, each a range of the
+     * index sorted like the pagination: a page continues with the first photos without upload date once the others are
+     * exhausted.
+     */
+    private static final class PhotoCursor {
+
+        private final Instant uploaded;
+
+        private final Long id;
+
+        private PhotoCursor(Instant uploaded, Long id) {
+            this.uploaded = uploaded;
+            this.id = id;
+        }
+
+        private <T> Slice<T> findAfter(
+            Pageable slice,
+            UploadedBeforeQuery<T> uploadedBefore,
+            BiFunction<Long, Pageable, Slice<T>> withoutUploadedBefore
+        ) {
+            if (uploaded == null) {
+                return withoutUploadedBefore.apply(id, slice);
+            }
+            Slice<T> photos = uploadedBefore.find(uploaded, id, slice);
+            if (photos.hasNext()) {
+                return photos;
+            }
+            int remaining = slice.getPageSize() - photos.getNumberOfElements();
+            Slice<T> withoutUploaded = withoutUploadedBefore.apply(Long.MAX_VALUE, PageRequest.of(0, Math.max(remaining, 1)));
+            if (remaining == 0) {
+                return new SliceImpl<>(photos.getContent(), slice, withoutUploaded.hasContent());
+            }
+            List<T> content = new ArrayList<>(photos.getContent());
+            content.addAll(withoutUploaded.getContent());
+            return new SliceImpl<>(content, slice, withoutUploaded.hasNext());
+        }
+
+        private static PhotoCursor decode(String cursor) {
+            try {
+                List<String> keys = KeysetPaginationUtil.decodeCursor(cursor, 2);
+                return new PhotoCursor(keys.get(0) != null ? Instant.parse(keys.get(0)) : null, Long.valueOf(keys.get(1)));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+            }
+        }
+    }
+
+    /**
+     * Query of the photos uploaded before a keyset pagination cursor.
+     */
+    @FunctionalInterface
+    private interface UploadedBeforeQuery<T> {
+        Slice<T> find(Instant uploaded, Long id, Pageable pageable);
+    }
 }
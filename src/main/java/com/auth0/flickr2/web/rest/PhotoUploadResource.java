@@ -0,0 +1,222 @@
+package com.auth0.flickr2.web.rest;
+
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.service.PhotoMetadataExtractor;
+import com.auth0.flickr2.service.PhotoService;
+import com.auth0.flickr2.service.PhotoUploadException;
+import com.auth0.flickr2.service.PhotoUploadService;
+import com.auth0.flickr2.service.dto.PhotoUploadDTO;
+import com.auth0.flickr2.web.rest.errors.BadRequestAlertException;
+import com.drew.imaging.ImageProcessingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Instant;
+import java.util.Set;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Valid;
+import javax.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller for the resumable uploads of {@link com.auth0.flickr2.domain.Photo}, see {@link PhotoUploadService}.
+ * <p>
+ * A client creates an upload, {@code PUT}s its numbered chunks, then commits it into a new photo. After a failure,
+ * it gets the upload to know the next chunk to send: only the chunks not received are sent again.
+ */
+@RestController
+@RequestMapping("/api")
+public class PhotoUploadResource {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoUploadResource.class);
+
+    private static final String ENTITY_NAME = "photoUpload";
+
+    @Value("${jhipster.clientApp.name}")
+    private String applicationName;
+
+    private final PhotoUploadService photoUploadService;
+
+    private final PhotoService photoService;
+
+    private final PhotoMetadataExtractor photoMetadataExtractor;
+
+    private final BlobStore blobStore;
+
+    private final Validator validator;
+
+    public PhotoUploadResource(
+        PhotoUploadService photoUploadService,
+        PhotoService photoService,
+        PhotoMetadataExtractor photoMetadataExtractor,
+        BlobStore blobStore,
+        Validator validator
+    ) {
+        this.photoUploadService = photoUploadService;
+        this.photoService = photoService;
+        this.photoMetadataExtractor = photoMetadataExtractor;
+        this.blobStore = blobStore;
+        this.validator = validator;
+    }
+
+    /**
+     * {@code POST  /photo-uploads} : Create a new upload.
+     *
+     * @param photoUploadDTO the file name, content type, size and chunk size of the upload, all optional.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new upload,
+     * or with status {@code 400 (Bad Request)} if the chunk size or the size exceed their maximum,
+     * or with status {@code 429 (Too Many Requests)} if the user already has the maximum number of uploads in progress.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     * @throws IOException if the upload couldn't be created.
+     */
+    @PostMapping("/photo-uploads")
+    public ResponseEntity<PhotoUploadDTO> createPhotoUpload(@Valid @RequestBody(required = false) PhotoUploadDTO photoUploadDTO)
+        throws URISyntaxException, IOException {
+        log.debug("REST request to create Photo upload : {}", photoUploadDTO);
+        PhotoUploadDTO result;
+        try {
+            result = photoUploadService.createUpload(photoUploadDTO != null ? photoUploadDTO : new PhotoUploadDTO());
+        } catch (PhotoUploadException e) {
+            throw translate(e);
+        }
+        return ResponseEntity.created(new URI("/api/photo-uploads/" + result.getId())).body(result);
+    }
+
+    /**
+     * {@code GET  /photo-uploads/:id} : get the progress of the "id" upload.
+     *
+     * @param id the id of the upload to retrieve.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the upload, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/photo-uploads/{id}")
+    public ResponseEntity<PhotoUploadDTO> getPhotoUpload(@PathVariable String id) {
+        log.debug("REST request to get Photo upload : {}", id);
+        return ResponseUtil.wrapOrNotFound(photoUploadService.findUpload(id));
+    }
+
+    /**
+     * {@code PUT  /photo-uploads/:id/chunks/:index} : Append a chunk to the "id" upload.
+     * <p>
+     * The body of the request is the content of the chunk. A chunk already received is acknowledged without being written.
+     *
+     * @param id the id of the upload.
+     * @param index the index of the chunk, from {@code 0}.
+     * @param content the content of the chunk.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the upload,
+     * or with status {@code 400 (Bad Request)} if the chunk is empty, larger than the chunk size or makes the image too large,
+     * or with status {@code 409 (Conflict)} if it is not the next chunk or the upload is being committed,
+     * or with status {@code 404 (Not Found)} if the upload is not found.
+     * @throws IOException if the chunk couldn't be received.
+     */
+    @PutMapping("/photo-uploads/{id}/chunks/{index}")
+    public ResponseEntity<PhotoUploadDTO> putPhotoUploadChunk(@PathVariable String id, @PathVariable int index, InputStream content)
+        throws IOException {
+        log.debug("REST request to put chunk {} of Photo upload : {}", index, id);
+        try {
+            return ResponseUtil.wrapOrNotFound(photoUploadService.putChunk(id, index, content));
+        } catch (PhotoUploadException e) {
+            throw translate(e);
+        }
+    }
+
+    /**
+     * {@code POST  /photo-uploads/:id/commit} : Create a new photo from the content of the "id" upload.
+     * <p>
+     * The upload is removed once the photo is created: if it couldn't be, the commit can be retried.
+     *
+     * @param id the id of the upload.
+     * @param photo the photo to create, without its image; its title defaults to the file name of the upload.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new photo,
+     * or with status {@code 400 (Bad Request)} if the upload is not complete or the photo is not valid,
+     * or with status {@code 409 (Conflict)} if the upload is being committed by another request,
+     * or with status {@code 404 (Not Found)} if the upload is not found.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     * @throws IOException if the image couldn't be stored.
+     */
+    @PostMapping("/photo-uploads/{id}/commit")
+    @Transactional
+    public ResponseEntity<Photo> commitPhotoUpload(@PathVariable String id, @RequestBody(required = false) Photo photo)
+        throws URISyntaxException, IOException {
+        log.debug("REST request to commit Photo upload : {}, photo : {}", id, photo);
+        PhotoUploadDTO upload = photoUploadService.findUpload(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (photo == null) {
+            photo = new Photo().title(upload.getFileName());
+        }
+        if (photo.getId() != null) {
+            throw new BadRequestAlertException("A new photo cannot already have an ID", "photo", "idexists");
+        }
+        if (photo.getImageContentType() == null) {
+            photo.setImageContentType(upload.getContentType() != null ? upload.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        }
+        Set<ConstraintViolation<Photo>> violations = validator.validate(photo);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        BlobStore.Blob blob;
+        try {
+            blob = photoUploadService.commitUpload(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        } catch (PhotoUploadException e) {
+            throw translate(e);
+        }
+        photo.setImageSha256(blob.getDigest());
+        photo.setImageSize(blob.getSize());
+        photo.setUploaded(Instant.now());
+        try (InputStream content = blobStore.open(blob.getDigest())) {
+            photoMetadataExtractor.setMetadata(photo, content);
+        } catch (ImageProcessingException ipe) {
+            log.error(ipe.getMessage());
+        }
+
+        Photo result = photoService.create(photo);
+        return ResponseEntity
+            .created(new URI("/api/photos/" + result.getId()))
+            .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, "photo", result.getId().toString()))
+            .body(result);
+    }
+
+    /**
+     * {@code DELETE  /photo-uploads/:id} : abort the "id" upload.
+     *
+     * @param id the id of the upload to abort.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}, or with status {@code 404 (Not Found)}.
+     */
+    @DeleteMapping("/photo-uploads/{id}")
+    public ResponseEntity<Void> deletePhotoUpload(@PathVariable String id) {
+        log.debug("REST request to abort Photo upload : {}", id);
+        if (!photoUploadService.abortUpload(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private RuntimeException translate(PhotoUploadException e) {
+        switch (e.getReason()) {
+            case CHUNK_OUT_OF_ORDER:
+                return new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+            case CHUNK_SIZE_INVALID:
+                return new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "chunksizeinvalid");
+            case UPLOAD_TOO_LARGE:
+                return new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "uploadtoolarge");
+            case UPLOAD_COMMITTING:
+                return new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+            case TOO_MANY_UPLOADS:
+                return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+            default:
+                return new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "uploadincomplete");
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.auth0.flickr2.web.rest;
 
+import com.auth0.flickr2.config.ApplicationProperties;
 import com.auth0.flickr2.domain.Tag;
 import com.auth0.flickr2.repository.TagRepository;
+import com.auth0.flickr2.service.PhotoTagIndex;
+import com.auth0.flickr2.service.TagPopularityService;
+import com.auth0.flickr2.service.TagSuggestionIndex;
+import com.auth0.flickr2.service.dto.TagPopularityDTO;
 import com.auth0.flickr2.web.rest.errors.BadRequestAlertException;
+import com.auth0.flickr2.web.rest.util.KeysetPaginationUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -14,10 +20,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -37,13 +46,33 @@ public class TagResource {
 
     private static final String ENTITY_NAME = "tag";
 
+    private static final int SUGGESTIONS_MAX_SIZE = 50;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final TagRepository tagRepository;
 
-    public TagResource(TagRepository tagRepository) {
+    private final PhotoTagIndex photoTagIndex;
+
+    private final TagPopularityService tagPopularityService;
+
+    private final TagSuggestionIndex tagSuggestionIndex;
+
+    private final int popularTagsMaxSize;
+
+    public TagResource(
+        TagRepository tagRepository,
+        PhotoTagIndex photoTagIndex,
+        TagPopularityService tagPopularityService,
+        TagSuggestionIndex tagSuggestionIndex,
+        ApplicationProperties applicationProperties
+    ) {
         this.tagRepository = tagRepository;
+        this.photoTagIndex = photoTagIndex;
+        this.tagPopularityService = tagPopularityService;
+        this.tagSuggestionIndex = tagSuggestionIndex;
+        this.popularTagsMaxSize = applicationProperties.getPopularTags().getMaxSize();
     }
 
     /**
@@ -60,6 +89,7 @@ public class TagResource {
             throw new BadRequestAlertException("A new tag cannot already have an ID", ENTITY_NAME, "idexists");
         }
         Tag result = tagRepository.save(tag);
+        tagSuggestionIndex.indexTag(result);
         return ResponseEntity
             .created(new URI("/api/tags/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
@@ -92,6 +122,7 @@ public class TagResource {
         }
 
         Tag result = tagRepository.save(tag);
+        tagSuggestionIndex.indexTag(result);
         return ResponseEntity
             .ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, tag.getId().toString()))
@@ -134,6 +165,7 @@ public class TagResource {
                 return existingTag;
             })
             .map(tagRepository::save);
+        result.ifPresent(tagSuggestionIndex::indexTag);
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -155,6 +187,87 @@ public class TagResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /tags?after=:cursor} : get the tags, by name, after the given cursor.
+     * <p>
+     * The tags are paginated on their {@code (name, id)}, see {@link KeysetPaginationUtil}: they are not counted, and the
+     * {@code Link} header gives the next page.
+     *
+     * @param after the cursor of the page, empty for the first page.
+     * @param pageable the pagination information, only its size is used.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of tags in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is invalid.
+     */
+    @GetMapping(value = "/tags", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<Tag>> getTagsAfter(@RequestParam String after, Pageable pageable) {
+        log.debug("REST request to get a slice of Tags after : {}", after);
+        Pageable slice = PageRequest.of(0, pageable.getPageSize());
+        Slice<Tag> tags;
+        if (after.isEmpty()) {
+            tags = tagRepository.findAllSortedByName(slice);
+        } else {
+            String name;
+            Long id;
+            try {
+                List<String> keys = KeysetPaginationUtil.decodeCursor(after, 2);
+                name = Objects.requireNonNullElse(keys.get(0), "");
+                id = Long.valueOf(keys.get(1));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+            }
+            tags = tagRepository.findAllSortedByNameAfter(name, id, slice);
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            tags,
+            tag -> KeysetPaginationUtil.encodeCursor(tag.getName(), tag.getId())
+        );
+        return ResponseEntity.ok().headers(headers).body(tags.getContent());
+    }
+
+    /**
+     * {@code GET  /tags/popular} : get the most used tags, with their number of photos.
+     * <p>
+     * The counts are kept in memory and may lag the database by a few seconds, see {@link TagPopularityService}.
+     *
+     * @param size the maximum number of tags, up to {@code application.popular-tags.max-size}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of tags in body,
+     * or with status {@code 400 (Bad Request)} if the size is invalid.
+     */
+    @GetMapping("/tags/popular")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<TagPopularityDTO>> getPopularTags(@RequestParam(defaultValue = "20") int size) {
+        log.debug("REST request to get the popular Tags : {}", size);
+        if (size < 1 || size > popularTagsMaxSize) {
+            throw new BadRequestAlertException("Invalid size", ENTITY_NAME, "sizeinvalid");
+        }
+        return ResponseEntity.ok(tagPopularityService.getPopularTags(size));
+    }
+
+    /**
+     * {@code GET  /tags/_suggest?prefix=:prefix} : suggest the tags whose name starts with the given prefix, ignoring case.
+     * <p>
+     * The tags are read from memory, see {@link TagSuggestionIndex}, and ranked by their number of photos.
+     *
+     * @param prefix the prefix of the names.
+     * @param size the maximum number of tags, up to {@value #SUGGESTIONS_MAX_SIZE}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of tags in body,
+     * or with status {@code 400 (Bad Request)} if the prefix is blank or the size is invalid.
+     */
+    @GetMapping("/tags/_suggest")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<List<TagPopularityDTO>> suggestTags(@RequestParam String prefix, @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to suggest Tags : {}", prefix);
+        if (prefix.isBlank()) {
+            throw new BadRequestAlertException("A prefix is required", ENTITY_NAME, "prefixnull");
+        }
+        if (size < 1 || size > SUGGESTIONS_MAX_SIZE) {
+            throw new BadRequestAlertException("Invalid size", ENTITY_NAME, "sizeinvalid");
+        }
+        return ResponseEntity.ok(tagSuggestionIndex.suggest(prefix.strip(), size));
+    }
+
     /**
      * {@code GET  /tags/:id} : get the "id" tag.
      *
@@ -178,6 +291,9 @@ public class TagResource {
     public ResponseEntity<Void> deleteTag(@PathVariable Long id) {
         log.debug("REST request to delete Tag : {}", id);
         tagRepository.deleteById(id);
+        photoTagIndex.removeTag(id);
+        tagPopularityService.removeTag(id);
+        tagSuggestionIndex.removeTag(id);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
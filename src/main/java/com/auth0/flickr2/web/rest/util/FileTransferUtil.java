@@ -0,0 +1,87 @@
+package com.auth0.flickr2.web.rest.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Utility class for sending local files as HTTP response bodies without copying them through the heap.
+ */
+public final class FileTransferUtil {
+
+    private FileTransferUtil() {}
+
+    /**
+     * Send a region of a file as the body of the response, whose headers must already be set.
+     * <p>
+     * When the region runs to the end of the file and the output stream of the container has a
+     * {@code transferFrom(FileChannel)} method, as Undertow's has, the file is handed over to it and sent with
+     * {@code sendfile}, so it never enters user space. The response is committed through its wrappers first, so the
+     * headers they write on commit, such as the security headers of Spring Security, are still sent. Otherwise the file
+     * is transferred to the output stream of the wrapped response with {@link FileChannel#transferTo}, through a small
+     * reused buffer rather than a {@code byte[]} of the whole file.
+     *
+     * @param response the HTTP response.
+     * @param file the file to send.
+     * @param position the position of the first byte to send.
+     * @param count the number of bytes to send.
+     * @throws IOException if the file couldn't be read or the response written.
+     */
+    public static void sendFile(HttpServletResponse response, Path file, long position, long count) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (position + count > channel.size()) {
+                throw new EOFException("File " + file + " is shorter than the " + count + " bytes to send");
+            }
+            // the native stream sends the channel from its position to its end, it can't stop before
+            if (position + count == channel.size()) {
+                ServletOutputStream nativeOutputStream = unwrap(response).getOutputStream();
+                Method transferFrom = ClassUtils.getMethodIfAvailable(nativeOutputStream.getClass(), "transferFrom", FileChannel.class);
+                if (transferFrom != null) {
+                    response.flushBuffer();
+                    channel.position(position);
+                    transferFrom(transferFrom, nativeOutputStream, channel);
+                    return;
+                }
+            }
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long sent = 0;
+            while (sent < count) {
+                sent += channel.transferTo(position + sent, count - sent, out);
+            }
+        }
+    }
+
+    private static void transferFrom(Method transferFrom, ServletOutputStream outputStream, FileChannel channel) throws IOException {
+        try {
+            ReflectionUtils.makeAccessible(transferFrom);
+            transferFrom.invoke(outputStream, channel);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            ReflectionUtils.rethrowRuntimeException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ServletResponse unwrap(ServletResponse response) {
+        ServletResponse unwrapped = response;
+        while (unwrapped instanceof ServletResponseWrapper) {
+            unwrapped = ((ServletResponseWrapper) unwrapped).getResponse();
+        }
+        return unwrapped;
+    }
+}
@@ -0,0 +1,88 @@
+package com.auth0.flickr2.web.rest.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for keyset pagination.
+ * <p>
+ * A page starts right after the sort keys of the last element of the previous page, given as an opaque cursor in the
+ * {@value #AFTER_PARAMETER} request parameter: the database seeks to it in an index instead of skipping the previous
+ * pages, and no count query is needed. The next page is linked in the {@code Link} header, as long as there is one.
+ */
+public final class KeysetPaginationUtil {
+
+    /**
+     * Request parameter with the cursor of the page, empty for the first page.
+     */
+    public static final String AFTER_PARAMETER = "after";
+
+    private static final String HEADER_LINK_FORMAT = "<%s>; rel=\"next\"";
+
+    private static final String KEY_SEPARATOR = ".";
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Encode the sort keys of an element as a cursor.
+     *
+     * @param keys the sort keys, {@code null} ones included.
+     * @return the cursor.
+     */
+    public static String encodeCursor(Object... keys) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return Arrays
+            .stream(keys)
+            .map(key -> key == null ? "" : encoder.encodeToString(key.toString().getBytes(StandardCharsets.UTF_8)))
+            .collect(Collectors.joining(KEY_SEPARATOR));
+    }
+
+    /**
+     * Decode a cursor.
+     *
+     * @param cursor the cursor.
+     * @param count the number of sort keys of the cursor.
+     * @return the sort keys, {@code null} ones (or empty ones) included.
+     * @throws IllegalArgumentException if the cursor was not encoded by {@link #encodeCursor(Object...)} with {@code count} keys.
+     */
+    public static List<String> decodeCursor(String cursor, int count) {
+        String[] keys = cursor.split("\\" + KEY_SEPARATOR, -1);
+        if (keys.length != count) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        return Arrays
+            .stream(keys)
+            .map(key -> key.isEmpty() ? null : new String(decoder.decode(key), StandardCharsets.UTF_8))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Generate the pagination headers of a slice: a {@code Link} header to the next slice, if it has one.
+     *
+     * @param uriBuilder the URI builder of the current request.
+     * @param slice the slice.
+     * @param cursor the function giving the cursor of an element.
+     * @param <T> the type of the elements.
+     * @return the {@link HttpHeaders}.
+     */
+    public static <T> HttpHeaders generateKeysetPaginationHttpHeaders(UriComponentsBuilder uriBuilder, Slice<T> slice, Function<T, String> cursor) {
+        HttpHeaders headers = new HttpHeaders();
+        if (slice.hasNext()) {
+            List<T> content = slice.getContent();
+            String next = uriBuilder
+                .replaceQueryParam(AFTER_PARAMETER, cursor.apply(content.get(content.size() - 1)))
+                .replaceQueryParam("size", slice.getSize())
+                .toUriString();
+            headers.add(HttpHeaders.LINK, String.format(HEADER_LINK_FORMAT, next));
+        }
+        return headers;
+    }
+}
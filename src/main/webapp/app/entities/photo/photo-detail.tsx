@@ -1,12 +1,13 @@
 import React, { useEffect } from 'react';
 import { Link, RouteComponentProps } from 'react-router-dom';
 import { Button, Row, Col } from 'reactstrap';
-import { Translate, openFile, byteSize, TextFormat } from 'react-jhipster';
+import { Translate, TextFormat } from 'react-jhipster';
 import { FontAwesomeIcon } from '@fortawesome/react-fontawesome';
 
 import { getEntity } from './photo.reducer';
 import { APP_DATE_FORMAT, APP_LOCAL_DATE_FORMAT } from 'app/config/constants';
 import { useAppDispatch, useAppSelector } from 'app/config/store';
+import { photoContentUrl } from 'app/shared/util/photo-utils';
 
 export const PhotoDetail = (props: RouteComponentProps<{ id: string }>) => {
   const dispatch = useAppDispatch();
@@ -47,16 +48,12 @@ export const PhotoDetail = (props: RouteComponentProps<{ id: string }>) => {
             </span>
           </dt>
           <dd>
-            {photoEntity.image ? (
+            {photoEntity.id && photoEntity.imageContentType ? (
               <div>
-                {photoEntity.imageContentType ? (
-                  <a onClick={openFile(photoEntity.imageContentType, photoEntity.image)}>
-                    <img src={`data:${photoEntity.imageContentType};base64,${photoEntity.image}`} style={{ maxHeight: '30px' }} />
-                  </a>
-                ) : null}
-                <span>
-                  {photoEntity.imageContentType}, {byteSize(photoEntity.image)}
-                </span>
+                <a href={photoContentUrl(photoEntity)} target="_blank" rel="noopener noreferrer">
+                  <img src={photoContentUrl(photoEntity, 200)} style={{ maxHeight: '30px' }} />
+                </a>
+                <span>{photoEntity.imageContentType}</span>
               </div>
             ) : null}
           </dd>
@@ -146,7 +146,7 @@ export const PhotoUpdate = (props: RouteComponentProps<{ id: string }>) => {
                 isImage
                 accept="image/*"
                 validate={{
-                  required: { value: true, message: translate('entity.validation.required') },
+                  required: { value: isNew, message: translate('entity.validation.required') },
                 }}
               />
               {metadataRows}
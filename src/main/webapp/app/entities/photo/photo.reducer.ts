@@ -22,7 +22,7 @@ const apiUrl = 'api/photos';
 // Actions
 
 export const getEntities = createAsyncThunk('photo/fetch_entity_list', async ({ page, size, sort }: IQueryParams) => {
-  const requestUrl = `${apiUrl}${sort ? `?page=${page}&size=${size}&sort=${sort}&` : '?'}cacheBuster=${new Date().getTime()}`;
+  const requestUrl = `${apiUrl}?fields=summary&${sort ? `page=${page}&size=${size}&sort=${sort}&` : ''}cacheBuster=${new Date().getTime()}`;
   return axios.get<IPhoto[]>(requestUrl);
 });
 
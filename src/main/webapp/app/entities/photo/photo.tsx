@@ -2,13 +2,14 @@ import React, { useState, useEffect, useCallback } from 'react';
 import InfiniteScroll from 'react-infinite-scroll-component';
 import { Link, RouteComponentProps } from 'react-router-dom';
 import { Button, Table } from 'reactstrap';
-import { openFile, byteSize, Translate, TextFormat, getSortState } from 'react-jhipster';
+import { Translate, TextFormat, getSortState } from 'react-jhipster';
 import { FontAwesomeIcon } from '@fortawesome/react-fontawesome';
 
 import { getEntities, reset } from './photo.reducer';
 import { APP_DATE_FORMAT } from 'app/config/constants';
 import { ASC, DESC, ITEMS_PER_PAGE } from 'app/shared/util/pagination.constants';
 import { overridePaginationStateWithQueryParams } from 'app/shared/util/entity-utils';
+import { photoContentUrl } from 'app/shared/util/photo-utils';
 import { useAppDispatch, useAppSelector } from 'app/config/store';
 import Gallery from 'react-photo-gallery';
 import Carousel, { Modal, ModalGateway } from 'react-images';
@@ -107,7 +108,7 @@ export const Photo = (props: RouteComponentProps<{ url: string }>) => {
 
   const { match } = props;
   const photoSet = photoList.map(photo => ({
-    src: `data:${photo.imageContentType};base64,${photo.image}`,
+    src: photoContentUrl(photo, 800),
     width: photo.height > photo.width ? 3 : photo.height === photo.width ? 1 : 4,
     height: photo.height > photo.width ? 4 : photo.height === photo.width ? 1 : 3,
     title: photo.title,
@@ -161,11 +162,8 @@ export const Photo = (props: RouteComponentProps<{ url: string }>) => {
                   <th className="hand" onClick={sort('title')}>
                     <Translate contentKey="flickr2App.photo.title">Title</Translate> <FontAwesomeIcon icon="sort" />
                   </th>
-                  <th className="hand" onClick={sort('description')}>
-                    <Translate contentKey="flickr2App.photo.description">Description</Translate> <FontAwesomeIcon icon="sort" />
-                  </th>
-                  <th className="hand" onClick={sort('image')}>
-                    <Translate contentKey="flickr2App.photo.image">Image</Translate> <FontAwesomeIcon icon="sort" />
+                  <th>
+                    <Translate contentKey="flickr2App.photo.image">Image</Translate>
                   </th>
                   <th className="hand" onClick={sort('height')}>
                     <Translate contentKey="flickr2App.photo.height">Height</Translate> <FontAwesomeIcon icon="sort" />
@@ -194,19 +192,14 @@ export const Photo = (props: RouteComponentProps<{ url: string }>) => {
                       </Button>
                     </td>
                     <td>{photo.title}</td>
-                    <td>{photo.description}</td>
                     <td>
-                      {photo.image ? (
+                      {photo.imageContentType ? (
                         <div>
-                          {photo.imageContentType ? (
-                            <a onClick={openFile(photo.imageContentType, photo.image)}>
-                              <img src={`data:${photo.imageContentType};base64,${photo.image}`} style={{ maxHeight: '30px' }} />
-                              &nbsp;
-                            </a>
-                          ) : null}
-                          <span>
-                            {photo.imageContentType}, {byteSize(photo.image)}
-                          </span>
+                          <a href={photoContentUrl(photo)} target="_blank" rel="noopener noreferrer">
+                            <img src={photoContentUrl(photo, 200)} style={{ maxHeight: '30px' }} />
+                            &nbsp;
+                          </a>
+                          <span>{photo.imageContentType}</span>
                         </div>
                       ) : null}
                     </td>
@@ -8,6 +8,9 @@ export interface IPhoto {
   description?: string | null;
   imageContentType?: string;
   image?: string;
+  imageSha256?: string | null;
+  imageSize?: number | null;
+  imageUrl?: string;
   height?: number | null;
   width?: number | null;
   taken?: string | null;
@@ -0,0 +1,10 @@
+import { IPhoto } from 'app/shared/model/photo.model';
+
+/**
+ * URL of the image of a photo, or of its derivative with the given long edge.
+ * It is content-addressed, so the browser caches it for good, when the digest of the image is known.
+ */
+export const photoContentUrl = (photo: IPhoto, size?: number): string => {
+  const params = [size ? `size=${size}` : null, photo.imageSha256 ? `v=${photo.imageSha256}` : null].filter(Boolean);
+  return `api/photos/${photo.id}/content${params.length ? `?${params.join('&')}` : ''}`;
+};
@@ -0,0 +1,477 @@
+package com.auth0.flickr2.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.auth0.flickr2.IntegrationTest;
+import com.auth0.flickr2.security.AuthoritiesConstants;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests checking, with {@code EXPLAIN}, that the queries of the repositories don't scan a whole table.
+ * <p>
+ * The tables are seeded with enough rows for the query planner to prefer an index wherever one applies. Each repository
+ * method is called, the SQL it sends to the database is captured with its parameters, and that SQL is explained with the
+ * same parameters; the plan must not scan any of the seeded tables. The small lookup tables, such as
+ * {@code jhi_authority}, are not seeded and may be scanned. Are not checked:
+ * <ul>
+ *     <li>the queries reading all the rows of a table, at once or page by page from the first one, such as
+ *     {@code PhotoRepository.findAllNewestFirst}, {@code PhotoRepository.streamAllTexts} or
+ *     {@code TagRepository.countPhotosByTag};</li>
+ *     <li>{@code PhotoContentRepository.findIdsWithImageInDatabase}, which reads the photos still to move to the blob
+ *     store until there is none left;</li>
+ *     <li>the inserts and the updates by primary key, which read no other row;</li>
+ *     <li>{@code AlbumRepository.findByUserIsCurrentUser}, which is not called by the application: its
+ *     {@code principal} expression needs a security evaluation context extension the application doesn't declare.</li>
+ * </ul>
+ */
+@IntegrationTest
+@Import(QueryPlanIT.StatementCaptureConfiguration.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanIT {
+
+    private static final long FIRST_ID = 9_000_000L;
+
+    private static final int PHOTOS = 50_000;
+
+    private static final int ALBUMS = 20_000;
+
+    private static final int TAGS = 5_000;
+
+    private static final int USERS = 5_000;
+
+    private static final int ALBUMS_PER_USER_ALBUM = 1_000;
+
+    private static final int[] DERIVATIVE_LONG_EDGES = { 320, 1024 };
+
+    private static final String USER_ID_PREFIX = "query-plan-user-";
+
+    private static final String USER_LOGIN = USER_ID_PREFIX + 0;
+
+    private static final Instant UPLOADED = Instant.parse("2021-10-12T00:00:00Z");
+
+    private static final Pageable PAGE = PageRequest.of(0, 20);
+
+    private static final List<String> SEEDED_TABLES = List.of(
+        "photo",
+        "photo_derivative",
+        "rel_photo__tag",
+        "album",
+        "tag",
+        "jhi_user",
+        "jhi_user_authority"
+    );
+
+    /**
+     * Statements prepared by the current thread while {@link #capture} runs, {@code null} otherwise.
+     */
+    private static final ThreadLocal<List<CapturedStatement>> CAPTURED = new ThreadLocal<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoContentRepository photoContentRepository;
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private boolean postgresql;
+
+    private Pattern tableScan;
+
+    @BeforeAll
+    void seedDatabase() {
+        String database = jdbcTemplate.execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()
+        );
+        postgresql = "PostgreSQL".equals(database);
+        String tables = String.join("|", SEEDED_TABLES);
+        tableScan =
+            postgresql
+                ? Pattern.compile("Seq Scan on (?:public\\.)?(?:" + tables + ")\\b")
+                : Pattern.compile("\\.(?:" + tables + ")\\.tableScan\\b", Pattern.CASE_INSENSITIVE);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<Object[]> users = new ArrayList<>();
+            List<Object[]> userAuthorities = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                users.add(new Object[] { USER_ID_PREFIX + i, USER_ID_PREFIX + i, true, "system" });
+                userAuthorities.add(new Object[] { USER_ID_PREFIX + i, AuthoritiesConstants.USER });
+            }
+            jdbcTemplate.batchUpdate("insert into jhi_user (id, login, activated, created_by) values (?, ?, ?, ?)", users);
+            jdbcTemplate.batchUpdate("insert into jhi_user_authority (user_id, authority_name) values (?, ?)", userAuthorities);
+            List<Object[]> albums = new ArrayList<>();
+            for (int i = 0; i < ALBUMS; i++) {
+                albums.add(
+                    new Object[] { FIRST_ID + i, "album-" + i, i % ALBUMS_PER_USER_ALBUM == 0 ? USER_ID_PREFIX + i % USERS : null }
+                );
+            }
+            jdbcTemplate.batchUpdate("insert into album (id, title, user_id) values (?, ?, ?)", albums);
+            List<Object[]> tags = new ArrayList<>();
+            for (int i = 0; i < TAGS; i++) {
+                tags.add(new Object[] { FIRST_ID + i, "Tag-" + i, "tag-" + i });
+            }
+            jdbcTemplate.batchUpdate("insert into tag (id, name, name_lower) values (?, ?, ?)", tags);
+            List<Object[]> photos = new ArrayList<>();
+            List<Object[]> photoTags = new ArrayList<>();
+            List<Object[]> derivatives = new ArrayList<>();
+            for (int i = 0; i < PHOTOS; i++) {
+                Instant uploaded = uploaded(i);
+                photos.add(
+                    new Object[] {
+                        FIRST_ID + i,
+                        "photo-" + i,
+                        "image/jpeg",
+                        digest(i),
+                        1_000_000L,
+                        Timestamp.from(uploaded.minus(i % 1_000, ChronoUnit.DAYS)),
+                        Timestamp.from(uploaded),
+                        FIRST_ID + i % ALBUMS,
+                    }
+                );
+                photoTags.add(new Object[] { FIRST_ID + i, FIRST_ID + i % TAGS });
+                photoTags.add(new Object[] { FIRST_ID + i, FIRST_ID + (i * 7L + 3) % TAGS });
+                for (int longEdge : DERIVATIVE_LONG_EDGES) {
+                    derivatives.add(
+                        new Object[] {
+                            FIRST_ID + i,
+                            longEdge,
+                            "image/jpeg",
+                            longEdge,
+                            longEdge * 3 / 4,
+                            digest(PHOTOS + i * 2L + longEdge),
+                            10_000L,
+                            digest(i),
+                        }
+                    );
+                }
+            }
+            jdbcTemplate.batchUpdate(
+                "insert into photo (id, title, image_content_type, image_sha256, image_size, taken, uploaded, album_id) " +
+                "values (?, ?, ?, ?, ?, ?, ?, ?)",
+                photos
+            );
+            jdbcTemplate.batchUpdate("insert into rel_photo__tag (photo_id, tag_id) values (?, ?)", photoTags);
+            jdbcTemplate.batchUpdate(
+                "insert into photo_derivative " +
+                "(photo_id, long_edge, content_type, width, height, image_sha256, image_size, source_sha256) " +
+                "values (?, ?, ?, ?, ?, ?, ?, ?)",
+                derivatives
+            );
+        });
+        if (postgresql) {
+            jdbcTemplate.execute("analyze");
+        }
+    }
+
+    @AfterAll
+    void cleanDatabase() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from photo_derivative where photo_id >= ?", FIRST_ID);
+            jdbcTemplate.update("delete from rel_photo__tag where photo_id >= ?", FIRST_ID);
+            jdbcTemplate.update("delete from photo where id >= ?", FIRST_ID);
+            jdbcTemplate.update("delete from tag where id >= ?", FIRST_ID);
+            jdbcTemplate.update("delete from album where id >= ?", FIRST_ID);
+            jdbcTemplate.update("delete from jhi_user_authority where user_id like ?", USER_ID_PREFIX + "%");
+            jdbcTemplate.update("delete from jhi_user where id like ?", USER_ID_PREFIX + "%");
+        });
+    }
+
+    Stream<Arguments> repositoryQueries() {
+        Long photoId = FIRST_ID + 42;
+        Long albumId = FIRST_ID + 42;
+        Instant uploaded = uploaded(PHOTOS / 2);
+        return Stream.of(
+            query("PhotoRepository.findAllWithEagerRelationshipsByIdIn", () -> photoRepository.findAllWithEagerRelationshipsByIdIn(ids())),
+            query("PhotoRepository.findOneWithEagerRelationships", () -> photoRepository.findOneWithEagerRelationships(photoId)),
+            query("PhotoRepository.findAllUploadedBefore", () -> photoRepository.findAllUploadedBefore(uploaded, photoId, PAGE)),
+            query("PhotoRepository.findAllWithoutUploadedBefore", () -> photoRepository.findAllWithoutUploadedBefore(photoId, PAGE)),
+            query(
+                "PhotoRepository.findAllSummariesUploadedBefore",
+                () -> photoRepository.findAllSummariesUploadedBefore(uploaded, photoId, PAGE)
+            ),
+            query(
+                "PhotoRepository.findAllSummariesWithoutUploadedBefore",
+                () -> photoRepository.findAllSummariesWithoutUploadedBefore(photoId, PAGE)
+            ),
+            query(
+                "PhotoRepository.findAllSummariesInAlbumNewestFirst",
+                () -> photoRepository.findAllSummariesInAlbumNewestFirst(albumId, PAGE)
+            ),
+            query(
+                "PhotoRepository.findAllSummariesInAlbumUploadedBefore",
+                () -> photoRepository.findAllSummariesInAlbumUploadedBefore(albumId, uploaded, photoId, PAGE)
+            ),
+            query(
+                "PhotoRepository.findAllSummariesInAlbumWithoutUploadedBefore",
+                () -> photoRepository.findAllSummariesInAlbumWithoutUploadedBefore(albumId, photoId, PAGE)
+            ),
+            query("PhotoRepository.countPhotosByAlbumIdIn", () -> photoRepository.countPhotosByAlbumIdIn(ids())),
+            query("PhotoRepository.findAllSummariesByIdIn", () -> photoRepository.findAllSummariesByIdIn(ids())),
+            query("PhotoRepository.findAllTextsByIdIn", () -> photoRepository.findAllTextsByIdIn(ids())),
+            query("PhotoRepository.findAllIdsByIdIn", () -> photoRepository.findAllIdsByIdIn(ids())),
+            query("PhotoRepository.findAllIdsByAlbumId", () -> photoRepository.findAllIdsByAlbumId(albumId)),
+            query("PhotoRepository.findById", () -> photoRepository.findById(photoId)),
+            query("PhotoContentRepository.findImage", () -> photoContentRepository.findImage(photoId)),
+            query("PhotoContentRepository.moveImageToBlobStore", () -> photoContentRepository.moveImageToBlobStore(photoId)),
+            query("PhotoContentRepository.findDerivative", () -> photoContentRepository.findDerivative(photoId, DERIVATIVE_LONG_EDGES[0])),
+            query("PhotoContentRepository.findDerivativeSizes", () -> photoContentRepository.findDerivativeSizes(photoId)),
+            query(
+                "PhotoContentRepository.findReferencedDigests",
+                () -> photoContentRepository.findReferencedDigests(Set.of(digest(42), digest(PHOTOS + 42)))
+            ),
+            query("PhotoContentRepository.deleteDerivatives", () -> photoContentRepository.deleteDerivatives(photoId)),
+            query("AlbumRepository.findAllNewestFirstBefore", () -> albumRepository.findAllNewestFirstBefore(albumId, PAGE)),
+            query("TagRepository.findAllSortedByNameAfter", () -> tagRepository.findAllSortedByNameAfter("Tag-42", FIRST_ID + 42, PAGE)),
+            query("TagRepository.findAllByLowerCaseNameIn", () -> tagRepository.findAllByLowerCaseNameIn(List.of("tag-42", "tag-43"))),
+            query("UserRepository.findOneByLogin", () -> userRepository.findOneByLogin(USER_LOGIN)),
+            query("UserRepository.findOneWithAuthoritiesByLogin", () -> userRepository.findOneWithAuthoritiesByLogin(USER_LOGIN))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void repositoryQueryUsesIndex(String name, RepositoryQuery query) {
+        assertUsesIndex(capture(query));
+    }
+
+    /**
+     * Call repository methods in a transaction rolled back afterwards, capturing the statements they prepare.
+     */
+    private List<CapturedStatement> capture(RepositoryQuery query) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<CapturedStatement> statements = new ArrayList<>();
+        CAPTURED.set(statements);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                try {
+                    query.run();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } finally {
+            CAPTURED.remove();
+        }
+        assertThat(statements).as("statements prepared").isNotEmpty();
+        return statements;
+    }
+
+    private void assertUsesIndex(List<CapturedStatement> statements) {
+        for (CapturedStatement statement : statements) {
+            String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> statement.explain(connection));
+            assertThat(tableScan.matcher(plan).find()).as("table scan in the plan of %s:%n%s", statement.sql, plan).isFalse();
+        }
+    }
+
+    private static Arguments query(String name, RepositoryQuery query) {
+        return Arguments.of(name, query);
+    }
+
+    private static List<Long> ids() {
+        return List.of(FIRST_ID + 42, FIRST_ID + 4_242, FIRST_ID + 42_424);
+    }
+
+    private static Instant uploaded(int photo) {
+        return UPLOADED.plus(photo, ChronoUnit.MINUTES);
+    }
+
+    private static String digest(long n) {
+        return String.format("%064x", n);
+    }
+
+    /**
+     * Calls to repository methods.
+     */
+    @FunctionalInterface
+    interface RepositoryQuery {
+        void run() throws Exception;
+    }
+
+    /**
+     * The SQL of a prepared statement and the calls setting its parameters, replayed on an {@code EXPLAIN} of it.
+     */
+    private static final class CapturedStatement {
+
+        private final String sql;
+
+        private final List<Method> setters = new ArrayList<>();
+
+        private final List<Object[]> arguments = new ArrayList<>();
+
+        private CapturedStatement(String sql) {
+            this.sql = sql;
+        }
+
+        private String explain(Connection connection) throws SQLException {
+            try (PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+                for (int i = 0; i < setters.size(); i++) {
+                    invoke(explain, setters.get(i), arguments.get(i));
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = explain.executeQuery()) {
+                    int columns = rs.getMetaData().getColumnCount();
+                    while (rs.next()) {
+                        for (int column = 1; column <= columns; column++) {
+                            plan.append(rs.getString(column)).append('\n');
+                        }
+                    }
+                }
+                return plan.toString();
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Connection capturingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+            QueryPlanIT.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(method.getName()) && args == null) {
+                    return System.identityHashCode(proxy);
+                }
+                Object result = invoke(connection, method, args);
+                List<CapturedStatement> captured = CAPTURED.get();
+                if (captured != null && "prepareStatement".equals(method.getName()) && result instanceof PreparedStatement) {
+                    CapturedStatement statement = new CapturedStatement((String) args[0]);
+                    captured.add(statement);
+                    return capturingStatement((PreparedStatement) result, statement);
+                }
+                return result;
+            }
+        );
+    }
+
+    private static PreparedStatement capturingStatement(PreparedStatement preparedStatement, CapturedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+            QueryPlanIT.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class },
+            (proxy, method, args) -> {
+                if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(method.getName()) && args == null) {
+                    return System.identityHashCode(proxy);
+                }
+                // the parameter setters, setFetchSize and the like being declared by Statement
+                if (method.getDeclaringClass() == PreparedStatement.class && method.getName().startsWith("set")) {
+                    statement.setters.add(method);
+                    statement.arguments.add(args);
+                }
+                return invoke(preparedStatement, method, args);
+            }
+        );
+    }
+
+    /**
+     * Wraps the data source, so the statements prepared by Hibernate and by the JDBC repositories are captured.
+     */
+    @TestConfiguration
+    static class StatementCaptureConfiguration {
+
+        @Bean
+        static BeanPostProcessor statementCapturingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    return new StatementCapturingDataSource((DataSource) bean);
+                }
+            };
+        }
+    }
+
+    /**
+     * Data source whose connections capture the statements prepared while {@link #capture} runs.
+     */
+    private static final class StatementCapturingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+        private StatementCapturingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return capturingConnection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return capturingConnection(super.getConnection(username, password));
+        }
+
+        @Override
+        public void close() throws Exception {
+            // the pool is closed with the application context, as it would be unwrapped
+            if (getTargetDataSource() instanceof AutoCloseable) {
+                ((AutoCloseable) getTargetDataSource()).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.auth0.flickr2.security.oauth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+/**
+ * Test class for the {@link CachingJwtDecoder} utility class.
+ */
+class CachingJwtDecoderTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private static final Instant NOW = Instant.parse("2021-10-12T07:51:28Z");
+
+    private JwtDecoder delegate;
+
+    private MeterRegistry meterRegistry;
+
+    private AtomicReference<String> preferredUsername;
+
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(JwtDecoder.class);
+        meterRegistry = new SimpleMeterRegistry();
+        preferredUsername = new AtomicReference<>();
+        decoder =
+            new CachingJwtDecoder(
+                delegate,
+                claims -> {
+                    Map<String, Object> converted = new HashMap<>(claims);
+                    if (preferredUsername.get() != null) {
+                        converted.put("preferred_username", preferredUsername.get());
+                    }
+                    return converted;
+                },
+                new ConcurrentMapCache(CachingJwtDecoder.JWT_CACHE),
+                meterRegistry,
+                Clock.fixed(NOW, ZoneOffset.UTC)
+            );
+    }
+
+    private static Jwt jwt(Instant expiresAt) {
+        Jwt.Builder builder = Jwt.withTokenValue(TOKEN).header("alg", "RS256").subject("123").issuedAt(NOW.minusSeconds(60));
+        if (expiresAt != null) {
+            builder.expiresAt(expiresAt);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testCachesDecodedTokenUntilExpiration() {
+        Jwt jwt = jwt(NOW.plusSeconds(300));
+        when(delegate.decode(TOKEN)).thenReturn(jwt);
+
+        assertThat(decoder.decode(TOKEN).getClaims()).isEqualTo(jwt.getClaims());
+        assertThat(decoder.decode(TOKEN).getClaims()).isEqualTo(jwt.getClaims());
+
+        verify(delegate, times(1)).decode(TOKEN);
+        assertThat(meterRegistry.get("security.jwt.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("security.jwt.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("security.jwt.decode").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testDecodesExpiredTokenAgain() {
+        when(delegate.decode(TOKEN)).thenReturn(jwt(NOW));
+
+        decoder.decode(TOKEN);
+        decoder.decode(TOKEN);
+
+        verify(delegate, times(2)).decode(TOKEN);
+    }
+
+    @Test
+    void testDoesNotCacheTokenWithoutExpiration() {
+        when(delegate.decode(TOKEN)).thenReturn(jwt(null));
+
+        decoder.decode(TOKEN);
+        decoder.decode(TOKEN);
+
+        verify(delegate, times(2)).decode(TOKEN);
+    }
+
+    @Test
+    void testDoesNotCacheInvalidToken() {
+        when(delegate.decode(TOKEN)).thenThrow(new BadJwtException("invalid signature"));
+
+        assertThatThrownBy(() -> decoder.decode(TOKEN)).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode(TOKEN)).isInstanceOf(BadJwtException.class);
+
+        verify(delegate, times(2)).decode(TOKEN);
+        assertThat(meterRegistry.get("security.jwt.decode").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testConvertsCachedTokenOnEveryRequest() {
+        when(delegate.decode(TOKEN)).thenReturn(jwt(NOW.plusSeconds(300)));
+
+        // the user couldn't be retrieved: the token is converted with its own claims only
+        assertThat(decoder.decode(TOKEN).hasClaim("preferred_username")).isFalse();
+        preferredUsername.set("jdoe");
+        Jwt jwt = decoder.decode(TOKEN);
+
+        verify(delegate, times(1)).decode(TOKEN);
+        assertThat(jwt.getClaimAsString("preferred_username")).isEqualTo("jdoe");
+        assertThat(jwt.getTokenValue()).isEqualTo(TOKEN);
+        assertThat(jwt.getHeaders()).containsEntry("alg", "RS256");
+        assertThat(jwt.getExpiresAt()).isEqualTo(NOW.plusSeconds(300));
+    }
+}
@@ -2,29 +2,48 @@ package com.auth0.flickr2.security.oauth2;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
+import static org.assertj.core.api.InstanceOfAssertFactories.MAP;
 
 import com.auth0.flickr2.IntegrationTest;
+import com.auth0.flickr2.config.ApplicationProperties;
 import com.auth0.flickr2.security.AuthoritiesConstants;
 import com.auth0.flickr2.security.SecurityUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+/**
+ * Integration tests for {@link CustomClaimConverter}, with a local server standing in for the userinfo endpoint.
+ */
 @IntegrationTest
 class CustomClaimConverterIT {
 
@@ -35,35 +54,87 @@ class CustomClaimConverterIT {
     private static final String NAME_SUFFIX = "Sr.";
     private static final String EMAIL = "john.doe@gmail.com";
 
-    private final ObjectMapper mapper = new ObjectMapper();
+    private static final long READ_TIMEOUT_MILLIS = 500;
+    private static final long REFRESH_AFTER_SECONDS = 60;
 
-    @MockBean
-    private RestTemplate restTemplate;
+    private final ObjectMapper mapper = new ObjectMapper();
 
     @Autowired
     private ClientRegistrationRepository clientRegistrationRepository;
 
+    private HttpServer userInfoServer;
+
+    private final AtomicInteger userInfoRequests = new AtomicInteger();
+
+    private volatile int userInfoStatus;
+
+    private volatile byte[] userInfoBody;
+
+    private volatile CountDownLatch userInfoRelease;
+
+    private final MutableClock clock = new MutableClock();
+
     private CustomClaimConverter customClaimConverter;
 
     @BeforeEach
-    public void initTest() {
-        customClaimConverter = new CustomClaimConverter(clientRegistrationRepository.findByRegistrationId("oidc"), restTemplate);
+    public void initTest() throws IOException {
+        userInfoStatus = 200;
+        userInfoBody = new byte[0];
+        userInfoRelease = new CountDownLatch(0);
+        userInfoServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        userInfoServer.setExecutor(Executors.newCachedThreadPool());
+        userInfoServer.createContext(
+            "/userinfo",
+            exchange -> {
+                userInfoRequests.incrementAndGet();
+                try {
+                    userInfoRelease.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = userInfoBody;
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(userInfoStatus, body.length == 0 ? -1 : body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        );
+        userInfoServer.start();
+
+        ClientRegistration registration = ClientRegistration
+            .withClientRegistration(clientRegistrationRepository.findByRegistrationId("oidc"))
+            .userInfoUri("http://localhost:" + userInfoServer.getAddress().getPort() + "/userinfo")
+            .build();
+        ApplicationProperties.UserInfo properties = new ApplicationProperties.UserInfo();
+        properties.setConnectTimeoutMillis(READ_TIMEOUT_MILLIS);
+        properties.setReadTimeoutMillis(READ_TIMEOUT_MILLIS);
+        properties.setRefreshAfterSeconds(REFRESH_AFTER_SECONDS);
+        properties.setCircuitBreakerFailureThreshold(2);
+        properties.setCircuitBreakerOpenSeconds(60);
+        customClaimConverter =
+            new CustomClaimConverter(registration, new ConcurrentMapCache(CustomClaimConverter.USER_INFO_CACHE), properties, clock);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userInfoRelease.countDown();
+        userInfoServer.stop(0);
+    }
+
+    private void mockHttpGetUserInfo(ObjectNode userInfo) throws IOException {
+        userInfoStatus = 200;
+        userInfoBody = mapper.writeValueAsBytes(userInfo);
     }
 
-    private void mockHttpGetUserInfo(ObjectNode userInfo) {
-        when(
-            restTemplate.exchange(
-                eq("https://api.jhipster.org/user"),
-                eq(HttpMethod.GET),
-                any(HttpEntity.class),
-                ArgumentMatchers.<Class<ObjectNode>>any()
-            )
-        )
-            .thenReturn(ResponseEntity.ok(userInfo));
+    private static Map<String, Object> claims(String sub) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", sub);
+        return claims;
     }
 
     @Test
-    void testConvert() {
+    void testConvert() throws Exception {
         // GIVEN
         Map<String, Object> claims = new HashMap<>();
         claims.put("sub", "123");
@@ -88,7 +159,7 @@ class CustomClaimConverterIT {
     }
 
     @Test
-    void testConvert_withoutGroups() {
+    void testConvert_withoutGroups() throws Exception {
         // GIVEN
         Map<String, Object> claims = new HashMap<>();
         claims.put("sub", "123");
@@ -104,7 +175,7 @@ class CustomClaimConverterIT {
     }
 
     @Test
-    void testConvert_withNamespacedRoles() {
+    void testConvert_withNamespacedRoles() throws Exception {
         // GIVEN
         Map<String, Object> claims = new HashMap<>();
         claims.put("sub", "123");
@@ -129,7 +200,7 @@ class CustomClaimConverterIT {
     }
 
     @Test
-    void testConvert_withoutFirstAndLastName() {
+    void testConvert_withoutFirstAndLastName() throws Exception {
         // GIVEN
         Map<String, Object> claims = new HashMap<>();
         claims.put("sub", "123");
@@ -146,7 +217,7 @@ class CustomClaimConverterIT {
     }
 
     @Test
-    void testConvert_withName() {
+    void testConvert_withName() throws Exception {
         // GIVEN
         Map<String, Object> claims = new HashMap<>();
         claims.put("sub", "123");
@@ -167,7 +238,7 @@ class CustomClaimConverterIT {
     }
 
     @Test
-    void testConvert_withLastNameMultipleWords() {
+    void testConvert_withLastNameMultipleWords() throws Exception {
         // GIVEN
         Map<String, Object> claims = new HashMap<>();
         claims.put("sub", "123");
@@ -189,7 +260,7 @@ class CustomClaimConverterIT {
     }
 
     @Test
-    void testConvert_withEmail() {
+    void testConvert_withEmail() throws Exception {
         // GIVEN
         Map<String, Object> claims = new HashMap<>();
         claims.put("sub", "123");
@@ -205,4 +276,179 @@ class CustomClaimConverterIT {
             })
             .doesNotThrowAnyException();
     }
+
+    @Test
+    void testConvert_cachesUser() throws Exception {
+        // GIVEN
+        ObjectNode user = mapper.createObjectNode();
+        user.put("preferred_username", USERNAME);
+        mockHttpGetUserInfo(user);
+
+        // WHEN
+        customClaimConverter.convert(claims("123"));
+        Map<String, Object> convertedClaims = customClaimConverter.convert(claims("123"));
+
+        // THEN
+        assertThat(convertedClaims).containsEntry("preferred_username", USERNAME);
+        assertThat(userInfoRequests).hasValue(1);
+    }
+
+    @Test
+    void testConvert_concurrentMissesShareUserInfoCall() throws Exception {
+        // GIVEN
+        ObjectNode user = mapper.createObjectNode();
+        user.put("preferred_username", USERNAME);
+        mockHttpGetUserInfo(user);
+        userInfoRelease = new CountDownLatch(1);
+
+        // WHEN
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] conversions = new Future<?>[4];
+            for (int i = 0; i < conversions.length; i++) {
+                conversions[i] = executor.submit(() -> convertInRequest(claims("123")));
+            }
+            Thread.sleep(100);
+            userInfoRelease.countDown();
+
+            // THEN
+            for (Future<?> conversion : conversions) {
+                assertThat(conversion.get(10, TimeUnit.SECONDS)).asInstanceOf(MAP).containsEntry("preferred_username", USERNAME);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(userInfoRequests).hasValue(1);
+    }
+
+    @Test
+    void testConvert_slowUserInfoFallsBackToJwtClaims() throws Exception {
+        // GIVEN
+        ObjectNode user = mapper.createObjectNode();
+        user.put("preferred_username", USERNAME);
+        mockHttpGetUserInfo(user);
+        userInfoRelease = new CountDownLatch(1);
+
+        // WHEN
+        long start = System.nanoTime();
+        Map<String, Object> convertedClaims = customClaimConverter.convert(claims("123"));
+
+        // THEN
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(convertedClaims).containsEntry("sub", "123").doesNotContainKey("preferred_username");
+    }
+
+    @Test
+    void testConvert_failingUserInfoOpensCircuit() {
+        // GIVEN
+        userInfoStatus = 503;
+
+        // WHEN
+        Map<String, Object> convertedClaims = customClaimConverter.convert(claims("1"));
+        customClaimConverter.convert(claims("2"));
+        customClaimConverter.convert(claims("3"));
+
+        // THEN
+        assertThat(convertedClaims).containsEntry("sub", "1").doesNotContainKey("preferred_username");
+        // the third call is refused by the open circuit
+        assertThat(userInfoRequests).hasValue(2);
+    }
+
+    @Test
+    void testConvert_malformedUserInfoOpensCircuit() {
+        // GIVEN
+        userInfoBody = "not a user".getBytes(StandardCharsets.UTF_8);
+
+        // WHEN
+        Map<String, Object> convertedClaims = customClaimConverter.convert(claims("1"));
+        customClaimConverter.convert(claims("2"));
+        customClaimConverter.convert(claims("3"));
+
+        // THEN
+        assertThat(convertedClaims).containsEntry("sub", "1").doesNotContainKey("preferred_username");
+        // the third call is refused by the open circuit
+        assertThat(userInfoRequests).hasValue(2);
+    }
+
+    @Test
+    void testConvert_refreshesStaleUserInBackground() throws Exception {
+        // GIVEN
+        ObjectNode user = mapper.createObjectNode();
+        user.put("preferred_username", USERNAME);
+        mockHttpGetUserInfo(user);
+        customClaimConverter.convert(claims("123"));
+        // AND
+        clock.advance(Duration.ofSeconds(REFRESH_AFTER_SECONDS + 1));
+        ObjectNode updatedUser = mapper.createObjectNode();
+        updatedUser.put("preferred_username", USERNAME);
+        updatedUser.put("email", EMAIL);
+        mockHttpGetUserInfo(updatedUser);
+        userInfoRelease = new CountDownLatch(1);
+
+        // WHEN
+        Map<String, Object> staleClaims = customClaimConverter.convert(claims("123"));
+        userInfoRelease.countDown();
+
+        // THEN
+        assertThat(staleClaims).containsEntry("preferred_username", USERNAME).doesNotContainKey("email");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Map<String, Object> refreshedClaims;
+        do {
+            Thread.sleep(10);
+            refreshedClaims = customClaimConverter.convert(claims("123"));
+        } while (!refreshedClaims.containsKey("email") && System.nanoTime() < deadline);
+        assertThat(refreshedClaims).containsEntry("email", EMAIL);
+        assertThat(userInfoRequests).hasValue(2);
+    }
+
+    @Test
+    void testConvert_keepsStaleUserWhenUserInfoFails() throws Exception {
+        // GIVEN
+        ObjectNode user = mapper.createObjectNode();
+        user.put("preferred_username", USERNAME);
+        mockHttpGetUserInfo(user);
+        customClaimConverter.convert(claims("123"));
+        // AND
+        clock.advance(Duration.ofSeconds(REFRESH_AFTER_SECONDS + 1));
+        userInfoStatus = 503;
+
+        // WHEN
+        Map<String, Object> convertedClaims = customClaimConverter.convert(claims("123"));
+
+        // THEN
+        assertThat(convertedClaims).containsEntry("preferred_username", USERNAME);
+    }
+
+    private Map<String, Object> convertInRequest(Map<String, Object> claims) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            return customClaimConverter.convert(claims);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant = Instant.now();
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
 }
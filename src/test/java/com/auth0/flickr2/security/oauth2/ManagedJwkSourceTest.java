@@ -0,0 +1,176 @@
+package com.auth0.flickr2.security.oauth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+/**
+ * Test class for {@link ManagedJwkSource}, with a local server standing in for the JWK set endpoint.
+ */
+class ManagedJwkSourceTest {
+
+    private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(5);
+
+    private HttpServer jwksServer;
+
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+
+    private volatile int jwksStatus;
+
+    private volatile JWKSet served;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RSAKey key;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        key = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        served = new JWKSet(key);
+        jwksStatus = 200;
+        jwksServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        jwksServer.createContext(
+            "/jwks",
+            exchange -> {
+                jwksRequests.incrementAndGet();
+                byte[] body = served.toString(true).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(jwksStatus, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        );
+        jwksServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jwksServer.stop(0);
+    }
+
+    private ManagedJwkSource createSource(Duration minRefetchInterval) {
+        return new ManagedJwkSource(
+            URI.create("http://localhost:" + jwksServer.getAddress().getPort() + "/jwks"),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(1),
+            REFRESH_INTERVAL,
+            minRefetchInterval,
+            meterRegistry
+        );
+    }
+
+    private static JWKSelector selectKey(String keyId) {
+        return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+    }
+
+    private static String sign(RSAKey key) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+            .subject("123")
+            .issueTime(new Date())
+            .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+            .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private NimbusJwtDecoder createDecoder(ManagedJwkSource source) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, source));
+        return new NimbusJwtDecoder(jwtProcessor);
+    }
+
+    @Test
+    void testStartPrefetchesAndSchedulesRefresh() {
+        ManagedJwkSource source = createSource(Duration.ZERO);
+        TaskScheduler taskScheduler = mock(TaskScheduler.class);
+
+        source.start(taskScheduler);
+
+        assertThat(jwksRequests).hasValue(1);
+        assertThat(source.get(selectKey("key-1"), null)).extracting("keyID").containsExactly("key-1");
+        assertThat(jwksRequests).hasValue(1);
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), any(Instant.class), eq(REFRESH_INTERVAL));
+        assertThat(meterRegistry.get("security.jwks.fetch").tag("reason", "refresh").tag("outcome", "success").timer().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("security.jwks.keys").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void testRefetchesOnUnknownKeyAfterRotation() throws Exception {
+        ManagedJwkSource source = createSource(Duration.ZERO);
+        source.refresh();
+        NimbusJwtDecoder decoder = createDecoder(source);
+        // AND the keys are rotated
+        RSAKey rotatedKey = new RSAKeyGenerator(2048).keyID("key-2").generate();
+        served = new JWKSet(rotatedKey);
+
+        assertThat(decoder.decode(sign(rotatedKey)).getSubject()).isEqualTo("123");
+        assertThat(jwksRequests).hasValue(2);
+        assertThat(meterRegistry.get("security.jwks.fetch").tag("reason", "unknown-key").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testLimitsRefetchesOnUnknownKey() throws Exception {
+        ManagedJwkSource source = createSource(Duration.ofHours(1));
+        source.refresh();
+        NimbusJwtDecoder decoder = createDecoder(source);
+        RSAKey unknownKey = new RSAKeyGenerator(2048).keyID("unknown").generate();
+
+        assertThatThrownBy(() -> decoder.decode(sign(unknownKey))).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode(sign(unknownKey))).isInstanceOf(BadJwtException.class);
+
+        assertThat(jwksRequests).hasValue(1);
+        assertThat(meterRegistry.get("security.jwks.refetch.limited").counter().count()).isEqualTo(2);
+        assertThat(decoder.decode(sign(key)).getSubject()).isEqualTo("123");
+    }
+
+    @Test
+    void testKeepsKeysWhenRefreshFails() {
+        ManagedJwkSource source = createSource(Duration.ZERO);
+        source.refresh();
+        jwksStatus = 503;
+
+        source.refresh();
+
+        assertThat(jwksRequests).hasValue(2);
+        assertThat(source.get(selectKey("key-1"), null)).hasSize(1);
+        assertThat(meterRegistry.get("security.jwks.fetch").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.auth0.flickr2.IntegrationTest;
+import com.auth0.flickr2.domain.Authority;
+import com.auth0.flickr2.repository.AuthorityRepository;
+import com.auth0.flickr2.security.AuthoritiesConstants;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Integration tests for {@link AuthorityRegistry}.
+ */
+@IntegrationTest
+class AuthorityRegistryIT {
+
+    private static final String NEW_AUTHORITY = "ROLE_REGISTRY_NEW";
+
+    private static final String OTHER_NODE_AUTHORITY = "ROLE_REGISTRY_OTHER_NODE";
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private AuthorityRegistry authorityRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanup() {
+        authorityRepository.findById(NEW_AUTHORITY).ifPresent(authorityRepository::delete);
+        authorityRepository.findById(OTHER_NODE_AUTHORITY).ifPresent(authorityRepository::delete);
+        authorityRegistry.reload();
+    }
+
+    private void saveAuthority(String name) {
+        Authority authority = new Authority();
+        authority.setName(name);
+        authorityRepository.saveAndFlush(authority);
+    }
+
+    @Test
+    void testGetAuthorities() {
+        assertThat(authorityRegistry.getAuthorities()).contains(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER).isSorted();
+        assertThat(authorityRegistry.contains(AuthoritiesConstants.ADMIN)).isTrue();
+        assertThat(authorityRegistry.contains(NEW_AUTHORITY)).isFalse();
+    }
+
+    @Test
+    void testRegisterSavesNewAuthorities() {
+        authorityRegistry.register(List.of(AuthoritiesConstants.USER, NEW_AUTHORITY));
+
+        assertThat(authorityRegistry.contains(NEW_AUTHORITY)).isTrue();
+        assertThat(authorityRepository.findById(NEW_AUTHORITY)).isPresent();
+    }
+
+    @Test
+    void testRegisterAuthoritySavedByAnotherNode() {
+        saveAuthority(OTHER_NODE_AUTHORITY);
+
+        authorityRegistry.register(List.of(OTHER_NODE_AUTHORITY));
+
+        assertThat(authorityRegistry.contains(OTHER_NODE_AUTHORITY)).isTrue();
+    }
+
+    @Test
+    void testReloadPicksUpChangesOfOtherNodes() {
+        saveAuthority(OTHER_NODE_AUTHORITY);
+        assertThat(authorityRegistry.contains(OTHER_NODE_AUTHORITY)).isFalse();
+
+        authorityRegistry.reload();
+
+        assertThat(authorityRegistry.contains(OTHER_NODE_AUTHORITY)).isTrue();
+    }
+
+    @Test
+    void testLoadOnFirstUseWhenApplicationReadyLoadFails() {
+        Authority admin = new Authority();
+        admin.setName(AuthoritiesConstants.ADMIN);
+        AuthorityRepository failingRepository = mock(AuthorityRepository.class);
+        when(failingRepository.findAll()).thenThrow(new DataAccessResourceFailureException("Database is down")).thenReturn(List.of(admin));
+        AuthorityRegistry registry = new AuthorityRegistry(failingRepository, transactionManager);
+
+        registry.onApplicationReady();
+
+        assertThat(registry.contains(AuthoritiesConstants.ADMIN)).isTrue();
+    }
+}
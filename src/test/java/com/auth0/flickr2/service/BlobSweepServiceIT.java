@@ -0,0 +1,91 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.auth0.flickr2.IntegrationTest;
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.repository.LocalBlobStore;
+import com.auth0.flickr2.repository.PhotoRepository;
+import com.auth0.flickr2.web.rest.PhotoResourceIT;
+import com.auth0.flickr2.web.rest.TestUtil;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link BlobSweepService}.
+ */
+@IntegrationTest
+@Transactional
+class BlobSweepServiceIT {
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private BlobSweepService blobSweepService;
+
+    @Autowired
+    private LocalBlobStore blobStore;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    void assertThatOnlyOldOrphanBlobsAreDeleted() throws Exception {
+        BlobStore.Blob referenced = putOld(TestUtil.createByteArray(1024, "1"));
+        Photo photo = PhotoResourceIT.createEntity(em).imageSha256(referenced.getDigest()).imageSize(referenced.getSize());
+        photoRepository.saveAndFlush(photo);
+        BlobStore.Blob orphan = putOld(TestUtil.createByteArray(1024, "2"));
+        BlobStore.Blob recentOrphan = blobStore.put(new ByteArrayInputStream(TestUtil.createByteArray(1024, "3")));
+
+        assertThat(blobSweepService.sweepOrphans()).isPositive();
+
+        assertThat(blobStore.exists(referenced.getDigest())).isTrue();
+        assertThat(blobStore.exists(orphan.getDigest())).isFalse();
+        assertThat(blobStore.exists(recentOrphan.getDigest())).isTrue();
+    }
+
+    @Test
+    void assertThatBlobsStoredAgainAreKept() throws Exception {
+        byte[] content = TestUtil.createByteArray(1024, "4");
+        BlobStore.Blob blob = putOld(content);
+        // e.g. uploaded again by a transaction not committed yet
+        blobStore.put(new ByteArrayInputStream(content));
+
+        blobSweepService.sweepOrphans();
+
+        assertThat(blobStore.exists(blob.getDigest())).isTrue();
+    }
+
+    @Test
+    void assertThatBlobsStoredAgainBeforeTheirDeletionAreKept() throws Exception {
+        byte[] content = TestUtil.createByteArray(1024, "5");
+        BlobStore.Blob blob = putOld(content);
+        BlobStore.Blob orphan = putOld(TestUtil.createByteArray(1024, "6"));
+        Instant storedBefore = Instant.now().minus(Duration.ofDays(1));
+        // e.g. uploaded again once the sweep found no reference to it
+        blobStore.put(new ByteArrayInputStream(content));
+
+        assertThat(blobStore.deleteIfStoredBefore(blob.getDigest(), storedBefore)).isFalse();
+        assertThat(blobStore.deleteIfStoredBefore(orphan.getDigest(), storedBefore)).isTrue();
+
+        assertThat(blobStore.exists(blob.getDigest())).isTrue();
+        assertThat(blobStore.exists(orphan.getDigest())).isFalse();
+        assertThat(blobStore.deleteIfStoredBefore(orphan.getDigest(), storedBefore)).isFalse();
+    }
+
+    private BlobStore.Blob putOld(byte[] content) throws IOException {
+        BlobStore.Blob blob = blobStore.put(new ByteArrayInputStream(content));
+        Files.setLastModifiedTime(blobStore.resolve(blob.getDigest()), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        return blob;
+    }
+}
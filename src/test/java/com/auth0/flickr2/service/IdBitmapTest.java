@@ -0,0 +1,110 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link IdBitmap}.
+ */
+class IdBitmapTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void testAddAndRemove() {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(3);
+        bitmap.add(70_000);
+        bitmap.add(3);
+        bitmap.remove(5);
+
+        assertThat(bitmap.cardinality()).isEqualTo(2);
+        assertThat(bitmap.contains(3)).isTrue();
+        assertThat(bitmap.contains(70_000)).isTrue();
+
+        bitmap.remove(3);
+        bitmap.remove(70_000);
+
+        assertThat(bitmap.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testDescendingPages() {
+        IdBitmap bitmap = new IdBitmap();
+        for (long id = 1; id <= 10; id++) {
+            bitmap.add(id * 100_000);
+        }
+
+        assertThat(bitmap.descending(0, 3)).containsExactly(1_000_000L, 900_000L, 800_000L);
+        assertThat(bitmap.descending(8, 3)).containsExactly(200_000L, 100_000L);
+        assertThat(bitmap.descending(10, 3)).isEmpty();
+    }
+
+    @Test
+    void testSparseIds() {
+        assertMatchesSets(50, 10_000_000L);
+    }
+
+    @Test
+    void testDenseIds() {
+        // more than ARRAY_MAX_SIZE ids per chunk
+        assertMatchesSets(IdBitmap.ARRAY_MAX_SIZE * 3, 100_000L);
+    }
+
+    private void assertMatchesSets(int count, long range) {
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Long> first = new TreeSet<>();
+            TreeSet<Long> second = new TreeSet<>();
+            IdBitmap firstBitmap = randomBitmap(first, count, range);
+            IdBitmap secondBitmap = randomBitmap(second, count, range);
+            for (int i = 0; i < count / 3; i++) {
+                long id = (long) (random.nextDouble() * range);
+                first.remove(id);
+                firstBitmap.remove(id);
+            }
+            assertMatchesSet(firstBitmap, first);
+
+            IdBitmap intersection = firstBitmap.copy();
+            intersection.and(secondBitmap);
+            TreeSet<Long> expectedIntersection = new TreeSet<>(first);
+            expectedIntersection.retainAll(second);
+            assertMatchesSet(intersection, expectedIntersection);
+
+            IdBitmap union = firstBitmap.copy();
+            union.or(secondBitmap);
+            TreeSet<Long> expectedUnion = new TreeSet<>(first);
+            expectedUnion.addAll(second);
+            assertMatchesSet(union, expectedUnion);
+
+            // the copies are independent
+            assertMatchesSet(firstBitmap, first);
+            assertMatchesSet(secondBitmap, second);
+
+            int offset = random.nextInt(expectedUnion.size() + 1);
+            assertThat(union.descending(offset, 10))
+                .isEqualTo(expectedUnion.descendingSet().stream().skip(offset).limit(10).collect(Collectors.toList()));
+        }
+    }
+
+    private IdBitmap randomBitmap(TreeSet<Long> ids, int count, long range) {
+        IdBitmap bitmap = new IdBitmap();
+        for (int i = 0; i < count; i++) {
+            long id = (long) (random.nextDouble() * range);
+            ids.add(id);
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    private static void assertMatchesSet(IdBitmap bitmap, TreeSet<Long> ids) {
+        assertThat(bitmap.cardinality()).isEqualTo(ids.size());
+        List<Long> expected = new ArrayList<>(ids.descendingSet());
+        assertThat(bitmap.descending(0, Integer.MAX_VALUE)).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,32 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ImageContentTypes}.
+ */
+class ImageContentTypesTest {
+
+    @Test
+    void testRasterImageTypesAreKept() {
+        assertThat(ImageContentTypes.safeContentType("image/png")).isEqualTo("image/png");
+        assertThat(ImageContentTypes.safeContentType("IMAGE/JPEG; charset=binary")).isEqualTo("image/jpeg");
+    }
+
+    @Test
+    void testOtherTypesAreOctetStreams() {
+        assertThat(ImageContentTypes.safeContentType("text/html")).isEqualTo("application/octet-stream");
+        assertThat(ImageContentTypes.safeContentType("image/svg+xml")).isEqualTo("application/octet-stream");
+        assertThat(ImageContentTypes.safeContentType("not a type")).isEqualTo("application/octet-stream");
+        assertThat(ImageContentTypes.safeContentType(null)).isEqualTo("application/octet-stream");
+    }
+
+    @Test
+    void testFileExtension() {
+        assertThat(ImageContentTypes.fileExtension("image/jpeg")).isEqualTo(".jpg");
+        assertThat(ImageContentTypes.fileExtension("image/png")).isEqualTo(".png");
+        assertThat(ImageContentTypes.fileExtension("application/octet-stream")).isEmpty();
+    }
+}
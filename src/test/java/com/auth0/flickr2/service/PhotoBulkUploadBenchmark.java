@@ -0,0 +1,158 @@
+package com.auth0.flickr2.service;
+
+import com.auth0.flickr2.Flickr2App;
+import com.auth0.flickr2.config.TestSecurityConfiguration;
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.web.rest.PhotoResource;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Benchmark, in photos per second, of the ways an album of photos can be uploaded:
+ * <ul>
+ *     <li>{@code create}: one photo at a time, its image sent in its JSON, with {@link PhotoResource#createPhoto};</li>
+ *     <li>{@code upload}: one photo at a time, its image sent as a multipart file, with {@link PhotoResource#uploadPhoto};</li>
+ *     <li>{@code bulk}: all the photos at once, with {@link PhotoBulkUploadService#upload}.</li>
+ * </ul>
+ * The beans are called in the application context of the integration tests, on its in-memory H2 database, with the
+ * images stored in a temporary directory: the blob store, Hibernate and the indexes updated once a photo is committed
+ * are measured, not HTTP. The derivatives of the photos are generated in the background, whatever the way.
+ * <p>
+ * Run it from the IDE or with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.auth0.flickr2.service.PhotoBulkUploadBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PhotoBulkUploadBenchmark {
+
+    private static final int PHOTOS = 100;
+
+    private final List<byte[]> images = new ArrayList<>();
+
+    private Path directory;
+
+    private ConfigurableApplicationContext context;
+
+    private PhotoResource photoResource;
+
+    private PhotoBulkUploadService photoBulkUploadService;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 10; i++) {
+            BufferedImage noise = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < noise.getHeight(); y++) {
+                for (int x = 0; x < noise.getWidth(); x++) {
+                    noise.setRGB(x, y, random.nextInt());
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(noise, "jpeg", out);
+            images.add(out.toByteArray());
+        }
+
+        directory = Files.createTempDirectory("photo-bulk-upload-benchmark-");
+        context =
+            new SpringApplicationBuilder(Flickr2App.class, TestSecurityConfiguration.class)
+                .properties(
+                    "server.port=0",
+                    "application.blob-store.directory=" + directory.resolve("blob-store"),
+                    "application.photo-uploads.directory=" + directory.resolve("photo-uploads"),
+                    "logging.level.com.auth0.flickr2=WARN"
+                )
+                .run();
+        photoResource = context.getBean(PhotoResource.class);
+        photoBulkUploadService = context.getBean(PhotoBulkUploadService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHOTOS)
+    public void create() throws Exception {
+        for (int i = 0; i < PHOTOS; i++) {
+            photoResource.createPhoto(new Photo().title(fileName(i)).image(image(i)).imageContentType("image/jpeg"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHOTOS)
+    public void upload() throws Exception {
+        for (int i = 0; i < PHOTOS; i++) {
+            photoResource.uploadPhoto(new MockMultipartFile("file", fileName(i), "image/jpeg", image(i)), null);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHOTOS)
+    public void bulk() throws Exception {
+        List<PhotoBulkUploadService.Image> album = new ArrayList<>(PHOTOS);
+        for (int i = 0; i < PHOTOS; i++) {
+            album.add(new PhotoBulkUploadService.Image(fileName(i), "image/jpeg", new ByteArrayResource(image(i))));
+        }
+        photoBulkUploadService.upload(
+            album,
+            null,
+            result -> {
+                if (result.getId() == null) {
+                    throw new IllegalStateException("Photo " + result.getFileName() + " was not created: " + result.getError());
+                }
+            }
+        );
+    }
+
+    private byte[] image(int index) {
+        return images.get(index % images.size());
+    }
+
+    private static String fileName(int index) {
+        return "photo-" + index + ".jpg";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PhotoBulkUploadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,58 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.auth0.flickr2.IntegrationTest;
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.repository.PhotoRepository;
+import com.auth0.flickr2.web.rest.TestUtil;
+import java.io.InputStream;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link PhotoImageBackfillService}.
+ */
+@IntegrationTest
+@Transactional
+class PhotoImageBackfillServiceIT {
+
+    private static final byte[] IMAGE = TestUtil.createByteArray(2048, "1");
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoImageBackfillService photoImageBackfillService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void assertThatImagesAreMovedToTheBlobStore() throws Exception {
+        // a photo uploaded before the blob store existed
+        Photo photo = new Photo().title("legacy").imageContentType("image/png");
+        photoRepository.saveAndFlush(photo);
+        jdbcTemplate.update("update photo set image = ? where id = ?", IMAGE, photo.getId());
+
+        assertThat(photoImageBackfillService.backfillImages()).isPositive();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("select image_sha256, image_size, image from photo where id = ?", photo.getId());
+        assertThat(row.get("image")).isNull();
+        assertThat(((Number) row.get("image_size")).longValue()).isEqualTo(IMAGE.length);
+        String digest = (String) row.get("image_sha256");
+        assertThat(blobStore.exists(digest)).isTrue();
+        try (InputStream content = blobStore.open(digest)) {
+            assertThat(content.readAllBytes()).isEqualTo(IMAGE);
+        }
+
+        assertThat(photoImageBackfillService.backfillImages()).isZero();
+    }
+}
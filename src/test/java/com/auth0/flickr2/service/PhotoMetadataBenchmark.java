@@ -0,0 +1,113 @@
+package com.auth0.flickr2.service;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.drew.metadata.jpeg.JpegDirectory;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.xml.bind.DatatypeConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of the ways the metadata of an uploaded photo can be read:
+ * <ul>
+ *     <li>{@code base64RoundTrip}: the image encoded to base64 and decoded back before all its segments are read,
+ *     as {@code PhotoResource.setMetadata} did;</li>
+ *     <li>{@code extractor}: the image read by {@link PhotoMetadataExtractor}, which stops at the compressed data.</li>
+ * </ul>
+ * The images are incompressible noise JPEGs of about 5 and 20 MB, so the segments skipped are as large as they get.
+ * <p>
+ * Run it, with the bytes allocated per operation ({@code gc.alloc.rate.norm}) reported by the GC profiler,
+ * from the IDE or with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.auth0.flickr2.service.PhotoMetadataBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhotoMetadataBenchmark {
+
+    /**
+     * Width of the square images: about 5 and 20 MB once encoded at the best quality.
+     */
+    @Param({ "1800", "3600" })
+    private int imageWidth;
+
+    private final PhotoMetadataExtractor extractor = new PhotoMetadataExtractor();
+
+    private byte[] image;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BufferedImage noise = new BufferedImage(imageWidth, imageWidth, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < imageWidth; y++) {
+            for (int x = 0; x < imageWidth; x++) {
+                noise.setRGB(x, y, random.nextInt());
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(1f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(noise, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        image = out.toByteArray();
+    }
+
+    @Benchmark
+    public void base64RoundTrip(Blackhole blackhole) throws Exception {
+        String str = DatatypeConverter.printBase64Binary(image);
+        byte[] data2 = DatatypeConverter.parseBase64Binary(str);
+        InputStream inputStream = new ByteArrayInputStream(data2);
+        Metadata metadata = ImageMetadataReader.readMetadata(new BufferedInputStream(inputStream));
+        blackhole.consume(metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class));
+        JpegDirectory jpegDirectory = metadata.getFirstDirectoryOfType(JpegDirectory.class);
+        blackhole.consume(jpegDirectory.getImageWidth());
+        blackhole.consume(jpegDirectory.getImageHeight());
+    }
+
+    @Benchmark
+    public PhotoMetadataExtractor.ImageMetadata extractor() throws Exception {
+        return extractor.extract(new ByteArrayInputStream(image));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PhotoMetadataBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+    }
+}
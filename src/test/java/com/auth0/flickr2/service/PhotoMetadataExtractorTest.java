@@ -0,0 +1,39 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.drew.imaging.ImageProcessingException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link PhotoMetadataExtractor}.
+ */
+class PhotoMetadataExtractorTest {
+
+    private final PhotoMetadataExtractor extractor = new PhotoMetadataExtractor();
+
+    @Test
+    void extractJpegDimensions() throws Exception {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "jpeg", jpeg);
+
+        PhotoMetadataExtractor.ImageMetadata metadata = extractor.extract(new ByteArrayInputStream(jpeg.toByteArray()));
+
+        assertThat(metadata.getWidth()).isEqualTo(40);
+        assertThat(metadata.getHeight()).isEqualTo(30);
+        assertThat(metadata.getTaken()).isNull();
+    }
+
+    @Test
+    void extractUnsupportedImage() {
+        byte[] content = "not an image".getBytes();
+
+        assertThatThrownBy(() -> extractor.extract(new ByteArrayInputStream(content))).isInstanceOf(ImageProcessingException.class);
+    }
+}
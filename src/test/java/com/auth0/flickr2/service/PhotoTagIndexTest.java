@@ -0,0 +1,58 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.domain.Tag;
+import com.auth0.flickr2.repository.PhotoRepository;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link PhotoTagIndex}, outside of any transaction so the changes are applied at once.
+ */
+class PhotoTagIndexTest {
+
+    private final Tag cat = new Tag().id(1L).name("cat");
+
+    private final Tag dog = new Tag().id(2L).name("dog");
+
+    private PhotoTagIndex photoTagIndex;
+
+    @BeforeEach
+    void setUp() {
+        PhotoRepository photoRepository = mock(PhotoRepository.class);
+        when(photoRepository.streamAllPhotoAndTagIds()).thenReturn(Stream.of(new Object[] { 10L, 1L }, new Object[] { 11L, 2L }));
+        photoTagIndex = new PhotoTagIndex(photoRepository, mock(PlatformTransactionManager.class));
+        photoTagIndex.rebuild();
+    }
+
+    @Test
+    void testIndexNewPhoto() {
+        photoTagIndex.indexPhoto(new Photo().id(12L).tags(Set.of(cat, dog)), Set.of());
+
+        assertThat(photoTagIndex.findPhotoIdsWithAnyTag(List.of(1L)).descending(0, 10)).containsExactly(12L, 10L);
+        assertThat(photoTagIndex.findPhotoIdsWithAnyTag(List.of(2L)).descending(0, 10)).containsExactly(12L, 11L);
+    }
+
+    @Test
+    void testIndexUpdatedPhotoRemovesItFromItsPreviousTags() {
+        photoTagIndex.indexPhoto(new Photo().id(10L).tags(Set.of(dog)), Set.of(cat));
+
+        assertThat(photoTagIndex.findPhotoIdsWithAnyTag(List.of(1L)).isEmpty()).isTrue();
+        assertThat(photoTagIndex.findPhotoIdsWithAnyTag(List.of(2L)).descending(0, 10)).containsExactly(11L, 10L);
+    }
+
+    @Test
+    void testRemovePhoto() {
+        photoTagIndex.removePhoto(11L, Set.of(dog));
+
+        assertThat(photoTagIndex.findPhotoIdsWithAnyTag(List.of(1L, 2L)).descending(0, 10)).containsExactly(10L);
+    }
+}
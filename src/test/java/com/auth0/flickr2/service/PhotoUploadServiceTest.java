@@ -0,0 +1,184 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.auth0.flickr2.config.ApplicationProperties;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.service.dto.PhotoUploadDTO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests the chunks, the commit, the limit and the removal of the expired uploads by {@link PhotoUploadService}.
+ */
+class PhotoUploadServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private BlobStore blobStore;
+
+    private PhotoUploadService createService(long expirationMinutes) throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPhotoUploads().setDirectory(directory.toString());
+        applicationProperties.getPhotoUploads().setExpirationMinutes(expirationMinutes);
+        applicationProperties.getPhotoUploads().setMaxUploadsPerUser(2);
+        blobStore = mock(BlobStore.class);
+        return new PhotoUploadService(blobStore, applicationProperties);
+    }
+
+    @Test
+    void removeExpiredUploads() throws Exception {
+        PhotoUploadService photoUploadService = createService(0);
+        PhotoUploadDTO upload = photoUploadService.createUpload(new PhotoUploadDTO());
+        photoUploadService.putChunk(upload.getId(), 0, new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+
+        assertThat(photoUploadService.removeExpiredUploads()).isEqualTo(1);
+
+        assertThat(photoUploadService.findUpload(upload.getId())).isEmpty();
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void keepActiveUploads() throws Exception {
+        PhotoUploadService photoUploadService = createService(60);
+        PhotoUploadDTO upload = photoUploadService.createUpload(new PhotoUploadDTO());
+
+        assertThat(photoUploadService.removeExpiredUploads()).isZero();
+
+        assertThat(photoUploadService.findUpload(upload.getId())).isPresent();
+    }
+
+    @Test
+    void removeLeftOverFiles() throws Exception {
+        PhotoUploadService photoUploadService = createService(60);
+        Path leftOver = Files.write(directory.resolve("left-over.part"), new byte[] { 1, 2, 3 });
+        Files.setLastModifiedTime(leftOver, FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+
+        assertThat(photoUploadService.removeExpiredUploads()).isEqualTo(1);
+
+        assertThat(leftOver).doesNotExist();
+    }
+
+    @Test
+    void abortUploadWhileReceivingChunk() throws Exception {
+        PhotoUploadService photoUploadService = createService(60);
+        PhotoUploadDTO upload = photoUploadService.createUpload(new PhotoUploadDTO());
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        InputStream slowClient = new SequenceInputStream(
+            new ByteArrayInputStream(new byte[] { 1, 2, 3 }),
+            new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    reading.countDown();
+                    try {
+                        aborted.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    return -1;
+                }
+            }
+        );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<PhotoUploadDTO>> chunk = executor.submit(() -> photoUploadService.putChunk(upload.getId(), 0, slowClient));
+            assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // the upload is not locked while the chunk is read
+            assertThat(photoUploadService.abortUpload(upload.getId())).isTrue();
+            aborted.countDown();
+
+            assertThat(chunk.get(10, TimeUnit.SECONDS)).isEmpty();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void limitUploadsInProgress() throws Exception {
+        PhotoUploadService photoUploadService = createService(60);
+        PhotoUploadDTO upload = photoUploadService.createUpload(new PhotoUploadDTO());
+        photoUploadService.createUpload(new PhotoUploadDTO());
+
+        assertThatThrownBy(() -> photoUploadService.createUpload(new PhotoUploadDTO()))
+            .isInstanceOf(PhotoUploadException.class)
+            .extracting("reason")
+            .isEqualTo(PhotoUploadException.Reason.TOO_MANY_UPLOADS);
+
+        assertThat(photoUploadService.abortUpload(upload.getId())).isTrue();
+        assertThat(photoUploadService.createUpload(new PhotoUploadDTO())).isNotNull();
+    }
+
+    @Test
+    void keepUploadUntilItsTransactionIsCommitted() throws Exception {
+        PhotoUploadService photoUploadService = createService(60);
+        when(blobStore.put(any())).thenReturn(new BlobStore.Blob("digest", 3));
+        PhotoUploadDTO upload = photoUploadService.createUpload(new PhotoUploadDTO());
+        photoUploadService.putChunk(upload.getId(), 0, new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+
+        // the photo of the upload couldn't be created
+        completeTransaction(() -> photoUploadService.commitUpload(upload.getId()), TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(photoUploadService.findUpload(upload.getId())).isPresent();
+
+        completeTransaction(
+            () -> {
+                photoUploadService.commitUpload(upload.getId());
+                // not removed before the transaction is committed, but can't be committed twice
+                assertThat(photoUploadService.findUpload(upload.getId())).isPresent();
+                assertThatThrownBy(() -> photoUploadService.commitUpload(upload.getId()))
+                    .isInstanceOf(PhotoUploadException.class)
+                    .extracting("reason")
+                    .isEqualTo(PhotoUploadException.Reason.UPLOAD_COMMITTING);
+            },
+            TransactionSynchronization.STATUS_COMMITTED
+        );
+        assertThat(photoUploadService.findUpload(upload.getId())).isEmpty();
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    /**
+     * Run the action with transaction synchronization active, then complete the transaction with the given status.
+     */
+    private static void completeTransaction(TransactionalAction action, int status) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            action.run();
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    @FunctionalInterface
+    private interface TransactionalAction {
+        void run() throws Exception;
+    }
+}
@@ -145,6 +145,23 @@ class UserServiceIT {
         assertThat(userDTO.getLangKey()).isEqualTo("en");
     }
 
+    @Test
+    @Transactional
+    void testUserNotSynchronizedAgainWhileClaimsUnchanged() {
+        userDetails.put("sub", "synced-user");
+        userService.getUserFromAuthentication(createMockOAuth2AuthenticationToken(userDetails));
+        assertThat(userRepository.findById("synced-user")).isPresent();
+
+        userRepository.deleteById("synced-user");
+        userRepository.flush();
+        userService.getUserFromAuthentication(createMockOAuth2AuthenticationToken(userDetails));
+        assertThat(userRepository.findById("synced-user")).isEmpty();
+
+        userDetails.put("family_name", "updated");
+        userService.getUserFromAuthentication(createMockOAuth2AuthenticationToken(userDetails));
+        assertThat(userRepository.findById("synced-user")).hasValueSatisfying(synced -> assertThat(synced.getLastName()).isEqualTo("updated"));
+    }
+
     private OAuth2AuthenticationToken createMockOAuth2AuthenticationToken(Map<String, Object> userDetails) {
         Collection<GrantedAuthority> authorities = Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
         UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
@@ -0,0 +1,89 @@
+package com.auth0.flickr2.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link UserSyncTracker}.
+ */
+class UserSyncTrackerTest {
+
+    private static final Duration INTERVAL = Duration.ofMinutes(5);
+
+    private final MutableClock clock = new MutableClock();
+
+    private final UserSyncTracker tracker = new UserSyncTracker(INTERVAL, 2, clock);
+
+    @Test
+    void testSyncNeededForUnknownUser() {
+        assertThat(tracker.isSyncNeeded("johndoe", List.of("john"))).isTrue();
+    }
+
+    @Test
+    void testSyncNotNeededWhileClaimsUnchanged() {
+        tracker.synced("johndoe", List.of("john"));
+        clock.advance(INTERVAL.minusSeconds(1));
+
+        assertThat(tracker.isSyncNeeded("johndoe", List.of("john"))).isFalse();
+    }
+
+    @Test
+    void testSyncNeededWhenClaimsChange() {
+        tracker.synced("johndoe", List.of("john"));
+
+        assertThat(tracker.isSyncNeeded("johndoe", List.of("johnny"))).isTrue();
+    }
+
+    @Test
+    void testSyncNeededOnceIntervalElapsed() {
+        tracker.synced("johndoe", List.of("john"));
+        clock.advance(INTERVAL);
+
+        assertThat(tracker.isSyncNeeded("johndoe", List.of("john"))).isTrue();
+    }
+
+    @Test
+    void testEmptiedWhenFull() {
+        tracker.synced("johndoe", List.of("john"));
+        tracker.synced("janedoe", List.of("jane"));
+        tracker.synced("johndoe", List.of("john"));
+        assertThat(tracker.isSyncNeeded("janedoe", List.of("jane"))).isFalse();
+
+        tracker.synced("jimdoe", List.of("jim"));
+
+        assertThat(tracker.isSyncNeeded("johndoe", List.of("john"))).isTrue();
+        assertThat(tracker.isSyncNeeded("janedoe", List.of("jane"))).isTrue();
+        assertThat(tracker.isSyncNeeded("jimdoe", List.of("jim"))).isFalse();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2021-10-12T07:51:28Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
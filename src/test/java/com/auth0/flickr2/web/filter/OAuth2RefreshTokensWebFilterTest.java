@@ -0,0 +1,210 @@
+package com.auth0.flickr2.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+/**
+ * Test class for {@link OAuth2RefreshTokensWebFilter}.
+ */
+class OAuth2RefreshTokensWebFilterTest {
+
+    private static final Instant NOW = Instant.parse("2021-10-12T07:51:28Z");
+
+    private final ClientRegistration registration = ClientRegistration
+        .withRegistrationId("oidc")
+        .clientId("web_app")
+        .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+        .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+        .authorizationUri("https://api.jhipster.org/authorize")
+        .tokenUri("https://api.jhipster.org/token")
+        .build();
+
+    private OAuth2AuthorizedClientManager clientManager;
+
+    private OAuth2AuthorizedClientRepository authorizedClientRepository;
+
+    private OAuth2RefreshTokensWebFilter filter;
+
+    private OAuth2AuthenticationToken authentication;
+
+    @BeforeEach
+    void setUp() {
+        clientManager = mock(OAuth2AuthorizedClientManager.class);
+        authorizedClientRepository = mock(OAuth2AuthorizedClientRepository.class);
+        ClientRegistrationRepository clientRegistrationRepository = mock(ClientRegistrationRepository.class);
+        when(clientRegistrationRepository.findByRegistrationId("oidc")).thenReturn(registration);
+        filter =
+            new OAuth2RefreshTokensWebFilter(
+                clientManager,
+                authorizedClientRepository,
+                clientRegistrationRepository,
+                Clock.fixed(NOW, ZoneOffset.UTC)
+            );
+        authentication =
+            new OAuth2AuthenticationToken(
+                new DefaultOAuth2User(AuthorityUtils.createAuthorityList("ROLE_USER"), Map.of("sub", "123"), "sub"),
+                AuthorityUtils.createAuthorityList("ROLE_USER"),
+                "oidc"
+            );
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private OAuth2AuthorizedClient authorizedClient(Duration expiresIn) {
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(
+            OAuth2AccessToken.TokenType.BEARER,
+            "token-" + expiresIn,
+            NOW.minus(Duration.ofHours(1)),
+            NOW.plus(expiresIn)
+        );
+        return new OAuth2AuthorizedClient(registration, "123", accessToken);
+    }
+
+    private void givenAuthorizedClient(OAuth2AuthorizedClient authorizedClient) {
+        when(authorizedClientRepository.loadAuthorizedClient(eq("oidc"), eq(authentication), any())).thenReturn(authorizedClient);
+    }
+
+    private static MockHttpServletRequest requestTo(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private MockFilterChain filter(MockHttpServletRequest request) throws Exception {
+        MockFilterChain filterChain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+        return filterChain;
+    }
+
+    @Test
+    void testSkipsNonApiRequests() throws Exception {
+        givenAuthorizedClient(authorizedClient(Duration.ofSeconds(10)));
+
+        MockFilterChain filterChain = filter(requestTo("/content/main.js"));
+
+        assertThat(filterChain.getRequest()).isNotNull();
+        verifyNoInteractions(clientManager, authorizedClientRepository);
+    }
+
+    @Test
+    void testSkipsTokenWithAmpleLifetime() throws Exception {
+        givenAuthorizedClient(authorizedClient(Duration.ofMinutes(30)));
+
+        MockFilterChain filterChain = filter(requestTo("/api/photos"));
+
+        assertThat(filterChain.getRequest()).isNotNull();
+        verifyNoInteractions(clientManager);
+        verify(authorizedClientRepository, never()).saveAuthorizedClient(any(), any(), any(), any());
+    }
+
+    @Test
+    void testRefreshesExpiringToken() throws Exception {
+        givenAuthorizedClient(authorizedClient(Duration.ofSeconds(30)));
+        OAuth2AuthorizedClient refreshed = authorizedClient(Duration.ofHours(1));
+        when(clientManager.authorize(any(OAuth2AuthorizeRequest.class))).thenReturn(refreshed);
+
+        MockFilterChain filterChain = filter(requestTo("/api/photos"));
+
+        assertThat(filterChain.getRequest()).isNotNull();
+        verify(authorizedClientRepository).saveAuthorizedClient(eq(refreshed), eq(authentication), any(), any());
+    }
+
+    @Test
+    void testContinuesWhenRefreshFails() throws Exception {
+        givenAuthorizedClient(authorizedClient(Duration.ofSeconds(30)));
+        when(clientManager.authorize(any(OAuth2AuthorizeRequest.class))).thenThrow(new IllegalStateException("invalid_grant"));
+
+        MockFilterChain filterChain = filter(requestTo("/api/photos"));
+
+        assertThat(filterChain.getRequest()).isNotNull();
+        verify(authorizedClientRepository, never()).saveAuthorizedClient(any(), any(), any(), any());
+    }
+
+    @Test
+    void testConcurrentRequestsShareRefresh() throws Exception {
+        givenAuthorizedClient(authorizedClient(Duration.ofSeconds(30)));
+        OAuth2AuthorizedClient refreshed = authorizedClient(Duration.ofHours(1));
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(clientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+            .thenAnswer(
+                invocation -> {
+                    refreshing.countDown();
+                    release.await();
+                    return refreshed;
+                }
+            );
+        MockHttpSession session = new MockHttpSession();
+        AtomicReference<FilterChain> followerChain = new AtomicReference<>();
+        Thread leader = requestThread(session, new AtomicReference<>());
+        Thread follower = requestThread(session, followerChain);
+
+        leader.start();
+        refreshing.await();
+        follower.start();
+        while (follower.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertThat(followerChain.get()).isNotNull();
+        verify(clientManager, times(1)).authorize(any(OAuth2AuthorizeRequest.class));
+        verify(authorizedClientRepository, times(1)).saveAuthorizedClient(eq(refreshed), eq(authentication), any(), any());
+    }
+
+    private Thread requestThread(MockHttpSession session, AtomicReference<FilterChain> filterChain) {
+        return new Thread(
+            () -> {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                MockHttpServletRequest request = requestTo("/api/photos");
+                request.setSession(session);
+                try {
+                    filterChain.set(filter(request));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        );
+    }
+}
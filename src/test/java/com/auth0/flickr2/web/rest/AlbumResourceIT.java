@@ -162,6 +162,26 @@ class AlbumResourceIT {
             .andExpect(jsonPath("$.[*].created").value(hasItem(DEFAULT_CREATED.toString())));
     }
 
+    @Test
+    @Transactional
+    void getAlbumsAfterCursor() throws Exception {
+        // Initialize the database
+        Album first = albumRepository.saveAndFlush(createEntity(em));
+        Album second = albumRepository.saveAndFlush(createEntity(em));
+        Album third = albumRepository.saveAndFlush(createEntity(em));
+
+        // Get all the albums, newest first, two at a time
+        List<Long> ids = TestUtil.getAllKeysetPageIds(restAlbumMockMvc, ENTITY_API_URL + "?after=&size=2");
+
+        assertThat(ids).doesNotHaveDuplicates().containsSubsequence(third.getId(), second.getId(), first.getId());
+    }
+
+    @Test
+    @Transactional
+    void getAlbumsAfterInvalidCursor() throws Exception {
+        restAlbumMockMvc.perform(get(ENTITY_API_URL + "?after=invalid")).andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     void getAlbum() throws Exception {
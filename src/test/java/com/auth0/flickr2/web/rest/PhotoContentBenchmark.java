@@ -0,0 +1,171 @@
+package com.auth0.flickr2.web.rest;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import com.auth0.flickr2.Flickr2App;
+import com.auth0.flickr2.config.TestSecurityConfiguration;
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.security.AuthoritiesConstants;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+/**
+ * Benchmark, in responses per second, of {@code GET /api/photos/:id/content} for an image of the local blob store:
+ * <ul>
+ *     <li>{@code content}: the whole image, handed over to the container with {@code sendfile} when it is Undertow;</li>
+ *     <li>{@code range}: the first half of the image, which the container can't stop sending before the end of the file,
+ *     transferred to the response stream instead.</li>
+ * </ul>
+ * The requests are sent over HTTP, on the loopback interface, to the application started with the embedded container of
+ * the active Maven profile (Undertow for {@code dev} and {@code prod}), its H2 database and a temporary blob store; a
+ * bearer token is accepted by the mock {@link JwtDecoder} of the tests. The response bodies are read and discarded.
+ * <p>
+ * Run it, with the allocation rates reported by the GC profiler, from the IDE or with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.auth0.flickr2.web.rest.PhotoContentBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhotoContentBenchmark {
+
+    /**
+     * Width of the noise image, whose JPEG is about 1 MB for 1000 pixels and 8 MB for 3000.
+     */
+    @Param({ "1000", "3000" })
+    private int imageWidth;
+
+    private Path directory;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient client;
+
+    private URI contentUri;
+
+    private long imageSize;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("photo-content-benchmark-");
+        context =
+            new SpringApplicationBuilder(Flickr2App.class, TestSecurityConfiguration.class)
+                .properties(
+                    "server.port=0",
+                    "application.blob-store.directory=" + directory.resolve("blob-store"),
+                    "application.photo-uploads.directory=" + directory.resolve("photo-uploads"),
+                    "logging.level.com.auth0.flickr2=WARN"
+                )
+                .run();
+        Jwt jwt = Jwt
+            .withTokenValue("benchmark")
+            .header("alg", "none")
+            .subject("benchmark")
+            .claim("preferred_username", "benchmark")
+            .claim("groups", List.of(AuthoritiesConstants.USER))
+            .issuedAt(Instant.now())
+            .expiresAt(Instant.now().plus(1, ChronoUnit.DAYS))
+            .build();
+        when(context.getBean(JwtDecoder.class).decode(anyString())).thenReturn(jwt);
+
+        byte[] image = noiseImage(imageWidth, imageWidth * 3 / 4);
+        imageSize = image.length;
+        Photo photo = context
+            .getBean(PhotoResource.class)
+            .createPhoto(new Photo().title("benchmark").image(image).imageContentType("image/jpeg"))
+            .getBody();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        contentUri = URI.create("http://localhost:" + port + "/api/photos/" + photo.getId() + "/content");
+        client = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int content() throws Exception {
+        return send(request().build(), 200);
+    }
+
+    @Benchmark
+    public int range() throws Exception {
+        return send(request().header(HttpHeaders.RANGE, "bytes=0-" + (imageSize / 2 - 1)).build(), 206);
+    }
+
+    private HttpRequest.Builder request() {
+        return HttpRequest.newBuilder(contentUri).header(HttpHeaders.AUTHORIZATION, "Bearer benchmark");
+    }
+
+    private int send(HttpRequest request, int expectedStatus) throws Exception {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + " of " + request);
+        }
+        return response.statusCode();
+    }
+
+    private static byte[] noiseImage(int width, int height) throws IOException {
+        Random random = new Random(42);
+        BufferedImage noise = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                noise.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(noise, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PhotoContentBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,323 @@
+package com.auth0.flickr2.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.auth0.flickr2.IntegrationTest;
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.repository.PhotoContentRepository;
+import com.auth0.flickr2.repository.PhotoRepository;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link PhotoContentResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class PhotoContentResourceIT {
+
+    private static final byte[] IMAGE = TestUtil.createByteArray(1024, "1");
+    private static final String IMAGE_CONTENT_TYPE = "image/png";
+
+    private static final Instant UPLOADED = Instant.parse("2021-10-12T07:51:28Z");
+
+    private static final String ENTITY_API_URL_CONTENT = "/api/photos/{id}/content";
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private PhotoContentRepository photoContentRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restPhotoContentMockMvc;
+
+    private Photo photo;
+
+    @BeforeEach
+    public void initTest() throws IOException {
+        photo = withImage(PhotoResourceIT.createEntity(em), IMAGE).imageContentType(IMAGE_CONTENT_TYPE).uploaded(UPLOADED);
+    }
+
+    private Photo withImage(Photo photo, byte[] image) throws IOException {
+        BlobStore.Blob blob = blobStore.put(new ByteArrayInputStream(image));
+        return photo.image(image).imageSha256(blob.getDigest()).imageSize(blob.getSize());
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContent() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        // Get the photo content
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(IMAGE_CONTENT_TYPE))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, IMAGE.length))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + photo.getImageSha256() + "\""))
+            .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, UPLOADED.toEpochMilli()))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PhotoContentResource.REVALIDATE_CACHE_CONTROL))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"photo-" + photo.getId() + ".png\""))
+            .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContentOfScriptableType() throws Exception {
+        // Initialize the database with a photo stored before its content type was restricted
+        photoRepository.saveAndFlush(photo);
+        jdbcTemplate.update("update photo set image_content_type = ? where id = ?", "text/html", photo.getId());
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+            .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"photo-" + photo.getId() + "\""));
+    }
+
+    @Test
+    @Transactional
+    void getContentAddressedPhotoContent() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT + "?v=" + photo.getImageSha256(), photo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PhotoContentResource.IMMUTABLE_CACHE_CONTROL))
+            .andExpect(content().bytes(IMAGE));
+
+        // An outdated digest must not be cached for good
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT + "?v=" + "0".repeat(64), photo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PhotoContentResource.REVALIDATE_CACHE_CONTROL));
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContentIfNoneMatch() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"" + photo.getImageSha256() + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContentIfModifiedSince() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()).header(HttpHeaders.IF_MODIFIED_SINCE, UPLOADED.toEpochMilli()))
+            .andExpect(status().isNotModified());
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()).header(HttpHeaders.IF_MODIFIED_SINCE, UPLOADED.minusSeconds(60).toEpochMilli()))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContentRange() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()).header(HttpHeaders.RANGE, "bytes=100-199"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-199/" + IMAGE.length))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+            .andExpect(content().bytes(Arrays.copyOfRange(IMAGE, 100, 200)));
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()).header(HttpHeaders.RANGE, "bytes=-24"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1000-1023/" + IMAGE.length))
+            .andExpect(content().bytes(Arrays.copyOfRange(IMAGE, 1000, 1024)));
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContentRangeIfRange() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        restPhotoContentMockMvc
+            .perform(
+                get(ENTITY_API_URL_CONTENT, photo.getId())
+                    .header(HttpHeaders.RANGE, "bytes=100-199")
+                    .header(HttpHeaders.IF_RANGE, "\"" + photo.getImageSha256() + "\"")
+            )
+            .andExpect(status().isPartialContent());
+
+        // The image changed since the first part was downloaded: the whole image is sent
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()).header(HttpHeaders.RANGE, "bytes=100-199").header(HttpHeaders.IF_RANGE, "\"outdated\""))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContentUnsatisfiableRange() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()).header(HttpHeaders.RANGE, "bytes=5000-"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + IMAGE.length));
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContentStoredInDatabase() throws Exception {
+        // Initialize the database with a photo uploaded before the blob store existed
+        photoRepository.saveAndFlush(photo.imageSha256(null).imageSize(null));
+        jdbcTemplate.update("update photo set image = ? where id = ?", IMAGE, photo.getId());
+
+        restPhotoContentMockMvc
+            .perform(get(ENTITY_API_URL_CONTENT, photo.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(IMAGE_CONTENT_TYPE))
+            .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    @Transactional
+    void getNonExistingPhotoContent() throws Exception {
+        restPhotoContentMockMvc.perform(get(ENTITY_API_URL_CONTENT, Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    void getPhotoContentWithUnsupportedSize() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        restPhotoContentMockMvc.perform(get(ENTITY_API_URL_CONTENT + "?size=123", photo.getId())).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getPhotoDerivativeContent() throws Exception {
+        // Not transactional: the derivative is generated, and committed, by another thread
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "png", png);
+        photoRepository.saveAndFlush(withImage(photo, png.toByteArray()));
+
+        try {
+            byte[] derivative = restPhotoContentMockMvc
+                .perform(get(ENTITY_API_URL_CONTENT + "?size=200", photo.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+            BufferedImage image = readImage(derivative);
+            assertThat(image.getWidth()).isEqualTo(200);
+            assertThat(image.getHeight()).isEqualTo(150);
+
+            String digest = jdbcTemplate.queryForObject(
+                "select image_sha256 from photo_derivative where photo_id = ? and long_edge = 200",
+                String.class,
+                photo.getId()
+            );
+            assertThat(blobStore.exists(digest)).isTrue();
+        } finally {
+            photoRepository.deleteById(photo.getId());
+        }
+    }
+
+    @Test
+    void getPhotoDerivativeContentOfReplacedImage() throws Exception {
+        // Not transactional: the derivative is generated, and committed, by another thread
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "png", png);
+        photoRepository.saveAndFlush(withImage(photo, png.toByteArray()));
+
+        try {
+            // a derivative generated from the previous image of the photo
+            ByteArrayOutputStream previous = new ByteArrayOutputStream();
+            ImageIO.write(new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB), "png", previous);
+            BlobStore.Blob blob = blobStore.put(new ByteArrayInputStream(previous.toByteArray()));
+            jdbcTemplate.update(
+                "insert into photo_derivative " +
+                "(photo_id, long_edge, content_type, width, height, image_sha256, image_size, source_sha256) " +
+                "values (?, 200, 'image/png', 200, 200, ?, ?, 'previous')",
+                photo.getId(),
+                blob.getDigest(),
+                blob.getSize()
+            );
+            boolean saved = photoContentRepository.saveDerivative(photo.getId(), "previous", 800, "image/png", 800, 800, blob);
+            assertThat(saved).isFalse();
+
+            byte[] derivative = restPhotoContentMockMvc
+                .perform(get(ENTITY_API_URL_CONTENT + "?size=200", photo.getId()))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+            BufferedImage image = readImage(derivative);
+            assertThat(image.getWidth()).isEqualTo(200);
+            assertThat(image.getHeight()).isEqualTo(150);
+            assertThat(
+                jdbcTemplate.queryForList("select source_sha256 from photo_derivative where photo_id = ?", String.class, photo.getId())
+            )
+                .isNotEmpty()
+                .containsOnly(photo.getImageSha256());
+        } finally {
+            photoRepository.deleteById(photo.getId());
+        }
+    }
+
+    private static BufferedImage readImage(byte[] data) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(data));
+    }
+}
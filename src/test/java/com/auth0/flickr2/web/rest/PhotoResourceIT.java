@@ -1,6 +1,7 @@
 package com.auth0.flickr2.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -8,14 +9,28 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.auth0.flickr2.IntegrationTest;
+import com.auth0.flickr2.domain.Album;
 import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.domain.Tag;
 import com.auth0.flickr2.repository.PhotoRepository;
+import com.auth0.flickr2.service.PhotoSearchService;
+import com.auth0.flickr2.service.PhotoTagIndex;
+import com.auth0.flickr2.service.dto.PhotoBulkUploadResultDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,11 +41,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.Base64Utils;
 
 /**
  * Integration tests for the {@link PhotoResource} REST controller.
@@ -51,6 +67,8 @@ class PhotoResourceIT {
     private static final byte[] UPDATED_IMAGE = TestUtil.createByteArray(1, "1");
     private static final String DEFAULT_IMAGE_CONTENT_TYPE = "image/jpg";
     private static final String UPDATED_IMAGE_CONTENT_TYPE = "image/png";
+    private static final String DEFAULT_IMAGE_SHA_256 = sha256(DEFAULT_IMAGE);
+    private static final String UPDATED_IMAGE_SHA_256 = sha256(UPDATED_IMAGE);
 
     private static final Integer DEFAULT_HEIGHT = 1;
     private static final Integer UPDATED_HEIGHT = 2;
@@ -67,6 +85,8 @@ class PhotoResourceIT {
     private static final String ENTITY_API_URL = "/api/photos";
     private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
 
+    private static final ObjectMapper mapper = new ObjectMapper();
+
     private static Random random = new Random();
     private static AtomicLong count = new AtomicLong(random.nextInt() + (2 * Integer.MAX_VALUE));
 
@@ -76,6 +96,12 @@ class PhotoResourceIT {
     @Mock
     private PhotoRepository photoRepositoryMock;
 
+    @Autowired
+    private PhotoTagIndex photoTagIndex;
+
+    @Autowired
+    private PhotoSearchService photoSearchService;
+
     @Autowired
     private EntityManager em;
 
@@ -96,6 +122,8 @@ class PhotoResourceIT {
             .description(DEFAULT_DESCRIPTION)
             .image(DEFAULT_IMAGE)
             .imageContentType(DEFAULT_IMAGE_CONTENT_TYPE)
+            .imageSha256(DEFAULT_IMAGE_SHA_256)
+            .imageSize((long) DEFAULT_IMAGE.length)
             .height(DEFAULT_HEIGHT)
             .width(DEFAULT_WIDTH)
             .taken(DEFAULT_TAKEN)
@@ -115,6 +143,8 @@ class PhotoResourceIT {
             .description(UPDATED_DESCRIPTION)
             .image(UPDATED_IMAGE)
             .imageContentType(UPDATED_IMAGE_CONTENT_TYPE)
+            .imageSha256(UPDATED_IMAGE_SHA_256)
+            .imageSize((long) UPDATED_IMAGE.length)
             .height(UPDATED_HEIGHT)
             .width(UPDATED_WIDTH)
             .taken(UPDATED_TAKEN)
@@ -127,6 +157,29 @@ class PhotoResourceIT {
         photo = createEntity(em);
     }
 
+    private static String sha256(byte[] content) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Convert a photo to JSON, including its write-only image.
+     */
+    private static byte[] convertPhotoToJsonBytes(Photo photo) throws IOException {
+        ObjectNode json = (ObjectNode) mapper.readTree(TestUtil.convertObjectToJsonBytes(photo));
+        if (photo.getImage() != null) {
+            json.put("image", photo.getImage());
+        }
+        return mapper.writeValueAsBytes(json);
+    }
+
     @Test
     @Transactional
     void createPhoto() throws Exception {
@@ -134,7 +187,7 @@ class PhotoResourceIT {
         // Create the Photo
         restPhotoMockMvc
             .perform(
-                post(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(photo))
+                post(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isCreated());
 
@@ -144,7 +197,8 @@ class PhotoResourceIT {
         Photo testPhoto = photoList.get(photoList.size() - 1);
         assertThat(testPhoto.getTitle()).isEqualTo(DEFAULT_TITLE);
         assertThat(testPhoto.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
-        assertThat(testPhoto.getImage()).isEqualTo(DEFAULT_IMAGE);
+        assertThat(testPhoto.getImageSha256()).isEqualTo(DEFAULT_IMAGE_SHA_256);
+        assertThat(testPhoto.getImageSize()).isEqualTo(DEFAULT_IMAGE.length);
         assertThat(testPhoto.getImageContentType()).isEqualTo(DEFAULT_IMAGE_CONTENT_TYPE);
         assertThat(testPhoto.getHeight()).isEqualTo(DEFAULT_HEIGHT);
         assertThat(testPhoto.getWidth()).isEqualTo(DEFAULT_WIDTH);
@@ -152,6 +206,115 @@ class PhotoResourceIT {
         assertThat(testPhoto.getUploaded()).isEqualTo(DEFAULT_UPLOADED);
     }
 
+    @Test
+    @Transactional
+    void uploadPhoto() throws Exception {
+        int databaseSizeBeforeCreate = photoRepository.findAll().size();
+        // Upload the Photo, its image in its own part
+        MockMultipartFile file = new MockMultipartFile("file", "photo.png", UPDATED_IMAGE_CONTENT_TYPE, UPDATED_IMAGE);
+        MockMultipartFile metadata = new MockMultipartFile(
+            "photo",
+            "",
+            MediaType.APPLICATION_JSON_VALUE,
+            TestUtil.convertObjectToJsonBytes(photo.image(null))
+        );
+        restPhotoMockMvc.perform(multipart(ENTITY_API_URL).file(file).file(metadata).with(csrf())).andExpect(status().isCreated());
+
+        // Validate the Photo in the database
+        List<Photo> photoList = photoRepository.findAll();
+        assertThat(photoList).hasSize(databaseSizeBeforeCreate + 1);
+        Photo testPhoto = photoList.get(photoList.size() - 1);
+        assertThat(testPhoto.getTitle()).isEqualTo(DEFAULT_TITLE);
+        assertThat(testPhoto.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
+        assertThat(testPhoto.getImageSha256()).isEqualTo(UPDATED_IMAGE_SHA_256);
+        assertThat(testPhoto.getImageSize()).isEqualTo(UPDATED_IMAGE.length);
+        assertThat(testPhoto.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
+        assertThat(testPhoto.getUploaded()).isNotNull();
+    }
+
+    @Test
+    @Transactional
+    void uploadPhotoWithoutMetadata() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "photo.png", UPDATED_IMAGE_CONTENT_TYPE, UPDATED_IMAGE);
+        restPhotoMockMvc
+            .perform(multipart(ENTITY_API_URL).file(file).with(csrf()))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.title").value("photo.png"))
+            .andExpect(jsonPath("$.imageSha256").value(UPDATED_IMAGE_SHA_256));
+    }
+
+    @Test
+    @Transactional
+    void uploadPhotoOfScriptableType() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "photo.svg", "image/svg+xml", UPDATED_IMAGE);
+        restPhotoMockMvc
+            .perform(multipart(ENTITY_API_URL).file(file).with(csrf()))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.imageContentType").value(MediaType.APPLICATION_OCTET_STREAM_VALUE));
+    }
+
+    @Test
+    @Transactional
+    void uploadPhotoWithoutImage() throws Exception {
+        int databaseSizeBeforeCreate = photoRepository.findAll().size();
+
+        MockMultipartFile file = new MockMultipartFile("file", "photo.png", UPDATED_IMAGE_CONTENT_TYPE, new byte[0]);
+        restPhotoMockMvc.perform(multipart(ENTITY_API_URL).file(file).with(csrf())).andExpect(status().isBadRequest());
+
+        assertThat(photoRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+    }
+
+    @Test
+    void uploadPhotos() throws Exception {
+        MockMultipartFile first = new MockMultipartFile("files", "first.png", UPDATED_IMAGE_CONTENT_TYPE, UPDATED_IMAGE);
+        MockMultipartFile empty = new MockMultipartFile("files", "empty.png", UPDATED_IMAGE_CONTENT_TYPE, new byte[0]);
+        MockMultipartFile second = new MockMultipartFile("files", "second.jpg", DEFAULT_IMAGE_CONTENT_TYPE, DEFAULT_IMAGE);
+
+        // Upload the photos, the photos are committed by the endpoint itself
+        String content = restPhotoMockMvc
+            .perform(multipart(ENTITY_API_URL + "/_bulk").file(first).file(empty).file(second).with(csrf()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        List<PhotoBulkUploadResultDTO> results = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            results.add(mapper.readValue(line, PhotoBulkUploadResultDTO.class));
+        }
+        results.sort(Comparator.comparingInt(PhotoBulkUploadResultDTO::getIndex));
+        List<Long> ids = results.stream().map(PhotoBulkUploadResultDTO::getId).filter(Objects::nonNull).collect(Collectors.toList());
+        try {
+            // Validate the results and the Photos in the database
+            assertThat(results).extracting(PhotoBulkUploadResultDTO::getStatus).containsExactly(201, 400, 201);
+            assertThat(results).extracting(PhotoBulkUploadResultDTO::getFileName).containsExactly("first.png", "empty.png", "second.jpg");
+            assertThat(ids).hasSize(2);
+            Photo testPhoto = photoRepository.findById(ids.get(0)).orElseThrow();
+            assertThat(testPhoto.getTitle()).isEqualTo("first.png");
+            assertThat(testPhoto.getImageSha256()).isEqualTo(UPDATED_IMAGE_SHA_256);
+            assertThat(testPhoto.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
+            assertThat(testPhoto.getUploaded()).isNotNull();
+            assertThat(photoRepository.findById(ids.get(1)).map(Photo::getImageSha256)).contains(DEFAULT_IMAGE_SHA_256);
+        } finally {
+            photoRepository.deleteAllById(ids);
+        }
+    }
+
+    @Test
+    @Transactional
+    void uploadPhotosWithoutImages() throws Exception {
+        restPhotoMockMvc.perform(multipart(ENTITY_API_URL + "/_bulk").with(csrf())).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void uploadPhotosToNonExistingAlbum() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "photo.png", UPDATED_IMAGE_CONTENT_TYPE, UPDATED_IMAGE);
+        restPhotoMockMvc
+            .perform(multipart(ENTITY_API_URL + "/_bulk").file(file).param("albumId", String.valueOf(Long.MAX_VALUE)).with(csrf()))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     void createPhotoWithExistingId() throws Exception {
@@ -163,7 +326,7 @@ class PhotoResourceIT {
         // An entity with an existing ID cannot be created, so this API call must fail
         restPhotoMockMvc
             .perform(
-                post(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(photo))
+                post(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isBadRequest());
 
@@ -183,7 +346,7 @@ class PhotoResourceIT {
 
         restPhotoMockMvc
             .perform(
-                post(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(photo))
+                post(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isBadRequest());
 
@@ -206,13 +369,223 @@ class PhotoResourceIT {
             .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)))
             .andExpect(jsonPath("$.[*].description").value(hasItem(DEFAULT_DESCRIPTION.toString())))
             .andExpect(jsonPath("$.[*].imageContentType").value(hasItem(DEFAULT_IMAGE_CONTENT_TYPE)))
-            .andExpect(jsonPath("$.[*].image").value(hasItem(Base64Utils.encodeToString(DEFAULT_IMAGE))))
+            .andExpect(jsonPath("$.[*].image").doesNotExist())
             .andExpect(jsonPath("$.[*].height").value(hasItem(DEFAULT_HEIGHT)))
             .andExpect(jsonPath("$.[*].width").value(hasItem(DEFAULT_WIDTH)))
             .andExpect(jsonPath("$.[*].taken").value(hasItem(DEFAULT_TAKEN.toString())))
             .andExpect(jsonPath("$.[*].uploaded").value(hasItem(DEFAULT_UPLOADED.toString())));
     }
 
+    @Test
+    @Transactional
+    void getAllPhotoSummaries() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        // Get all the photo summaries
+        restPhotoMockMvc
+            .perform(get(ENTITY_API_URL + "?fields=summary&sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(photo.getId().intValue())))
+            .andExpect(jsonPath("$.[*].title").value(hasItem(DEFAULT_TITLE)))
+            .andExpect(jsonPath("$.[*].imageContentType").value(hasItem(DEFAULT_IMAGE_CONTENT_TYPE)))
+            .andExpect(jsonPath("$.[*].imageSha256").value(hasItem(DEFAULT_IMAGE_SHA_256)))
+            .andExpect(jsonPath("$.[*].imageUrl").value(hasItem("api/photos/" + photo.getId() + "/content?v=" + DEFAULT_IMAGE_SHA_256)))
+            .andExpect(jsonPath("$.[*].height").value(hasItem(DEFAULT_HEIGHT)))
+            .andExpect(jsonPath("$.[*].width").value(hasItem(DEFAULT_WIDTH)))
+            .andExpect(jsonPath("$.[*].taken").value(hasItem(DEFAULT_TAKEN.toString())))
+            .andExpect(jsonPath("$.[*].uploaded").value(hasItem(DEFAULT_UPLOADED.toString())))
+            .andExpect(jsonPath("$.[*].description").doesNotExist())
+            .andExpect(jsonPath("$.[*].image").doesNotExist());
+    }
+
+
+    @Test
+    @Transactional
+    void getPhotosAfterCursor() throws Exception {
+        // Initialize the database
+        Photo older = photoRepository.saveAndFlush(createEntity(em));
+        Photo olderSameUploaded = photoRepository.saveAndFlush(createEntity(em));
+        Photo newer = photoRepository.saveAndFlush(createEntity(em).uploaded(UPDATED_UPLOADED));
+        Photo notUploaded = photoRepository.saveAndFlush(createEntity(em).uploaded(null));
+
+        // Get all the photos, newest first, two at a time
+        List<Long> ids = TestUtil.getAllKeysetPageIds(restPhotoMockMvc, ENTITY_API_URL + "?after=&size=2");
+        List<Long> summaryIds = TestUtil.getAllKeysetPageIds(restPhotoMockMvc, ENTITY_API_URL + "?fields=summary&after=&size=2");
+
+        assertThat(ids)
+            .doesNotHaveDuplicates()
+            .containsSubsequence(newer.getId(), olderSameUploaded.getId(), older.getId(), notUploaded.getId())
+            .isEqualTo(summaryIds);
+    }
+
+    @Test
+    @Transactional
+    void getPhotosAfterInvalidCursor() throws Exception {
+        restPhotoMockMvc.perform(get(ENTITY_API_URL + "?after=invalid")).andExpect(status().isBadRequest());
+        restPhotoMockMvc.perform(get(ENTITY_API_URL + "?fields=summary&after=invalid")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getAlbumPhotosAfterCursor() throws Exception {
+        // Initialize the database
+        Album album = AlbumResourceIT.createEntity(em);
+        em.persist(album);
+        Photo older = photoRepository.saveAndFlush(createEntity(em).album(album));
+        Photo newer = photoRepository.saveAndFlush(createEntity(em).uploaded(UPDATED_UPLOADED).album(album));
+        Photo notUploaded = photoRepository.saveAndFlush(createEntity(em).uploaded(null).album(album));
+        Photo laterNotUploaded = photoRepository.saveAndFlush(createEntity(em).uploaded(null).album(album));
+        Photo otherAlbum = photoRepository.saveAndFlush(createEntity(em));
+
+        // Get the photos of the album, newest first, two then one at a time across the photos without upload date
+        List<Long> ids = TestUtil.getAllKeysetPageIds(restPhotoMockMvc, "/api/albums/" + album.getId() + "/photos?size=2");
+        List<Long> singleIds = TestUtil.getAllKeysetPageIds(restPhotoMockMvc, "/api/albums/" + album.getId() + "/photos?size=1");
+
+        assertThat(ids)
+            .containsExactly(newer.getId(), older.getId(), laterNotUploaded.getId(), notUploaded.getId())
+            .doesNotContain(otherAlbum.getId())
+            .isEqualTo(singleIds);
+    }
+
+    @Test
+    @Transactional
+    void getPhotosOfNonExistingAlbum() throws Exception {
+        restPhotoMockMvc.perform(get("/api/albums/{id}/photos", Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    void getAlbumPhotoCounts() throws Exception {
+        // Initialize the database
+        Album album = AlbumResourceIT.createEntity(em);
+        em.persist(album);
+        Album emptyAlbum = AlbumResourceIT.createEntity(em);
+        em.persist(emptyAlbum);
+        photoRepository.saveAndFlush(createEntity(em).album(album));
+        photoRepository.saveAndFlush(createEntity(em).album(album));
+
+        // Get the number of photos of the albums
+        restPhotoMockMvc
+            .perform(get("/api/albums/photo-counts?ids=" + album.getId() + "," + emptyAlbum.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[?(@.albumId == " + album.getId() + ")].photoCount").value(2))
+            .andExpect(jsonPath("$[?(@.albumId == " + emptyAlbum.getId() + ")].photoCount").value(0));
+    }
+
+    @Test
+    @Transactional
+    void getPhotosByTags() throws Exception {
+        // Initialize the database
+        Tag cat = TagResourceIT.createEntity(em).name("Cat-" + count.incrementAndGet());
+        em.persist(cat);
+        Tag dog = TagResourceIT.createEntity(em).name("Dog-" + count.incrementAndGet());
+        em.persist(dog);
+        Photo catOnly = photoRepository.saveAndFlush(createEntity(em).addTag(cat));
+        Photo catAndDog = photoRepository.saveAndFlush(createEntity(em).addTag(cat).addTag(dog));
+        Photo dogOnly = photoRepository.saveAndFlush(createEntity(em).addTag(dog));
+        photoTagIndex.rebuild();
+
+        // Get the photos having all the tags, then any of them
+        String tags = cat.getName().toLowerCase() + "," + dog.getName();
+        restPhotoMockMvc
+            .perform(get(ENTITY_API_URL + "?tags=" + tags))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[*].id").value(contains(catAndDog.getId().intValue())));
+        restPhotoMockMvc
+            .perform(get(ENTITY_API_URL + "?tags=" + tags + "&mode=any&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(jsonPath("$.[*].id").value(contains(dogOnly.getId().intValue(), catAndDog.getId().intValue())));
+        restPhotoMockMvc
+            .perform(get(ENTITY_API_URL + "?tags=" + tags + "&mode=any&size=2&page=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(catOnly.getId().intValue())));
+        restPhotoMockMvc
+            .perform(get(ENTITY_API_URL + "?tags=" + tags + ",unknown"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+    }
+
+    @Test
+    @Transactional
+    void getPhotosByTagsWithInvalidMode() throws Exception {
+        restPhotoMockMvc.perform(get(ENTITY_API_URL + "?tags=cat&mode=none")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void searchPhotos() throws Exception {
+        // Initialize the database
+        String word = "zebra" + UUID.randomUUID().toString().replace("-", "");
+        Album album = AlbumResourceIT.createEntity(em).description("Safari " + word);
+        em.persist(album);
+        Photo titled = photoRepository.saveAndFlush(createEntity(em).title("A " + word + " crossing"));
+        Photo inAlbum = photoRepository.saveAndFlush(createEntity(em).album(album));
+        photoRepository.saveAndFlush(createEntity(em));
+        photoSearchService.reindexAll();
+
+        // Search the photos, the title matches first
+        restPhotoMockMvc
+            .perform(get("/api/_search/photos?q=" + word))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "2"))
+            .andExpect(header().string(PhotoResource.TOTAL_COUNT_RELATION_HEADER, "eq"))
+            .andExpect(jsonPath("$.[*].photo.id").value(contains(titled.getId().intValue(), inAlbum.getId().intValue())))
+            .andExpect(jsonPath("$.[0].highlights.title").value("A <em>" + word + "</em> crossing"))
+            .andExpect(jsonPath("$.[1].highlights.albumDescription").value("Safari <em>" + word + "</em>"))
+            .andExpect(jsonPath("$.[0].photo.description").doesNotExist());
+
+        // Deleted photos are not found anymore
+        photoRepository.delete(titled);
+        photoRepository.flush();
+        photoSearchService.reindexAll();
+        restPhotoMockMvc.perform(get("/api/_search/photos?q=" + word)).andExpect(header().string("X-Total-Count", "1"));
+    }
+
+    @Test
+    @Transactional
+    void searchPhotosBeyondResultWindow() throws Exception {
+        int size = 20;
+        int page = PhotoSearchService.MAX_RESULT_WINDOW / size;
+
+        restPhotoMockMvc.perform(get("/api/_search/photos?q=zebra&size=" + size + "&page=" + page)).andExpect(status().isBadRequest());
+        restPhotoMockMvc.perform(get("/api/_search/photos?q=zebra&size=" + size + "&page=" + (page - 1))).andExpect(status().isOk());
+    }
+
+    @Test
+    @Transactional
+    void getAllPhotosWithUnsupportedFields() throws Exception {
+        restPhotoMockMvc.perform(get(ENTITY_API_URL + "?fields=image")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getAllPhotosWithTags() throws Exception {
+        // Initialize the database
+        Tag tag = TagResourceIT.createEntity(em);
+        em.persist(tag);
+        for (int i = 0; i < 3; i++) {
+            photoRepository.saveAndFlush(createEntity(em).addTag(tag));
+        }
+        em.clear();
+        List<Photo> newest = photoRepository.findAll(PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id"))).getContent();
+
+        // Get the first page of photos with their tags
+        restPhotoMockMvc
+            .perform(get(ENTITY_API_URL + "?eagerload=true&sort=id,desc&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", String.valueOf(photoRepository.count())))
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$.[0].id").value(newest.get(0).getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(newest.get(1).getId().intValue()))
+            .andExpect(jsonPath("$.[0].tags.[0].id").value(tag.getId().intValue()))
+            .andExpect(jsonPath("$.[1].tags.[0].id").value(tag.getId().intValue()));
+    }
+
     @SuppressWarnings({ "unchecked" })
     void getAllPhotosWithEagerRelationshipsIsEnabled() throws Exception {
         when(photoRepositoryMock.findAllWithEagerRelationships(any())).thenReturn(new PageImpl(new ArrayList<>()));
@@ -246,7 +619,7 @@ class PhotoResourceIT {
             .andExpect(jsonPath("$.title").value(DEFAULT_TITLE))
             .andExpect(jsonPath("$.description").value(DEFAULT_DESCRIPTION.toString()))
             .andExpect(jsonPath("$.imageContentType").value(DEFAULT_IMAGE_CONTENT_TYPE))
-            .andExpect(jsonPath("$.image").value(Base64Utils.encodeToString(DEFAULT_IMAGE)))
+            .andExpect(jsonPath("$.image").doesNotExist())
             .andExpect(jsonPath("$.height").value(DEFAULT_HEIGHT))
             .andExpect(jsonPath("$.width").value(DEFAULT_WIDTH))
             .andExpect(jsonPath("$.taken").value(DEFAULT_TAKEN.toString()))
@@ -287,7 +660,7 @@ class PhotoResourceIT {
                 put(ENTITY_API_URL_ID, updatedPhoto.getId())
                     .with(csrf())
                     .contentType(MediaType.APPLICATION_JSON)
-                    .content(TestUtil.convertObjectToJsonBytes(updatedPhoto))
+                    .content(convertPhotoToJsonBytes(updatedPhoto))
             )
             .andExpect(status().isOk());
 
@@ -297,7 +670,8 @@ class PhotoResourceIT {
         Photo testPhoto = photoList.get(photoList.size() - 1);
         assertThat(testPhoto.getTitle()).isEqualTo(UPDATED_TITLE);
         assertThat(testPhoto.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
-        assertThat(testPhoto.getImage()).isEqualTo(UPDATED_IMAGE);
+        assertThat(testPhoto.getImageSha256()).isEqualTo(UPDATED_IMAGE_SHA_256);
+        assertThat(testPhoto.getImageSize()).isEqualTo(UPDATED_IMAGE.length);
         assertThat(testPhoto.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
         assertThat(testPhoto.getHeight()).isEqualTo(UPDATED_HEIGHT);
         assertThat(testPhoto.getWidth()).isEqualTo(UPDATED_WIDTH);
@@ -305,6 +679,34 @@ class PhotoResourceIT {
         assertThat(testPhoto.getUploaded()).isEqualTo(UPDATED_UPLOADED);
     }
 
+    @Test
+    @Transactional
+    void putPhotoWithoutImageKeepsStoredImage() throws Exception {
+        // Initialize the database
+        photoRepository.saveAndFlush(photo);
+
+        // Update the photo, without sending its image
+        Photo updatedPhoto = photoRepository.findById(photo.getId()).get();
+        em.detach(updatedPhoto);
+        updatedPhoto.title(UPDATED_TITLE).image(null);
+
+        restPhotoMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedPhoto.getId())
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(convertPhotoToJsonBytes(updatedPhoto))
+            )
+            .andExpect(status().isOk());
+
+        // Validate the Photo in the database
+        Photo testPhoto = photoRepository.findById(photo.getId()).get();
+        assertThat(testPhoto.getTitle()).isEqualTo(UPDATED_TITLE);
+        assertThat(testPhoto.getImageSha256()).isEqualTo(DEFAULT_IMAGE_SHA_256);
+        assertThat(testPhoto.getImageSize()).isEqualTo(DEFAULT_IMAGE.length);
+        assertThat(testPhoto.getImageContentType()).isEqualTo(DEFAULT_IMAGE_CONTENT_TYPE);
+    }
+
     @Test
     @Transactional
     void putNonExistingPhoto() throws Exception {
@@ -317,7 +719,7 @@ class PhotoResourceIT {
                 put(ENTITY_API_URL_ID, photo.getId())
                     .with(csrf())
                     .contentType(MediaType.APPLICATION_JSON)
-                    .content(TestUtil.convertObjectToJsonBytes(photo))
+                    .content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isBadRequest());
 
@@ -338,7 +740,7 @@ class PhotoResourceIT {
                 put(ENTITY_API_URL_ID, count.incrementAndGet())
                     .with(csrf())
                     .contentType(MediaType.APPLICATION_JSON)
-                    .content(TestUtil.convertObjectToJsonBytes(photo))
+                    .content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isBadRequest());
 
@@ -356,7 +758,7 @@ class PhotoResourceIT {
         // If url ID doesn't match entity ID, it will throw BadRequestAlertException
         restPhotoMockMvc
             .perform(
-                put(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(photo))
+                put(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isMethodNotAllowed());
 
@@ -389,7 +791,7 @@ class PhotoResourceIT {
                 patch(ENTITY_API_URL_ID, partialUpdatedPhoto.getId())
                     .with(csrf())
                     .contentType("application/merge-patch+json")
-                    .content(TestUtil.convertObjectToJsonBytes(partialUpdatedPhoto))
+                    .content(convertPhotoToJsonBytes(partialUpdatedPhoto))
             )
             .andExpect(status().isOk());
 
@@ -399,7 +801,8 @@ class PhotoResourceIT {
         Photo testPhoto = photoList.get(photoList.size() - 1);
         assertThat(testPhoto.getTitle()).isEqualTo(UPDATED_TITLE);
         assertThat(testPhoto.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
-        assertThat(testPhoto.getImage()).isEqualTo(UPDATED_IMAGE);
+        assertThat(testPhoto.getImageSha256()).isEqualTo(UPDATED_IMAGE_SHA_256);
+        assertThat(testPhoto.getImageSize()).isEqualTo(UPDATED_IMAGE.length);
         assertThat(testPhoto.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
         assertThat(testPhoto.getHeight()).isEqualTo(UPDATED_HEIGHT);
         assertThat(testPhoto.getWidth()).isEqualTo(DEFAULT_WIDTH);
@@ -434,7 +837,7 @@ class PhotoResourceIT {
                 patch(ENTITY_API_URL_ID, partialUpdatedPhoto.getId())
                     .with(csrf())
                     .contentType("application/merge-patch+json")
-                    .content(TestUtil.convertObjectToJsonBytes(partialUpdatedPhoto))
+                    .content(convertPhotoToJsonBytes(partialUpdatedPhoto))
             )
             .andExpect(status().isOk());
 
@@ -444,7 +847,8 @@ class PhotoResourceIT {
         Photo testPhoto = photoList.get(photoList.size() - 1);
         assertThat(testPhoto.getTitle()).isEqualTo(UPDATED_TITLE);
         assertThat(testPhoto.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
-        assertThat(testPhoto.getImage()).isEqualTo(UPDATED_IMAGE);
+        assertThat(testPhoto.getImageSha256()).isEqualTo(UPDATED_IMAGE_SHA_256);
+        assertThat(testPhoto.getImageSize()).isEqualTo(UPDATED_IMAGE.length);
         assertThat(testPhoto.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
         assertThat(testPhoto.getHeight()).isEqualTo(UPDATED_HEIGHT);
         assertThat(testPhoto.getWidth()).isEqualTo(UPDATED_WIDTH);
@@ -464,7 +868,7 @@ class PhotoResourceIT {
                 patch(ENTITY_API_URL_ID, photo.getId())
                     .with(csrf())
                     .contentType("application/merge-patch+json")
-                    .content(TestUtil.convertObjectToJsonBytes(photo))
+                    .content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isBadRequest());
 
@@ -485,7 +889,7 @@ class PhotoResourceIT {
                 patch(ENTITY_API_URL_ID, count.incrementAndGet())
                     .with(csrf())
                     .contentType("application/merge-patch+json")
-                    .content(TestUtil.convertObjectToJsonBytes(photo))
+                    .content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isBadRequest());
 
@@ -506,7 +910,7 @@ class PhotoResourceIT {
                 patch(ENTITY_API_URL)
                     .with(csrf())
                     .contentType("application/merge-patch+json")
-                    .content(TestUtil.convertObjectToJsonBytes(photo))
+                    .content(convertPhotoToJsonBytes(photo))
             )
             .andExpect(status().isMethodNotAllowed());
 
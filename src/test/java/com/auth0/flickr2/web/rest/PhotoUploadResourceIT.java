@@ -0,0 +1,221 @@
+package com.auth0.flickr2.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.auth0.flickr2.IntegrationTest;
+import com.auth0.flickr2.domain.Photo;
+import com.auth0.flickr2.repository.BlobStore;
+import com.auth0.flickr2.repository.PhotoRepository;
+import com.auth0.flickr2.service.dto.PhotoUploadDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link PhotoUploadResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser
+class PhotoUploadResourceIT {
+
+    private static final int CHUNK_SIZE = 512;
+
+    private static final String FILE_NAME = "photo.png";
+    private static final String CONTENT_TYPE = "image/png";
+
+    private static final String ENTITY_API_URL = "/api/photo-uploads";
+    private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
+    private static final String ENTITY_API_URL_CHUNK = ENTITY_API_URL_ID + "/chunks/{index}";
+    private static final String ENTITY_API_URL_COMMIT = ENTITY_API_URL_ID + "/commit";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private MockMvc restPhotoUploadMockMvc;
+
+    private byte[] image;
+
+    @BeforeEach
+    public void initTest() {
+        image = new byte[2 * CHUNK_SIZE + 100];
+        new Random(42).nextBytes(image);
+    }
+
+    private String createUpload(Long size) throws Exception {
+        PhotoUploadDTO request = new PhotoUploadDTO();
+        request.setFileName(FILE_NAME);
+        request.setContentType(CONTENT_TYPE);
+        request.setSize(size);
+        request.setChunkSize((long) CHUNK_SIZE);
+        String response = restPhotoUploadMockMvc
+            .perform(post(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsBytes(request)))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.chunkSize").value(CHUNK_SIZE))
+            .andExpect(jsonPath("$.chunks").value(0))
+            .andExpect(jsonPath("$.offset").value(0))
+            .andExpect(jsonPath("$.expires").isNotEmpty())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        return objectMapper.readValue(response, PhotoUploadDTO.class).getId();
+    }
+
+    private ResultActions putChunk(String id, int index, byte[] content) throws Exception {
+        return restPhotoUploadMockMvc.perform(
+            put(ENTITY_API_URL_CHUNK, id, index).with(csrf()).contentType(MediaType.APPLICATION_OCTET_STREAM).content(content)
+        );
+    }
+
+    private byte[] chunk(int index) {
+        return Arrays.copyOfRange(image, index * CHUNK_SIZE, Math.min(image.length, (index + 1) * CHUNK_SIZE));
+    }
+
+    @Test
+    @Transactional
+    void uploadPhotoInChunks() throws Exception {
+        String id = createUpload((long) image.length);
+
+        putChunk(id, 0, chunk(0)).andExpect(status().isOk()).andExpect(jsonPath("$.chunks").value(1));
+        putChunk(id, 1, chunk(1)).andExpect(status().isOk()).andExpect(jsonPath("$.offset").value(2 * CHUNK_SIZE));
+        putChunk(id, 2, chunk(2)).andExpect(status().isOk()).andExpect(jsonPath("$.offset").value(image.length));
+
+        int databaseSizeBeforeCreate = photoRepository.findAll().size();
+        restPhotoUploadMockMvc
+            .perform(post(ENTITY_API_URL_COMMIT, id).with(csrf()))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.title").value(FILE_NAME))
+            .andExpect(jsonPath("$.imageContentType").value(CONTENT_TYPE))
+            .andExpect(jsonPath("$.imageSize").value(image.length));
+
+        List<Photo> photoList = photoRepository.findAll();
+        assertThat(photoList).hasSize(databaseSizeBeforeCreate + 1);
+        Photo testPhoto = photoList.get(photoList.size() - 1);
+        assertThat(blobStore.open(testPhoto.getImageSha256()).readAllBytes()).isEqualTo(image);
+
+        // the upload is removed once committed
+        restPhotoUploadMockMvc.perform(get(ENTITY_API_URL_ID, id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void resumeUpload() throws Exception {
+        String id = createUpload(null);
+        putChunk(id, 0, chunk(0)).andExpect(status().isOk());
+
+        restPhotoUploadMockMvc
+            .perform(get(ENTITY_API_URL_ID, id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.fileName").value(FILE_NAME))
+            .andExpect(jsonPath("$.chunks").value(1))
+            .andExpect(jsonPath("$.offset").value(CHUNK_SIZE));
+    }
+
+    @Test
+    void putChunkAgain() throws Exception {
+        String id = createUpload(null);
+        putChunk(id, 0, chunk(0)).andExpect(status().isOk());
+
+        // a retried chunk is acknowledged without being written again
+        putChunk(id, 0, chunk(0)).andExpect(status().isOk()).andExpect(jsonPath("$.chunks").value(1)).andExpect(jsonPath("$.offset").value(CHUNK_SIZE));
+    }
+
+    @Test
+    void putChunkOutOfOrder() throws Exception {
+        String id = createUpload(null);
+
+        putChunk(id, 1, chunk(1)).andExpect(status().isConflict());
+    }
+
+    @Test
+    void putChunkAfterLastChunk() throws Exception {
+        String id = createUpload(null);
+        putChunk(id, 0, Arrays.copyOf(image, 100)).andExpect(status().isOk());
+
+        putChunk(id, 1, chunk(1)).andExpect(status().isConflict());
+    }
+
+    @Test
+    void putChunkTooLarge() throws Exception {
+        String id = createUpload(null);
+
+        putChunk(id, 0, Arrays.copyOf(image, CHUNK_SIZE + 1)).andExpect(status().isBadRequest());
+
+        restPhotoUploadMockMvc.perform(get(ENTITY_API_URL_ID, id)).andExpect(jsonPath("$.chunks").value(0)).andExpect(jsonPath("$.offset").value(0));
+    }
+
+    @Test
+    void putChunkExceedingSize() throws Exception {
+        String id = createUpload((long) CHUNK_SIZE + 10);
+        putChunk(id, 0, chunk(0)).andExpect(status().isOk());
+
+        putChunk(id, 1, chunk(1)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createUploadWithTooLargeChunkSize() throws Exception {
+        PhotoUploadDTO request = new PhotoUploadDTO();
+        request.setChunkSize(Long.MAX_VALUE);
+
+        restPhotoUploadMockMvc
+            .perform(post(ENTITY_API_URL).with(csrf()).contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsBytes(request)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void commitIncompleteUpload() throws Exception {
+        String id = createUpload((long) image.length);
+        putChunk(id, 0, chunk(0)).andExpect(status().isOk());
+
+        int databaseSizeBeforeCreate = photoRepository.findAll().size();
+        restPhotoUploadMockMvc.perform(post(ENTITY_API_URL_COMMIT, id).with(csrf())).andExpect(status().isBadRequest());
+
+        assertThat(photoRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+        // the upload can still be completed
+        restPhotoUploadMockMvc.perform(get(ENTITY_API_URL_ID, id)).andExpect(status().isOk());
+    }
+
+    @Test
+    void getUploadOfOtherUser() throws Exception {
+        String id = createUpload(null);
+
+        restPhotoUploadMockMvc.perform(get(ENTITY_API_URL_ID, id).with(user("other"))).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getNonExistingUpload() throws Exception {
+        restPhotoUploadMockMvc.perform(get(ENTITY_API_URL_ID, "unknown")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteUpload() throws Exception {
+        String id = createUpload(null);
+        putChunk(id, 0, chunk(0)).andExpect(status().isOk());
+
+        restPhotoUploadMockMvc.perform(delete(ENTITY_API_URL_ID, id).with(csrf())).andExpect(status().isNoContent());
+
+        restPhotoUploadMockMvc.perform(get(ENTITY_API_URL_ID, id)).andExpect(status().isNotFound());
+        putChunk(id, 1, chunk(1)).andExpect(status().isNotFound());
+    }
+}
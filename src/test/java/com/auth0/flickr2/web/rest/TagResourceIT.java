@@ -1,22 +1,30 @@
 package com.auth0.flickr2.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.auth0.flickr2.IntegrationTest;
 import com.auth0.flickr2.domain.Tag;
+import com.auth0.flickr2.repository.PhotoRepository;
 import com.auth0.flickr2.repository.TagRepository;
+import com.auth0.flickr2.service.TagPopularityService;
+import com.auth0.flickr2.service.TagSuggestionIndex;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -42,6 +50,18 @@ class TagResourceIT {
     @Autowired
     private TagRepository tagRepository;
 
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private TagPopularityService tagPopularityService;
+
+    @Autowired
+    private TagSuggestionIndex tagSuggestionIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     @Autowired
     private EntityManager em;
 
@@ -149,6 +169,116 @@ class TagResourceIT {
             .andExpect(jsonPath("$.[*].name").value(hasItem(DEFAULT_NAME)));
     }
 
+
+    @Test
+    @Transactional
+    void getTagsAfterCursor() throws Exception {
+        // Initialize the database
+        Tag third = tagRepository.saveAndFlush(new Tag().name("CCCCCCCCCC"));
+        Tag first = tagRepository.saveAndFlush(new Tag().name(DEFAULT_NAME));
+        Tag second = tagRepository.saveAndFlush(new Tag().name(UPDATED_NAME));
+
+        // Get all the tags, by name, two at a time
+        List<Long> ids = TestUtil.getAllKeysetPageIds(restTagMockMvc, ENTITY_API_URL + "?after=&size=2");
+
+        assertThat(ids).doesNotHaveDuplicates().containsSubsequence(first.getId(), second.getId(), third.getId());
+    }
+
+    @Test
+    @Transactional
+    void getTagsAfterInvalidCursor() throws Exception {
+        restTagMockMvc.perform(get(ENTITY_API_URL + "?after=invalid")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getPopularTags() throws Exception {
+        // Initialize the database
+        cacheManager.getCache(TagPopularityService.POPULAR_TAGS_CACHE).clear();
+        Tag popular = createEntity(em).name("popular-" + count.incrementAndGet());
+        em.persist(popular);
+        Tag rare = createEntity(em).name("rare-" + count.incrementAndGet());
+        em.persist(rare);
+        Tag unused = createEntity(em).name("unused-" + count.incrementAndGet());
+        em.persist(unused);
+        photoRepository.saveAndFlush(PhotoResourceIT.createEntity(em).addTag(popular).addTag(rare));
+        for (int i = 0; i < 9; i++) {
+            photoRepository.saveAndFlush(PhotoResourceIT.createEntity(em).addTag(popular));
+        }
+        tagPopularityService.reconcile();
+
+        // Get the popular tags
+        restTagMockMvc
+            .perform(get(ENTITY_API_URL + "/popular?size=100"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[0].id").value(popular.getId().intValue()))
+            .andExpect(jsonPath("$.[0].name").value(popular.getName()))
+            .andExpect(jsonPath("$.[0].photoCount").value(10))
+            .andExpect(jsonPath("$.[?(@.id == " + rare.getId() + ")].photoCount").value(hasItem(1)))
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(unused.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    void getPopularTagsWithInvalidSize() throws Exception {
+        restTagMockMvc.perform(get(ENTITY_API_URL + "/popular?size=0")).andExpect(status().isBadRequest());
+        restTagMockMvc.perform(get(ENTITY_API_URL + "/popular?size=101")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void suggestTags() throws Exception {
+        // Initialize the database
+        String prefix = "suggest" + UUID.randomUUID().toString().replace("-", "");
+        Tag rare = tagRepository.saveAndFlush(createEntity(em).name(prefix + "-Alpha"));
+        Tag popular = tagRepository.saveAndFlush(createEntity(em).name(prefix + "-beta"));
+        Tag other = tagRepository.saveAndFlush(createEntity(em).name("other-" + prefix));
+        photoRepository.saveAndFlush(PhotoResourceIT.createEntity(em).addTag(popular).addTag(other));
+        tagPopularityService.reconcile();
+        tagSuggestionIndex.rebuild();
+
+        // Suggest the tags starting with the prefix, ignoring case
+        restTagMockMvc
+            .perform(get(ENTITY_API_URL + "/_suggest?prefix=" + prefix.toUpperCase()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(contains(popular.getId().intValue(), rare.getId().intValue())))
+            .andExpect(jsonPath("$.[*].photoCount").value(contains(1, 0)));
+        restTagMockMvc
+            .perform(get(ENTITY_API_URL + "/_suggest?prefix=" + prefix + "-a&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].name").value(contains(rare.getName())));
+    }
+
+    @Test
+    @Transactional
+    void suggestTagsOfPrefixWithManyTags() throws Exception {
+        // Initialize the database with enough tags starting with the prefix for it to have candidates
+        String prefix = "many" + UUID.randomUUID().toString().replace("-", "");
+        List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            tags.add(createEntity(em).name(prefix + "-" + i));
+        }
+        tagRepository.saveAll(tags);
+        Tag popular = tags.get(150);
+        photoRepository.saveAndFlush(PhotoResourceIT.createEntity(em).addTag(popular));
+        tagPopularityService.reconcile();
+        tagSuggestionIndex.rebuild();
+
+        // Suggest the most used tag among the candidates of the prefix
+        restTagMockMvc
+            .perform(get(ENTITY_API_URL + "/_suggest?prefix=" + prefix + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(popular.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    void suggestTagsWithBlankPrefix() throws Exception {
+        restTagMockMvc.perform(get(ENTITY_API_URL + "/_suggest?prefix=%20")).andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     void getTag() throws Exception {
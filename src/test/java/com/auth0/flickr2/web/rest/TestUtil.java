@@ -1,15 +1,20 @@
 package com.auth0.flickr2.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.jayway.jsonpath.JsonPath;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
@@ -22,6 +27,9 @@ import org.hamcrest.TypeSafeMatcher;
 import org.springframework.format.datetime.standard.DateTimeFormatterRegistrar;
 import org.springframework.format.support.DefaultFormattingConversionService;
 import org.springframework.format.support.FormattingConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 /**
  * Utility class for testing REST controllers.
@@ -174,6 +182,27 @@ public final class TestUtil {
         assertThat(domainObject1).hasSameHashCodeAs(domainObject2);
     }
 
+    /**
+     * Get all the pages of a keyset paginated resource, following the {@code Link} header of each page to the next one.
+     *
+     * @param mockMvc the {@link MockMvc} of the resource.
+     * @param url the URL of the first page.
+     * @return the ids of the entities of all the pages, in order.
+     * @throws Exception if a page can't be retrieved.
+     */
+    public static List<Long> getAllKeysetPageIds(MockMvc mockMvc, String url) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String next = url;
+        while (next != null) {
+            MvcResult result = mockMvc.perform(get(next)).andExpect(status().isOk()).andExpect(header().doesNotExist("X-Total-Count")).andReturn();
+            List<Number> pageIds = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+            pageIds.forEach(id -> ids.add(id.longValue()));
+            String link = result.getResponse().getHeader(HttpHeaders.LINK);
+            next = link != null ? link.substring(link.indexOf('<') + 1, link.indexOf('>')) : null;
+        }
+        return ids;
+    }
+
     /**
      * Create a {@link FormattingConversionService} which use ISO date format, instead of the localized one.
      * @return the {@link FormattingConversionService}.
@@ -0,0 +1,149 @@
+package com.auth0.flickr2.web.rest.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests {@link FileTransferUtil}.
+ */
+class FileTransferUtilTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+
+    private byte[] content;
+
+    @BeforeEach
+    void setup() throws Exception {
+        content = new byte[100_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = Files.write(directory.resolve("blob"), content);
+    }
+
+    @Test
+    void sendFileWritesTheRegionThroughTheWrappers() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RecordingResponseWrapper wrapper = new RecordingResponseWrapper(response);
+
+        FileTransferUtil.sendFile(wrapper, file, 1000, 50_000);
+
+        assertThat(wrapper.outputStreamRequested).isTrue();
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 1000, 51_000));
+    }
+
+    @Test
+    void sendFileHandsTheFileOverToTheContainer() throws Exception {
+        NativeResponse response = new NativeResponse();
+        RecordingResponseWrapper wrapper = new RecordingResponseWrapper(response);
+
+        FileTransferUtil.sendFile(wrapper, file, 1000, content.length - 1000);
+
+        assertThat(wrapper.outputStreamRequested).isFalse();
+        assertThat(response.outputStream.committedBeforeTransfer).isTrue();
+        assertThat(response.outputStream.transferred.toByteArray()).isEqualTo(Arrays.copyOfRange(content, 1000, content.length));
+    }
+
+    @Test
+    void sendFileWritesTheRegionNotRunningToTheEndThroughTheWrappers() throws Exception {
+        NativeResponse response = new NativeResponse();
+        RecordingResponseWrapper wrapper = new RecordingResponseWrapper(response);
+
+        FileTransferUtil.sendFile(wrapper, file, 1000, 50_000);
+
+        assertThat(wrapper.outputStreamRequested).isTrue();
+        assertThat(response.outputStream.transferred.size()).isZero();
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 1000, 51_000));
+    }
+
+    @Test
+    void sendFileFailsWhenTheFileIsTooShort() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThatThrownBy(() -> FileTransferUtil.sendFile(response, file, 0, content.length + 1)).isInstanceOf(EOFException.class);
+    }
+
+    /**
+     * Wrapper recording whether the body is written through it, as Spring Security's writing the headers on commit does.
+     */
+    private static class RecordingResponseWrapper extends HttpServletResponseWrapper {
+
+        private boolean outputStreamRequested;
+
+        RecordingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            outputStreamRequested = true;
+            return super.getOutputStream();
+        }
+    }
+
+    /**
+     * Response of a container whose output stream sends files natively, as Undertow's does.
+     */
+    private static class NativeResponse extends MockHttpServletResponse {
+
+        private final NativeOutputStream outputStream = new NativeOutputStream(this, super.getOutputStream());
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+    }
+
+    public static class NativeOutputStream extends ServletOutputStream {
+
+        private final MockHttpServletResponse response;
+
+        private final ServletOutputStream content;
+
+        private final ByteArrayOutputStream transferred = new ByteArrayOutputStream();
+
+        private boolean committedBeforeTransfer;
+
+        NativeOutputStream(MockHttpServletResponse response, ServletOutputStream content) {
+            this.response = response;
+            this.content = content;
+        }
+
+        public void transferFrom(FileChannel channel) throws IOException {
+            committedBeforeTransfer = response.isCommitted();
+            channel.transferTo(channel.position(), channel.size() - channel.position(), Channels.newChannel(transferred));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            content.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {}
+    }
+}